@@ -0,0 +1,35 @@
+package com.space.config;
+
+import com.space.model.RandomShips;
+import com.space.model.Ship;
+import com.space.repository.ShipRepository;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.List;
+import java.util.Random;
+
+public class BenchmarkContexts {
+
+    private static final int INSERT_CHUNK = 10000;
+
+    // The application context without the web layer, on the embedded H2 database seeded from test.sql
+    public static AnnotationConfigApplicationContext dev() {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().setActiveProfiles("dev");
+        context.register(AppConfig.class);
+        context.refresh();
+        return context;
+    }
+
+    // Same, with the table topped up to `rows` generated ships
+    public static AnnotationConfigApplicationContext dev(int rows) {
+        AnnotationConfigApplicationContext context = dev();
+        ShipRepository shipRepository = context.getBean(ShipRepository.class);
+        Random random = new Random(42);
+        for (long inserted = shipRepository.count(); inserted < rows; inserted += INSERT_CHUNK) {
+            List<Ship> ships = RandomShips.generate((int) Math.min(INSERT_CHUNK, rows - inserted), random.nextLong());
+            shipRepository.insertAll(ships, INSERT_CHUNK);
+        }
+        return context;
+    }
+}
@@ -0,0 +1,67 @@
+package com.space.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.type.CollectionType;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.space.model.RandomShips;
+import com.space.model.Ship;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// JSON against the Smile and CBOR representations of a ship list, payload sizes are printed by the setup
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShipFormatBenchmark {
+
+    @Param({"3", "100", "10000"})
+    private int size;
+
+    @Param({"json", "smile", "cbor"})
+    private String format;
+
+    private ObjectMapper mapper;
+    private CollectionType listType;
+    private List<Ship> ships;
+    private byte[] encoded;
+
+    @Setup
+    public void setup() throws IOException {
+        mapper = format.equals("smile") ? WebConfig.binaryObjectMapper(new SmileFactory())
+                : format.equals("cbor") ? WebConfig.binaryObjectMapper(new CBORFactory())
+                : new AppConfig().objectMapper();
+        listType = mapper.getTypeFactory().constructCollectionType(List.class, Ship.class);
+        ships = RandomShips.generate(size, 42);
+        for (int i = 0; i < size; i++)
+            ships.get(i).setId((long) i + 1);
+        encoded = mapper.writeValueAsBytes(ships);
+        System.out.println(format + ": " + encoded.length + " bytes for " + size + " ships");
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        return mapper.writeValueAsBytes(ships);
+    }
+
+    @Benchmark
+    public List<Ship> decode() throws IOException {
+        return mapper.readValue(encoded, listType);
+    }
+}
@@ -0,0 +1,52 @@
+package com.space.config;
+
+import com.space.model.RandomShips;
+import com.space.model.Ship;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShipSerializationBenchmark {
+
+    @Param({"3", "100", "10000"})
+    private int size;
+
+    private MappingJackson2HttpMessageConverter converter;
+    private List<Ship> ships;
+
+    @Setup
+    public void setup() {
+        converter = new MappingJackson2HttpMessageConverter(new AppConfig().objectMapper());
+        ships = RandomShips.generate(size, 42);
+        for (int i = 0; i < size; i++)
+            ships.get(i).setId((long) i + 1);
+    }
+
+    @Benchmark
+    public int writeShips() throws IOException {
+        MockHttpOutputMessage message = new MockHttpOutputMessage();
+        converter.write(ships, MediaType.APPLICATION_JSON_UTF8, message);
+        return message.getBodyAsBytes().length;
+    }
+}
@@ -0,0 +1,36 @@
+package com.space.model;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.Random;
+
+// Deterministic fleets for the benchmarks, within the ranges the service accepts
+public class RandomShips {
+
+    private static final String[] NAMES = {"Orion", "Daedalus", "Eagle", "Mongoose", "Excalibur", "Explorer", "Icarus",
+            "Hermes", "Odyssey", "Serenity", "Hawk", "Amaterasu", "Cygnus", "Argonaut", "Avalon", "Arcadia"};
+    private static final String[] PLANETS = {"Mars", "Jupiter", "Earth", "Neptune", "Mercury", "Saturn", "Venus", "Uranus"};
+
+    public static List<Ship> generate(int count, long seed) {
+        Random random = new Random(seed);
+        List<Ship> ships = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+            ships.add(generate(random));
+        return ships;
+    }
+
+    public static Ship generate(Random random) {
+        Ship ship = new Ship();
+        ship.setName(NAMES[random.nextInt(NAMES.length)] + " " + random.nextInt(1000));
+        ship.setPlanet(PLANETS[random.nextInt(PLANETS.length)]);
+        ship.setShipType(ShipType.values()[random.nextInt(ShipType.values().length)]);
+        ship.setProdDate(new GregorianCalendar(2800 + random.nextInt(220), Calendar.JANUARY, 1 + random.nextInt(28)).getTime());
+        ship.setUsed(random.nextBoolean());
+        ship.setSpeed((1 + random.nextInt(99)) / 100d);
+        ship.setCrewSize(1 + random.nextInt(9999));
+        ship.setRating(random.nextInt(5000) / 100d);
+        return ship;
+    }
+}
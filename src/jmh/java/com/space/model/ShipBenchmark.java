@@ -0,0 +1,59 @@
+package com.space.model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShipBenchmark {
+
+    private static final int SHIPS = 1024;
+
+    private Ship[] ships;
+    private Ship[] copies;
+    private int next;
+
+    @Setup
+    public void setup() {
+        List<Ship> generated = RandomShips.generate(SHIPS, 42);
+        ships = new Ship[SHIPS];
+        copies = new Ship[SHIPS];
+        for (int i = 0; i < SHIPS; i++) {
+            ships[i] = generated.get(i);
+            ships[i].setId((long) i);
+            copies[i] = new Ship(ships[i]);
+        }
+    }
+
+    @Benchmark
+    public boolean equalsSame() {
+        int i = next++ & (SHIPS - 1);
+        return ships[i].equals(copies[i]);
+    }
+
+    @Benchmark
+    public boolean equalsDifferent() {
+        int i = next++ & (SHIPS - 1);
+        return ships[i].equals(copies[(i + 1) & (SHIPS - 1)]);
+    }
+
+    @Benchmark
+    public int hashCodeShip() {
+        return ships[next++ & (SHIPS - 1)].hashCode();
+    }
+}
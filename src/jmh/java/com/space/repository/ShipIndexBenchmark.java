@@ -0,0 +1,113 @@
+package com.space.repository;
+
+import com.space.config.BenchmarkContexts;
+import com.space.model.Ship;
+import com.space.model.ShipOrder;
+import com.space.model.ShipType;
+import com.space.service.ShipService;
+import com.space.specification.ShipFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// The query shapes getAllShips/countShips emit, with and without the V2 migration indexes; the setup prints the plans
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ShipIndexBenchmark {
+
+    private static final String INDEX_MIGRATION = "db/migration/V2__ship_filter_indexes.sql";
+
+    private static final String[] PLANNED_QUERIES = {
+            "SELECT * FROM ship WHERE isUsed = FALSE AND speed >= 0.1 ORDER BY rating LIMIT 20",
+            "SELECT * FROM ship WHERE shipType = 'MILITARY' AND isUsed = TRUE ORDER BY speed, id LIMIT 20",
+            "SELECT * FROM ship WHERE prodDate BETWEEN DATE '3000-01-01' AND DATE '3001-01-01' ORDER BY prodDate LIMIT 20",
+            "SELECT COUNT(*) FROM ship WHERE rating BETWEEN 1.0 AND 2.0",
+            "SELECT COUNT(*) FROM ship WHERE shipType = 'MERCHANT' AND isUsed = FALSE AND rating >= 10.0"
+    };
+
+    private static final ShipFilter USED_SPEED = new ShipFilter(null, null, null, null, null, false, 0.1, null,
+            null, null, null, null);
+    private static final ShipFilter TYPE_USED = new ShipFilter(null, null, ShipType.MILITARY, null, null, true, null, null,
+            null, null, null, null);
+    private static final ShipFilter DATE_RANGE = new ShipFilter(null, null, null, 32503680000000L, 32535216000000L, null,
+            null, null, null, null, null, null);
+    private static final ShipFilter RATING_RANGE = new ShipFilter(null, null, null, null, null, null, null, null,
+            null, null, 1.0, 2.0);
+    private static final ShipFilter TYPE_USED_RATING = new ShipFilter(null, null, ShipType.MERCHANT, null, null, false,
+            null, null, null, null, 10.0, null);
+
+    @Param({"100000"})
+    private int rows;
+
+    @Param({"false", "true"})
+    private boolean indexed;
+
+    private AnnotationConfigApplicationContext context;
+    private ShipService shipService;
+
+    @Setup
+    public void setup() {
+        context = BenchmarkContexts.dev(rows);
+        shipService = context.getBean(ShipService.class);
+
+        DataSource dataSource = context.getBean(DataSource.class);
+        if (indexed)
+            new ResourceDatabasePopulator(new ClassPathResource(INDEX_MIGRATION)).execute(dataSource);
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("ANALYZE");
+        for (String query : PLANNED_QUERIES)
+            System.out.println(query + "\n" + jdbcTemplate.queryForObject("EXPLAIN " + query, String.class) + "\n");
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Ship> firstPageUsedSpeedOrderRating() {
+        return shipService.getAllShips(USED_SPEED, ShipOrder.RATING, 0, 20);
+    }
+
+    @Benchmark
+    public List<Ship> firstPageTypeUsedOrderSpeed() {
+        return shipService.getAllShips(TYPE_USED, ShipOrder.SPEED, 0, 20);
+    }
+
+    @Benchmark
+    public List<Ship> firstPageDateRangeOrderDate() {
+        return shipService.getAllShips(DATE_RANGE, ShipOrder.DATE, 0, 20);
+    }
+
+    @Benchmark
+    public long countRatingRange() {
+        return shipService.countShips(RATING_RANGE);
+    }
+
+    @Benchmark
+    public long countTypeUsedRating() {
+        return shipService.countShips(TYPE_USED_RATING);
+    }
+}
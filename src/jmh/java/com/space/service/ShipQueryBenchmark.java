@@ -0,0 +1,81 @@
+package com.space.service;
+
+import com.space.config.BenchmarkContexts;
+import com.space.model.Ship;
+import com.space.model.ShipOrder;
+import com.space.model.ShipType;
+import com.space.specification.ShipFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// End-to-end service calls against the embedded H2 database filled with `rows` generated ships
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ShipQueryBenchmark {
+
+    private static final ShipFilter LOOSE = new ShipFilter(null, null, null, null, null, false, 0.1, null,
+            null, null, null, null);
+    private static final ShipFilter SELECTIVE = new ShipFilter("Orion 1", "ar", ShipType.MILITARY, null, null, null,
+            null, null, 100, 2000, null, null);
+
+    @Param({"10000", "1000000"})
+    private int rows;
+
+    private AnnotationConfigApplicationContext context;
+    private ShipService shipService;
+
+    @Setup
+    public void setup() {
+        context = BenchmarkContexts.dev(rows);
+        shipService = context.getBean(ShipService.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Ship> firstPageLooseFilter() {
+        return shipService.getAllShips(LOOSE, ShipOrder.RATING, 0, 20);
+    }
+
+    @Benchmark
+    public List<Ship> firstPageSelectiveFilter() {
+        return shipService.getAllShips(SELECTIVE, ShipOrder.SPEED, 0, 20);
+    }
+
+    @Benchmark
+    public long countLooseFilter() {
+        return shipService.countShips(LOOSE);
+    }
+
+    // The old count path, hydrating every match just to take the list size
+    @Benchmark
+    public long countLooseFilterByLoadingAll() {
+        return shipService.getAllShips(LOOSE.toSpecification()).size();
+    }
+
+    @Benchmark
+    public long countSelectiveFilter() {
+        return shipService.countShips(SELECTIVE);
+    }
+}
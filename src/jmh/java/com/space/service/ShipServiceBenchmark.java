@@ -0,0 +1,48 @@
+package com.space.service;
+
+import com.space.model.RandomShips;
+import com.space.model.Ship;
+import com.space.model.ShipDates;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShipServiceBenchmark {
+
+    private static final int SHIPS = 1024;
+
+    private Ship[] ships;
+    private int next;
+
+    @Setup
+    public void setup() {
+        ships = RandomShips.generate(SHIPS, 42).toArray(new Ship[0]);
+    }
+
+    @Benchmark
+    public double calculateRating() {
+        return ShipServiceImpl.calculateRating(ships[next++ & (SHIPS - 1)], ShipDates.MAX_YEAR);
+    }
+
+    @Benchmark
+    public Ship checkValidShip() {
+        Ship ship = ships[next++ & (SHIPS - 1)];
+        ShipServiceImpl.checkValidShip(ship, ShipDates.MAX_YEAR);
+        return ship;
+    }
+}
@@ -0,0 +1,100 @@
+package com.space.specification;
+
+import com.space.config.BenchmarkContexts;
+import com.space.model.Ship;
+import com.space.model.ShipOrder;
+import com.space.model.ShipType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.data.jpa.domain.Specification;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShipSpecificationBenchmark {
+
+    private static final ShipFilter ALL_FILTERS = new ShipFilter("or", "ar", ShipType.MERCHANT, 26192235600000L,
+            32503672800000L, false, 0.1, 0.9, 10, 5000, 0.5, 20.0);
+
+    private AnnotationConfigApplicationContext context;
+    private EntityManager entityManager;
+    private CriteriaBuilder criteriaBuilder;
+
+    @Setup
+    public void setup() {
+        context = BenchmarkContexts.dev();
+        entityManager = context.getBean(EntityManagerFactory.class).createEntityManager();
+        criteriaBuilder = entityManager.getCriteriaBuilder();
+    }
+
+    @TearDown
+    public void tearDown() {
+        entityManager.close();
+        context.close();
+    }
+
+    @Benchmark
+    public Specification<Ship> buildAllFilters() {
+        return allFilters();
+    }
+
+    @Benchmark
+    public Predicate toPredicateAllFilters() {
+        return toPredicate(allFilters());
+    }
+
+    @Benchmark
+    public Predicate toPredicateNoFilters() {
+        return toPredicate(ShipSpecification.getSpecification(null, null, null, null, null, null, null, null,
+                null, null, null, null));
+    }
+
+    // Criteria tree plus Hibernate's translation of it, what every list request paid before the shape cache
+    @Benchmark
+    public TypedQuery<Ship> createCriteriaQueryAllFilters() {
+        CriteriaQuery<Ship> query = criteriaBuilder.createQuery(Ship.class);
+        Root<Ship> root = query.from(Ship.class);
+        query.where(allFilters().toPredicate(root, query, criteriaBuilder));
+        query.orderBy(criteriaBuilder.asc(root.get(ShipOrder.RATING.getFieldName())));
+        return entityManager.createQuery(query);
+    }
+
+    @Benchmark
+    public TypedQuery<Ship> createShapeQueryAllFilters() {
+        TypedQuery<Ship> query = entityManager.createQuery(
+                ShipQueryShapes.select(ShipQueryShapes.shapeOf(ALL_FILTERS, null), ShipOrder.RATING), Ship.class);
+        ShipQueryShapes.bind(query, ALL_FILTERS, null);
+        return query;
+    }
+
+    private static Specification<Ship> allFilters() {
+        return ALL_FILTERS.toSpecification();
+    }
+
+    private Predicate toPredicate(Specification<Ship> specification) {
+        CriteriaQuery<Ship> query = criteriaBuilder.createQuery(Ship.class);
+        return specification.toPredicate(query.from(Ship.class), query, criteriaBuilder);
+    }
+}
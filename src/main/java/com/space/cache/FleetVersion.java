@@ -0,0 +1,55 @@
+package com.space.cache;
+
+import com.space.model.Ship;
+import com.space.service.ShipChangeListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Fleet-wide modification counter behind the ETags of the list, count and stats endpoints. The epoch keeps the
+// tags of a restarted instance from colliding with the ones handed out before the restart. It is the last listener
+// to hear of a change, so a request that sees the new tag also sees the caches and indexes that change updated
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE)
+public class FleetVersion implements ShipChangeListener {
+
+    private final String epoch = Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36);
+    private final AtomicLong modifications = new AtomicLong();
+
+    public String etag() {
+        return "\"fleet-" + epoch + "-" + modifications.get() + "\"";
+    }
+
+    public void touch() {
+        modifications.incrementAndGet();
+    }
+
+    @Override
+    public void shipCreated(Ship ship) {
+        touch();
+    }
+
+    @Override
+    public void shipUpdated(Ship before, Ship after) {
+        touch();
+    }
+
+    @Override
+    public void shipDeleted(Ship ship) {
+        touch();
+    }
+
+    @Override
+    public void shipsCreated(List<Ship> ships) {
+        touch();
+    }
+
+    @Override
+    public void shipsUpdated(List<Ship[]> changes) {
+        touch();
+    }
+}
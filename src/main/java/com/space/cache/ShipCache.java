@@ -0,0 +1,79 @@
+package com.space.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.space.model.Ship;
+import com.space.service.ShipChangeListener;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+@Component
+@Order(40)
+public class ShipCache implements ShipChangeListener {
+
+    private final boolean enabled;
+    private final Cache<Long, Ship> cache;
+
+    public ShipCache(@Value("${ship.cache.enabled}") boolean enabled,
+                     @Value("${ship.cache.maximum-size}") long maximumSize,
+                     @Value("${ship.cache.expire-after-write-seconds}") long expireAfterWriteSeconds) {
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWriteSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+    }
+
+    // Misses are not cached: the loader returns null for a ship that does not exist
+    public Ship get(Long id, Function<Long, Ship> loader) {
+        if (!enabled)
+            return loader.apply(id);
+
+        return cache.get(id, loader);
+    }
+
+    public Ship getIfPresent(Long id) {
+        return enabled ? cache.getIfPresent(id) : null;
+    }
+
+    public void invalidate(Long id) {
+        cache.invalidate(id);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    @Override
+    public void shipCreated(Ship ship) {
+        invalidate(ship.getId());
+    }
+
+    @Override
+    public void shipUpdated(Ship before, Ship after) {
+        invalidate(after.getId());
+    }
+
+    @Override
+    public void shipDeleted(Ship ship) {
+        invalidate(ship.getId());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+}
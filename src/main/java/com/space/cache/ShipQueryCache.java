@@ -0,0 +1,138 @@
+package com.space.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.space.model.Ship;
+import com.space.service.ShipChangeListener;
+import com.space.specification.ShipFilter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+// List and count results by filter, order and page. A change evicts only the entries whose filter the ship matched
+// before or matches after it; the rest cannot have changed. Entries expire expireAfterWriteSeconds after loading,
+// the bound on staleness for changes the listeners never see, like writes by other instances
+@Component
+@Order(60)
+public class ShipQueryCache implements ShipChangeListener {
+
+    // Batches this large touch most filters anyway, matching every entry against every ship costs more than reloading
+    private static final int BATCH_INVALIDATES_ALL = 64;
+
+    private final boolean enabled;
+    private final Cache<Object, Entry> cache;
+
+    // Bumped by every change, a result loaded across a change is not stored
+    private final AtomicLong generation = new AtomicLong();
+
+    public ShipQueryCache(@Value("${ship.query-cache.enabled}") boolean enabled,
+                          @Value("${ship.query-cache.maximum-size}") long maximumSize,
+                          @Value("${ship.query-cache.expire-after-write-seconds}") long expireAfterWriteSeconds) {
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWriteSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+    }
+
+    // The key identifies the query; filter is what a change is matched against
+    @SuppressWarnings("unchecked")
+    public <T> T get(ShipFilter filter, Object key, Supplier<T> loader) {
+        if (!enabled)
+            return loader.get();
+
+        Entry entry = cache.getIfPresent(key);
+        if (entry != null)
+            return (T) entry.result;
+
+        long loadedAt = generation.get();
+        T result = loader.get();
+        Entry loaded = new Entry(filter, result);
+        cache.asMap().compute(key, (k, present) -> generation.get() == loadedAt ? loaded : present);
+        // A change bumping the generation after the check may have swept the cache before the entry landed
+        if (generation.get() != loadedAt)
+            cache.asMap().remove(key, loaded);
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T getIfPresent(Object key) {
+        if (!enabled)
+            return null;
+
+        Entry entry = cache.getIfPresent(key);
+        return entry != null ? (T) entry.result : null;
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    @Override
+    public void shipCreated(Ship ship) {
+        generation.incrementAndGet();
+        cache.asMap().values().removeIf(entry -> entry.filter.matches(ship));
+    }
+
+    @Override
+    public void shipUpdated(Ship before, Ship after) {
+        generation.incrementAndGet();
+        cache.asMap().values().removeIf(entry -> entry.filter.matches(before) || entry.filter.matches(after));
+    }
+
+    @Override
+    public void shipsCreated(List<Ship> ships) {
+        generation.incrementAndGet();
+        if (ships.size() >= BATCH_INVALIDATES_ALL)
+            cache.invalidateAll();
+        else
+            cache.asMap().values().removeIf(entry -> ships.stream().anyMatch(entry.filter::matches));
+    }
+
+    @Override
+    public void shipsUpdated(List<Ship[]> changes) {
+        generation.incrementAndGet();
+        if (changes.size() >= BATCH_INVALIDATES_ALL)
+            cache.invalidateAll();
+        else
+            cache.asMap().values().removeIf(entry -> changes.stream()
+                    .anyMatch(change -> entry.filter.matches(change[0]) || entry.filter.matches(change[1])));
+    }
+
+    @Override
+    public void shipDeleted(Ship ship) {
+        generation.incrementAndGet();
+        cache.asMap().values().removeIf(entry -> entry.filter.matches(ship));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    private static class Entry {
+
+        private final ShipFilter filter;
+        private final Object result;
+
+        Entry(ShipFilter filter, Object result) {
+            this.filter = filter;
+            this.result = result;
+        }
+    }
+}
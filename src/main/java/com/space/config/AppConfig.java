@@ -1,13 +1,32 @@
 package com.space.config;
 
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.space.metrics.SqlCapture;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.binder.jpa.HibernateMetrics;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
+import org.springframework.context.annotation.PropertySource;
+import org.springframework.context.support.PropertySourcesPlaceholderConfigurer;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.ClassPathResource;
 import org.springframework.dao.annotation.PersistenceExceptionTranslationPostProcessor;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
-import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
 import org.springframework.orm.jpa.JpaTransactionManager;
 import org.springframework.orm.jpa.JpaVendorAdapter;
 import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
@@ -17,16 +36,32 @@ import org.springframework.transaction.annotation.EnableTransactionManagement;
 
 import javax.persistence.EntityManagerFactory;
 import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 
 import static org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType.H2;
 
 @Configuration
 @EnableTransactionManagement
-@ComponentScan("com.space.service")
+@ComponentScan({"com.space.service", "com.space.cache", "com.space.index", "com.space.stats", "com.space.metrics"})
 @EnableJpaRepositories(basePackages = "com.space.repository")
+@PropertySource("classpath:cosmoport.properties")
 public class AppConfig {
 
+    private Environment environment;
+
+    @Autowired
+    public void setEnvironment(Environment environment) {
+        this.environment = environment;
+    }
+
+    @Bean
+    public static PropertySourcesPlaceholderConfigurer propertySourcesPlaceholderConfigurer() {
+        return new PropertySourcesPlaceholderConfigurer();
+    }
+
     @Bean
     public LocalContainerEntityManagerFactoryBean entityManagerFactory() {
         LocalContainerEntityManagerFactoryBean em = new LocalContainerEntityManagerFactoryBean();
@@ -43,25 +78,63 @@ public class AppConfig {
     @Profile("prod")
     @Bean
     public DataSource dataSource() {
-        DriverManagerDataSource dataSource = new DriverManagerDataSource();
-        dataSource.setDriverClassName("com.mysql.cj.jdbc.Driver");
-        dataSource.setUrl("jdbc:mysql://localhost:3306/cosmoport?serverTimezone=UTC");
-        dataSource.setUsername("root");
-        dataSource.setPassword("root");
-        return dataSource;
+        HikariConfig config = hikariConfig("cosmoport", environment.getRequiredProperty("db.url"));
+        config.setMetricsTrackerFactory(poolMetrics());
+        HikariDataSource dataSource = new HikariDataSource(config);
+        migrate(dataSource);
+
+        List<DataSource> replicas = new ArrayList<>();
+        String[] urls = environment.getRequiredProperty("db.replica.urls", String[].class);
+        for (int i = 0; i < urls.length; i++)
+            replicas.add(new HikariDataSource(hikariConfig("cosmoport-replica-" + i, urls[i].trim())));
+        return withReplicas(dataSource, replicas);
+    }
+
+    @Bean
+    public PoolMetrics poolMetrics() {
+        return new PoolMetrics();
     }
 
+    // Timers publish the configured percentiles; Hibernate statistics are only registered when they are generated
+    @Bean
+    public PrometheusMeterRegistry meterRegistry(EntityManagerFactory entityManagerFactory) {
+        PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        double[] percentiles = environment.getRequiredProperty("ship.metrics.percentiles", double[].class);
+        registry.config().meterFilter(new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                if (id.getType() != Meter.Type.TIMER)
+                    return config;
+                return DistributionStatisticConfig.builder().percentiles(percentiles).build().merge(config);
+            }
+        });
+
+        poolMetrics().bindTo(registry);
+        HibernateMetrics.monitor(registry, entityManagerFactory, "cosmoport");
+        return registry;
+    }
+
+    // Embedded replicas are seeded once and never see a write, the longest replication lag there is
     @Profile("dev")
     @Bean(name = "dataSource")
     public DataSource dataSourceForTests() {
+        List<DataSource> replicas = new ArrayList<>();
+        int replicaCount = environment.getRequiredProperty("db.replica.embedded-count", Integer.class);
+        for (int i = 0; i < replicaCount; i++)
+            replicas.add(embeddedDatabase());
+        return withReplicas(embeddedDatabase(), replicas);
+    }
 
-        return new EmbeddedDatabaseBuilder()
-                .generateUniqueName(true)
-                .setType(H2)
-                .setScriptEncoding("UTF-8")
-                .ignoreFailedDrops(true)
-                .addScript("test.sql")
-                .build();
+    // Only on when there are replicas to read from
+    @Bean
+    public ReplicaReads replicaReads(DataSource dataSource) throws SQLException {
+        return new ReplicaReads(environment.getRequiredProperty("db.replica.serve-reads", Boolean.class)
+                && dataSource.isWrapperFor(ReplicaRoutingDataSource.class));
+    }
+
+    @Bean
+    public JdbcTemplate jdbcTemplate(DataSource dataSource) {
+        return new JdbcTemplate(dataSource);
     }
 
     @Bean
@@ -77,9 +150,84 @@ public class AppConfig {
         return new PersistenceExceptionTranslationPostProcessor();
     }
 
+    // In the root context, so that the change log is written the way the endpoints write ships
+    @Bean
+    public ObjectMapper objectMapper() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.NONE);
+        objectMapper.setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY);
+        return objectMapper;
+    }
+
+    private HikariConfig hikariConfig(String poolName, String url) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName(poolName);
+        config.setDriverClassName(environment.getRequiredProperty("db.driver-class-name"));
+        config.setJdbcUrl(url);
+        config.setUsername(environment.getRequiredProperty("db.username"));
+        config.setPassword(environment.getRequiredProperty("db.password"));
+
+        config.setMaximumPoolSize(environment.getRequiredProperty("db.pool.maximum-size", Integer.class));
+        config.setMinimumIdle(environment.getRequiredProperty("db.pool.minimum-idle", Integer.class));
+        config.setConnectionTimeout(environment.getRequiredProperty("db.pool.connection-timeout-ms", Long.class));
+        config.setIdleTimeout(environment.getRequiredProperty("db.pool.idle-timeout-ms", Long.class));
+        config.setMaxLifetime(environment.getRequiredProperty("db.pool.max-lifetime-ms", Long.class));
+        config.setLeakDetectionThreshold(environment.getRequiredProperty("db.pool.leak-detection-threshold-ms", Long.class));
+
+        config.addDataSourceProperty("cachePrepStmts", "true");
+        config.addDataSourceProperty("useServerPrepStmts", "true");
+        config.addDataSourceProperty("prepStmtCacheSize", environment.getRequiredProperty("db.pool.prep-stmt-cache-size"));
+        config.addDataSourceProperty("prepStmtCacheSqlLimit", environment.getRequiredProperty("db.pool.prep-stmt-cache-sql-limit"));
+        return config;
+    }
+
+    // Migrated like a production database created by the old init.sql, test.sql then adds the ships
+    private DataSource embeddedDatabase() {
+        DataSource dataSource = new EmbeddedDatabaseBuilder()
+                .generateUniqueName(true)
+                .setType(H2)
+                .addScript("ship-v1.sql")
+                .build();
+        migrate(dataSource);
+
+        ResourceDatabasePopulator populator = new ResourceDatabasePopulator(new ClassPathResource("test.sql"));
+        populator.setSqlScriptEncoding("UTF-8");
+        populator.execute(dataSource);
+        return dataSource;
+    }
+
+    // Without replicas the primary is the data source, as before
+    private DataSource withReplicas(DataSource primary, List<DataSource> replicas) {
+        if (replicas.isEmpty())
+            return primary;
+
+        return new ReplicaRoutingDataSource(primary, replicas,
+                environment.getRequiredProperty("db.replica.max-lag-seconds", Long.class),
+                environment.getProperty("db.replica.lag-query"),
+                environment.getRequiredProperty("db.replica.lag-column"),
+                environment.getRequiredProperty("db.replica.check-interval-ms", Long.class))
+                .lazy();
+    }
+
+    // Databases created by the old init.sql already hold the V1 table without a history, they are baselined at V1
+    private void migrate(DataSource dataSource) {
+        Flyway.configure()
+                .dataSource(dataSource)
+                .baselineOnMigrate(true)
+                .baselineVersion("1")
+                .load()
+                .migrate();
+    }
+
     private Properties additionalProperties() {
         Properties properties = new Properties();
         properties.setProperty("hibernate.dialect", "org.hibernate.dialect.MySQL5Dialect");
+        properties.setProperty("hibernate.query.plan_cache_max_size", environment.getRequiredProperty("ship.query.plan-cache-size"));
+        properties.setProperty("hibernate.query.plan_parameter_metadata_max_size", environment.getRequiredProperty("ship.query.plan-cache-size"));
+        properties.setProperty("hibernate.query.in_clause_parameter_padding", "true");
+        properties.setProperty("hibernate.generate_statistics", environment.getRequiredProperty("ship.metrics.hibernate-statistics"));
+        if (environment.getRequiredProperty("ship.slow-query.enabled", Boolean.class))
+            properties.setProperty("hibernate.session_factory.statement_inspector", SqlCapture.class.getName());
         return properties;
     }
 }
\ No newline at end of file
@@ -1,7 +1,10 @@
 package com.space.config;
 
+import org.springframework.web.filter.DelegatingFilterProxy;
+import org.springframework.web.servlet.FrameworkServlet;
 import org.springframework.web.servlet.support.AbstractAnnotationConfigDispatcherServletInitializer;
 
+import javax.servlet.Filter;
 import javax.servlet.ServletContext;
 import javax.servlet.ServletException;
 
@@ -23,6 +26,19 @@ public class MyWebAppInit extends AbstractAnnotationConfigDispatcherServletIniti
         return new Class[]{WebConfig.class};
     }
 
+    // The filter bean lives in the dispatcher's context, which is published under this attribute
+    @Override
+    protected Filter[] getServletFilters() {
+        DelegatingFilterProxy compressionFilter = new DelegatingFilterProxy("compressionFilter");
+        compressionFilter.setContextAttribute(FrameworkServlet.SERVLET_CONTEXT_PREFIX + getServletName());
+        return new Filter[]{compressionFilter};
+    }
+
+    @Override
+    protected boolean isAsyncSupported() {
+        return true;
+    }
+
     @Override
     protected String[] getServletMappings() {
         return new String[]{"/"};
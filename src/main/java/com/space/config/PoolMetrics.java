@@ -0,0 +1,99 @@
+package com.space.config;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToIntFunction;
+
+public class PoolMetrics implements MetricsTrackerFactory, MeterBinder {
+
+    private final LongAdder acquireCount = new LongAdder();
+    private final LongAdder acquireNanos = new LongAdder();
+    private final AtomicLong maxAcquireNanos = new AtomicLong();
+    private final LongAdder timeoutCount = new LongAdder();
+    private final LongAdder usageMillis = new LongAdder();
+
+    private volatile PoolStats poolStats;
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        this.poolStats = poolStats;
+        return new IMetricsTracker() {
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                acquireCount.increment();
+                acquireNanos.add(elapsedAcquiredNanos);
+                maxAcquireNanos.accumulateAndGet(elapsedAcquiredNanos, Math::max);
+            }
+
+            @Override
+            public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+                usageMillis.add(elapsedBorrowedMillis);
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                timeoutCount.increment();
+            }
+        };
+    }
+
+    // Read when /metrics is scraped; the dev profile has no pool and reports zeros
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        gauge(registry, "active", PoolStats::getActiveConnections);
+        gauge(registry, "idle", PoolStats::getIdleConnections);
+        gauge(registry, "total", PoolStats::getTotalConnections);
+        gauge(registry, "pending", PoolStats::getPendingThreads);
+        gauge(registry, "max", PoolStats::getMaxConnections);
+
+        FunctionCounter.builder("db.pool.acquire", acquireCount, LongAdder::sum)
+                .register(registry);
+        FunctionCounter.builder("db.pool.timeouts", timeoutCount, LongAdder::sum)
+                .register(registry);
+        FunctionCounter.builder("db.pool.acquire.seconds", acquireNanos, adder -> adder.sum() / 1e9)
+                .register(registry);
+        FunctionCounter.builder("db.pool.usage.seconds", usageMillis, adder -> adder.sum() / 1e3)
+                .register(registry);
+    }
+
+    private void gauge(MeterRegistry registry, String state, ToIntFunction<PoolStats> value) {
+        Gauge.builder("db.pool.connections", this, metrics -> metrics.poolStats == null ? 0 : value.applyAsInt(metrics.poolStats))
+                .tag("state", state)
+                .register(registry);
+    }
+
+    public boolean isPooled() {
+        return poolStats != null;
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("pooled", isPooled());
+        if (!isPooled())
+            return result;
+
+        long count = acquireCount.sum();
+        result.put("active", poolStats.getActiveConnections());
+        result.put("idle", poolStats.getIdleConnections());
+        result.put("total", poolStats.getTotalConnections());
+        result.put("pending", poolStats.getPendingThreads());
+        result.put("maxConnections", poolStats.getMaxConnections());
+        result.put("acquireCount", count);
+        result.put("acquireTimeoutCount", timeoutCount.sum());
+        result.put("avgAcquireMicros", count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(acquireNanos.sum() / count));
+        result.put("maxAcquireMicros", TimeUnit.NANOSECONDS.toMicros(maxAcquireNanos.get()));
+        result.put("avgUsageMillis", count == 0 ? 0 : usageMillis.sum() / count);
+        return result;
+    }
+}
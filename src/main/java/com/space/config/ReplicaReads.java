@@ -0,0 +1,23 @@
+package com.space.config;
+
+import java.util.function.Supplier;
+
+// Whether the reads of the current request may be answered by a replica. Those results are neither cached nor
+// tagged with the fleet ETag: a replica result could predate the tag, and would outlive replica lag in a cache
+public class ReplicaReads {
+
+    private final boolean enabled;
+
+    public ReplicaReads(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isActive() {
+        return enabled && !ReplicaRoutingDataSource.isPrimaryOnly();
+    }
+
+    // Runs a read that is cached or tagged otherwise on the primary, unless it may go to a replica
+    public <T> T read(Supplier<T> read) {
+        return isActive() ? read.get() : ReplicaRoutingDataSource.onPrimary(read);
+    }
+}
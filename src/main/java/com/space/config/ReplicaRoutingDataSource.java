@@ -0,0 +1,218 @@
+package com.space.config;
+
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+// Read-only transactions go round-robin to the replicas that passed their last health check, everything else to the
+// primary. A replica is down while it cannot be reached or lags more than maxLagSeconds; a failed connect takes it
+// down at once and the transaction falls back to the primary. Expose it through lazy() only: the key is decided
+// when the first statement needs a connection, after the transaction has been marked read-only
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+
+    private static final String PRIMARY = "primary";
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    // Set for a request whose client has just written, or for a read that must not see replica lag
+    private static final ThreadLocal<Boolean> PRIMARY_ONLY = new ThreadLocal<>();
+
+    private final DataSource primary;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final Map<Object, DataSource> targets = new HashMap<>();
+    private final long maxLagSeconds;
+    private final String lagQuery;
+    private final String lagColumn;
+    private final ScheduledExecutorService checker;
+    private final AtomicInteger next = new AtomicInteger();
+
+    private volatile List<Replica> healthy = Collections.emptyList();
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, long maxLagSeconds,
+                                    String lagQuery, String lagColumn, long checkIntervalMillis) {
+        this.primary = primary;
+        this.maxLagSeconds = maxLagSeconds;
+        this.lagQuery = lagQuery == null || lagQuery.trim().isEmpty() ? null : lagQuery;
+        this.lagColumn = lagColumn;
+
+        targets.put(PRIMARY, primary);
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = new Replica("replica-" + i, replicas.get(i));
+            this.replicas.add(replica);
+            targets.put(replica.key, replica.dataSource);
+        }
+        setTargetDataSources(new HashMap<>(targets));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+
+        checkReplicas();
+        checker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-health");
+            thread.setDaemon(true);
+            return thread;
+        });
+        checker.scheduleWithFixedDelay(this::checkReplicas, checkIntervalMillis, checkIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public static void setPrimaryOnly(boolean primaryOnly) {
+        if (primaryOnly)
+            PRIMARY_ONLY.set(Boolean.TRUE);
+        else
+            PRIMARY_ONLY.remove();
+    }
+
+    public static boolean isPrimaryOnly() {
+        return PRIMARY_ONLY.get() != null;
+    }
+
+    public static <T> T onPrimary(Supplier<T> supplier) {
+        Boolean previous = PRIMARY_ONLY.get();
+        PRIMARY_ONLY.set(Boolean.TRUE);
+        try {
+            return supplier.get();
+        } finally {
+            if (previous == null)
+                PRIMARY_ONLY.remove();
+        }
+    }
+
+    // Task decorator for executors that run a request's reads on another thread
+    public static Runnable propagate(Runnable task) {
+        if (PRIMARY_ONLY.get() == null)
+            return task;
+        return () -> {
+            PRIMARY_ONLY.set(Boolean.TRUE);
+            try {
+                task.run();
+            } finally {
+                PRIMARY_ONLY.remove();
+            }
+        };
+    }
+
+    public DataSource lazy() {
+        return new LazyRoutingDataSource(this);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly() || PRIMARY_ONLY.get() != null)
+            return PRIMARY;
+
+        List<Replica> candidates = healthy;
+        if (candidates.isEmpty())
+            return PRIMARY;
+        return candidates.get(Math.floorMod(next.getAndIncrement(), candidates.size())).key;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Object key = determineCurrentLookupKey();
+        if (PRIMARY.equals(key))
+            return primary.getConnection();
+
+        try {
+            return targets.get(key).getConnection();
+        } catch (SQLException e) {
+            for (Replica replica : replicas)
+                if (replica.key.equals(key))
+                    markDown(replica);
+            return primary.getConnection();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        checker.shutdownNow();
+        for (DataSource target : targets.values())
+            if (target instanceof Closeable)
+                ((Closeable) target).close();
+            else if (target instanceof EmbeddedDatabase)
+                ((EmbeddedDatabase) target).shutdown();
+    }
+
+    private void checkReplicas() {
+        for (Replica replica : replicas)
+            replica.up = isUp(replica);
+        publishHealthy();
+    }
+
+    private boolean isUp(Replica replica) {
+        try (Connection connection = replica.dataSource.getConnection()) {
+            if (!connection.isValid(VALIDATION_TIMEOUT_SECONDS))
+                return false;
+            if (lagQuery == null)
+                return true;
+
+            try (Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery(lagQuery)) {
+                // No row or a NULL lag: the server is not replicating
+                if (!resultSet.next())
+                    return false;
+                long lag = resultSet.getLong(lagColumn);
+                return !resultSet.wasNull() && lag <= maxLagSeconds;
+            }
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void markDown(Replica replica) {
+        replica.up = false;
+        publishHealthy();
+    }
+
+    private synchronized void publishHealthy() {
+        List<Replica> up = new ArrayList<>();
+        for (Replica replica : replicas)
+            if (replica.up)
+                up.add(replica);
+        healthy = up;
+    }
+
+    private static class Replica {
+
+        private final String key;
+        private final DataSource dataSource;
+        private volatile boolean up;
+
+        Replica(String key, DataSource dataSource) {
+            this.key = key;
+            this.dataSource = dataSource;
+        }
+    }
+
+    // Closed with the application context, which only sees the proxy
+    private static class LazyRoutingDataSource extends LazyConnectionDataSourceProxy implements Closeable {
+
+        private final ReplicaRoutingDataSource routing;
+
+        LazyRoutingDataSource(ReplicaRoutingDataSource routing) {
+            super(routing);
+            this.routing = routing;
+        }
+
+        @Override
+        public void close() throws IOException {
+            routing.close();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.space.config;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.space.model.ShipType;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+
+// Compact encodings for the Smile/CBOR representations: production dates as epoch days in the JVM zone (the
+// column is a DATE read at local midnight), ship types as ordinals
+public class ShipBinaryModule extends SimpleModule {
+
+    private static final ShipType[] SHIP_TYPES = ShipType.values();
+
+    public ShipBinaryModule() {
+        super("ShipBinaryModule");
+
+        addSerializer(Date.class, new JsonSerializer<Date>() {
+            @Override
+            public void serialize(Date value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+                generator.writeNumber(Instant.ofEpochMilli(value.getTime()).atZone(ZoneId.systemDefault()).toLocalDate().toEpochDay());
+            }
+        });
+        addDeserializer(Date.class, new JsonDeserializer<Date>() {
+            @Override
+            public Date deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+                return Date.from(LocalDate.ofEpochDay(parser.getLongValue()).atStartOfDay(ZoneId.systemDefault()).toInstant());
+            }
+        });
+
+        addSerializer(ShipType.class, new JsonSerializer<ShipType>() {
+            @Override
+            public void serialize(ShipType value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+                generator.writeNumber(value.ordinal());
+            }
+        });
+        addDeserializer(ShipType.class, new JsonDeserializer<ShipType>() {
+            @Override
+            public ShipType deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+                int ordinal = parser.getIntValue();
+                if (ordinal < 0 || ordinal >= SHIP_TYPES.length)
+                    return (ShipType) context.handleWeirdNumberValue(ShipType.class, ordinal, "not a ShipType ordinal");
+                return SHIP_TYPES[ordinal];
+            }
+        });
+    }
+}
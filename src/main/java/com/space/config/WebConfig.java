@@ -2,26 +2,66 @@ package com.space.config;
 
 import com.fasterxml.jackson.annotation.JsonAutoDetect;
 import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.space.controller.AsyncReadTimeoutInterceptor;
+import com.space.controller.CompressionFilter;
+import com.space.controller.ReadYourWritesInterceptor;
+import com.space.controller.RequestMetricsInterceptor;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.http.MediaType;
 import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.StringHttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.servlet.ViewResolver;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
 import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.ViewControllerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 import org.springframework.web.servlet.view.InternalResourceViewResolver;
 import org.springframework.web.servlet.view.JstlView;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ThreadFactory;
 
 @Configuration
 @EnableWebMvc
 @ComponentScan("com.space.controller")
 public class WebConfig implements WebMvcConfigurer {
 
+    private Environment environment;
+    private MeterRegistry meterRegistry;
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    public void setEnvironment(Environment environment) {
+        this.environment = environment;
+    }
+
+    @Autowired
+    public void setMeterRegistry(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Autowired
+    public void setObjectMapper(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
 
     @Bean
     public ViewResolver internalResourceViewResolver() {
@@ -37,16 +77,88 @@ public class WebConfig implements WebMvcConfigurer {
         registry.addViewController("/").setViewName("index");
     }
 
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new RequestMetricsInterceptor(meterRegistry));
+        registry.addInterceptor(new ReadYourWritesInterceptor(
+                environment.getRequiredProperty("db.replica.read-your-writes-ms", Long.class)));
+    }
+
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
         registry.addResourceHandler("/resources/**").addResourceLocations("/resources/");
     }
 
+    // Not beans, the JSON mapper of AppConfig stays the only ObjectMapper to inject
+    public static ObjectMapper binaryObjectMapper(JsonFactory factory) {
+        ObjectMapper objectMapper = new ObjectMapper(factory);
+        objectMapper.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.NONE);
+        objectMapper.setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY);
+        objectMapper.registerModule(new ShipBinaryModule());
+        return objectMapper;
+    }
+
+    @Bean
+    public CompressionFilter compressionFilter() {
+        return new CompressionFilter(environment.getRequiredProperty("ship.compression.min-size", Integer.class),
+                Arrays.asList(environment.getRequiredProperty("ship.compression.mime-types", String[].class)));
+    }
+
+    // Bounded pool and queue for the asynchronous read endpoints; on a JDK with virtual threads the workers are
+    // virtual, the pool size then only caps how many queries run at once
+    @Bean
+    public ThreadPoolTaskExecutor shipQueryExecutor() {
+        return boundedExecutor("ship-query-", environment.getRequiredProperty("ship.async.pool-size", Integer.class),
+                environment.getRequiredProperty("ship.async.queue-capacity", Integer.class));
+    }
+
+    // GET /rest/ships/{id} apart from the list and count queries, so that slow lists cannot starve the lookups
+    @Bean
+    public ThreadPoolTaskExecutor shipLookupExecutor() {
+        return boundedExecutor("ship-lookup-", environment.getRequiredProperty("ship.async.lookup-pool-size", Integer.class),
+                environment.getRequiredProperty("ship.async.lookup-queue-capacity", Integer.class));
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setDefaultTimeout(environment.getRequiredProperty("ship.async.timeout-ms", Long.class));
+        configurer.setTaskExecutor(shipQueryExecutor());
+        configurer.registerDeferredResultInterceptors(new AsyncReadTimeoutInterceptor());
+    }
+
     @Override
     public void configureMessageConverters(List<HttpMessageConverter<?>> converters) {
-        MappingJackson2HttpMessageConverter converter = new MappingJackson2HttpMessageConverter();
-        converter.getObjectMapper().setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.NONE);
-        converter.getObjectMapper().setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY);
-        converters.add(converter);
+        converters.add(new MappingJackson2HttpMessageConverter(objectMapper));
+        converters.add(new MappingJackson2SmileHttpMessageConverter(binaryObjectMapper(new SmileFactory())));
+        converters.add(new MappingJackson2CborHttpMessageConverter(binaryObjectMapper(new CBORFactory())));
+        // Only for the text framing of server-sent events, strings in JSON responses stay with the JSON converter
+        StringHttpMessageConverter eventFraming = new StringHttpMessageConverter(StandardCharsets.UTF_8);
+        eventFraming.setSupportedMediaTypes(Collections.singletonList(MediaType.TEXT_PLAIN));
+        eventFraming.setWriteAcceptCharset(false);
+        converters.add(eventFraming);
+    }
+
+    private ThreadPoolTaskExecutor boundedExecutor(String threadNamePrefix, int poolSize, int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix(threadNamePrefix);
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setTaskDecorator(ReplicaRoutingDataSource::propagate);
+
+        ThreadFactory virtualThreads = virtualThreadFactory();
+        if (environment.getRequiredProperty("ship.async.virtual-threads", Boolean.class) && virtualThreads != null)
+            executor.setThreadFactory(virtualThreads);
+        return executor;
+    }
+
+    // Thread.ofVirtual() is looked up reflectively, the build targets Java 8
+    private static ThreadFactory virtualThreadFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return null;
+        }
     }
-}
\ No newline at end of file
+}
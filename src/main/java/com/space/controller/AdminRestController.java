@@ -0,0 +1,119 @@
+package com.space.controller;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.space.cache.ShipCache;
+import com.space.cache.ShipQueryCache;
+import com.space.config.PoolMetrics;
+import com.space.metrics.SlowQueryLog;
+import com.space.model.RatingJobStatus;
+import com.space.model.SlowQuery;
+import com.space.service.RatingRecomputeJob;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/rest/admin")
+public class AdminRestController {
+
+    private ShipCache shipCache;
+    private ShipQueryCache queryCache;
+    private PoolMetrics poolMetrics;
+    private SlowQueryLog slowQueryLog;
+    private RatingRecomputeJob ratingJob;
+
+    @Autowired
+    public void setShipCache(ShipCache shipCache) {
+        this.shipCache = shipCache;
+    }
+
+    @Autowired
+    public void setQueryCache(ShipQueryCache queryCache) {
+        this.queryCache = queryCache;
+    }
+
+    @Autowired
+    public void setPoolMetrics(PoolMetrics poolMetrics) {
+        this.poolMetrics = poolMetrics;
+    }
+
+    @Autowired
+    public void setRatingJob(RatingRecomputeJob ratingJob) {
+        this.ratingJob = ratingJob;
+    }
+
+    @Autowired
+    public void setSlowQueryLog(SlowQueryLog slowQueryLog) {
+        this.slowQueryLog = slowQueryLog;
+    }
+
+    @GetMapping(value = "/cache", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
+        return new ResponseEntity<>(cacheStats(shipCache.isEnabled(), shipCache.size(), shipCache.stats()), HttpStatus.OK);
+    }
+
+    @GetMapping(value = "/query-cache", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    public ResponseEntity<Map<String, Object>> getQueryCacheStats() {
+        return new ResponseEntity<>(cacheStats(queryCache.isEnabled(), queryCache.size(), queryCache.stats()), HttpStatus.OK);
+    }
+
+    @GetMapping(value = "/pool", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    public ResponseEntity<Map<String, Object>> getPoolStats() {
+        return new ResponseEntity<>(poolMetrics.snapshot(), HttpStatus.OK);
+    }
+
+    @GetMapping(value = "/slow-queries", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    public ResponseEntity<List<SlowQuery>> getSlowQueries() {
+        return new ResponseEntity<>(slowQueryLog.snapshot(), HttpStatus.OK);
+    }
+
+    @DeleteMapping("/slow-queries")
+    public ResponseEntity<Void> clearSlowQueries() {
+        slowQueryLog.clear();
+        return new ResponseEntity<>(HttpStatus.OK);
+    }
+
+    @GetMapping(value = "/rating-job", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    public ResponseEntity<RatingJobStatus> getRatingJob() {
+        return new ResponseEntity<>(ratingJob.status(), HttpStatus.OK);
+    }
+
+    @PostMapping(value = "/rating-job", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    public ResponseEntity<RatingJobStatus> startRatingJob(@RequestParam(name = "currentYear") Integer currentYear) {
+        return new ResponseEntity<>(ratingJob.start(currentYear), HttpStatus.ACCEPTED);
+    }
+
+    @PostMapping(value = "/rating-job/pause", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    public ResponseEntity<RatingJobStatus> pauseRatingJob() {
+        return new ResponseEntity<>(ratingJob.pause(), HttpStatus.OK);
+    }
+
+    @PostMapping(value = "/rating-job/resume", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    public ResponseEntity<RatingJobStatus> resumeRatingJob() {
+        return new ResponseEntity<>(ratingJob.resume(), HttpStatus.ACCEPTED);
+    }
+
+    private static Map<String, Object> cacheStats(boolean enabled, long size, CacheStats stats) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", enabled);
+        result.put("size", size);
+        result.put("hitCount", stats.hitCount());
+        result.put("missCount", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("evictionCount", stats.evictionCount());
+        result.put("loadSuccessCount", stats.loadSuccessCount());
+        result.put("averageLoadPenaltyNanos", stats.averageLoadPenalty());
+        return result;
+    }
+}
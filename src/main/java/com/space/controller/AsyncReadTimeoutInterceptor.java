@@ -0,0 +1,23 @@
+package com.space.controller;
+
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.context.request.async.DeferredResultProcessingInterceptor;
+
+import java.util.concurrent.Future;
+
+// A read that timed out has already had its 503. Its future is cancelled once the request completes, so a task still
+// in the queue skips the query instead of taking a worker and a connection. Cancelling on the timeout itself would
+// complete the request with the cancellation rather than the 503
+public class AsyncReadTimeoutInterceptor implements DeferredResultProcessingInterceptor {
+
+    static final String FUTURE_ATTRIBUTE = AsyncReadTimeoutInterceptor.class.getName() + ".future";
+
+    @Override
+    public <T> void afterCompletion(NativeWebRequest request, DeferredResult<T> deferredResult) {
+        Object future = request.getAttribute(FUTURE_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (future instanceof Future)
+            ((Future<?>) future).cancel(false);
+    }
+}
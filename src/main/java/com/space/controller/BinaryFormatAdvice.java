@@ -0,0 +1,58 @@
+package com.space.controller;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+// Ship reads negotiate JSON, Smile or CBOR through Accept. Each encoding is its own representation, so a strong
+// ETag gets the format appended the way the compression filter appends -gzip
+@ControllerAdvice(assignableTypes = ShipRestController.class)
+public class BinaryFormatAdvice implements ResponseBodyAdvice<Object> {
+
+    static final String SMILE_VALUE = "application/x-jackson-smile";
+    static final String CBOR_VALUE = "application/cbor";
+
+    static final String SMILE_SUFFIX = "-smile";
+    static final String CBOR_SUFFIX = "-cbor";
+
+    private static final MediaType SMILE = MediaType.parseMediaType(SMILE_VALUE);
+    private static final MediaType CBOR = MediaType.parseMediaType(CBOR_VALUE);
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        HttpHeaders headers = response.getHeaders();
+        String etag = headers.getETag();
+        if (etag == null)
+            return body;
+
+        headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        String suffix = SMILE.includes(selectedContentType) ? SMILE_SUFFIX
+                : CBOR.includes(selectedContentType) ? CBOR_SUFFIX : null;
+        if (suffix == null || !etag.endsWith("\""))
+            return body;
+
+        String tagged = etag.substring(0, etag.length() - 1) + suffix + "\"";
+        if (response instanceof ServletServerHttpResponse) {
+            // The not-modified check has already set the plain tag on the servlet response, replace it there
+            // instead of adding a second value when these headers are copied over
+            ((ServletServerHttpResponse) response).getServletResponse().setHeader(HttpHeaders.ETAG, tagged);
+            headers.remove(HttpHeaders.ETAG);
+        } else {
+            headers.setETag(tagged);
+        }
+        return body;
+    }
+}
@@ -0,0 +1,230 @@
+package com.space.controller;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.WebUtils;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+// Gzips responses of compressible types once they reach minSize bytes. The body is held back only until then, so
+// the streamed export is compressed on the fly; asynchronous requests are finished on their async dispatch
+public class CompressionFilter extends OncePerRequestFilter {
+
+    // Appended to a strong ETag of a gzipped body, the compressed bytes are a different representation
+    static final String ETAG_SUFFIX = "-gzip";
+
+    private final int minSize;
+    private final Collection<String> mimeTypes;
+
+    public CompressionFilter(int minSize, Collection<String> mimeTypes) {
+        this.minSize = minSize;
+        this.mimeTypes = mimeTypes;
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        CompressingResponse compressing = WebUtils.getNativeResponse(response, CompressingResponse.class);
+        if (compressing == null) {
+            if (!isAsyncDispatch(request))
+                response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            if (!acceptsGzip(request)) {
+                filterChain.doFilter(request, response);
+                return;
+            }
+            compressing = new CompressingResponse(response);
+        }
+
+        filterChain.doFilter(request, compressing);
+        if (!request.isAsyncStarted())
+            compressing.finish();
+    }
+
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        return acceptEncoding != null && acceptEncoding.toLowerCase(Locale.ROOT).contains("gzip");
+    }
+
+    private boolean isCompressible(String contentType) {
+        if (contentType == null)
+            return false;
+        String mimeType = contentType.split(";")[0].trim().toLowerCase(Locale.ROOT);
+        return mimeTypes.contains(mimeType);
+    }
+
+    private class CompressingResponse extends HttpServletResponseWrapper {
+
+        private ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private OutputStream target;
+        private ServletOutputStream outputStream;
+        private PrintWriter writer;
+        private long contentLength = -1;
+
+        CompressingResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (writer != null)
+                throw new IllegalStateException("getWriter() has already been called");
+            if (outputStream == null)
+                outputStream = new CompressingOutputStream();
+            return outputStream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (outputStream != null && writer == null)
+                throw new IllegalStateException("getOutputStream() has already been called");
+            if (writer == null) {
+                outputStream = new CompressingOutputStream();
+                writer = new PrintWriter(new OutputStreamWriter(outputStream, getCharacterEncoding()));
+            }
+            return writer;
+        }
+
+        @Override
+        public void setContentLength(int len) {
+            contentLength = len;
+        }
+
+        @Override
+        public void setContentLengthLong(long len) {
+            contentLength = len;
+        }
+
+        @Override
+        public void setHeader(String name, String value) {
+            if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name))
+                contentLength = Long.parseLong(value);
+            else
+                super.setHeader(name, value);
+        }
+
+        @Override
+        public void addHeader(String name, String value) {
+            if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name))
+                contentLength = Long.parseLong(value);
+            else
+                super.addHeader(name, value);
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if (writer != null)
+                writer.flush();
+            // Nothing to wait for in a body that is never compressed, server-sent events go out as they are flushed
+            if (target == null && getContentType() != null && !isCompressible(getContentType()))
+                startTarget(false);
+            if (target != null) {
+                target.flush();
+                super.flushBuffer();
+            }
+        }
+
+        @Override
+        public void resetBuffer() {
+            super.resetBuffer();
+            if (buffer != null)
+                buffer.reset();
+        }
+
+        @Override
+        public void reset() {
+            super.reset();
+            if (buffer != null)
+                buffer.reset();
+            contentLength = -1;
+        }
+
+        void write(byte[] bytes, int offset, int length) throws IOException {
+            if (target != null) {
+                target.write(bytes, offset, length);
+                return;
+            }
+            buffer.write(bytes, offset, length);
+            if (buffer.size() >= minSize)
+                startTarget(isCompressible(getContentType()));
+        }
+
+        void finish() throws IOException {
+            if (writer != null)
+                writer.flush();
+            if (target == null) {
+                // Still below minSize, so the buffer holds the whole body
+                if (buffer.size() > 0)
+                    contentLength = buffer.size();
+                startTarget(false);
+            }
+            if (target instanceof GZIPOutputStream)
+                ((GZIPOutputStream) target).finish();
+            target.flush();
+        }
+
+        private void startTarget(boolean gzip) throws IOException {
+            OutputStream raw = getResponse().getOutputStream();
+            if (gzip) {
+                super.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+                String etag = getHeader(HttpHeaders.ETAG);
+                if (etag != null && etag.endsWith("\""))
+                    super.setHeader(HttpHeaders.ETAG, etag.substring(0, etag.length() - 1) + ETAG_SUFFIX + "\"");
+                target = new GZIPOutputStream(raw, true);
+            } else {
+                if (contentLength >= 0)
+                    super.setContentLengthLong(contentLength);
+                target = raw;
+            }
+            buffer.writeTo(target);
+            buffer = null;
+        }
+
+        private class CompressingOutputStream extends ServletOutputStream {
+
+            @Override
+            public void write(int b) throws IOException {
+                CompressingResponse.this.write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                CompressingResponse.this.write(b, off, len);
+            }
+
+            @Override
+            public void flush() throws IOException {
+                if (target != null)
+                    target.flush();
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+                throw new UnsupportedOperationException();
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.space.controller;
+
+import com.space.exceptions.PreconditionFailedException;
+import com.space.model.Ship;
+
+// Strong ETags: "<id>-<version>" for a ship, the fleet modification counter for lists, counts and stats
+final class ETags {
+
+    private ETags() {
+    }
+
+    static String of(Ship ship) {
+        return "\"" + ship.getId() + "-" + ship.getVersion() + "\"";
+    }
+
+    private static final String[] REPRESENTATION_SUFFIXES = {
+            CompressionFilter.ETAG_SUFFIX, BinaryFormatAdvice.SMILE_SUFFIX, BinaryFormatAdvice.CBOR_SUFFIX
+    };
+
+    // If-None-Match uses the weak comparison, and the gzip or binary variant of a tag names the same resource state
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null)
+            return false;
+
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.equals("*"))
+                return true;
+            if (candidate.startsWith("W/"))
+                candidate = candidate.substring(2);
+            if (stripRepresentation(candidate).equals(etag))
+                return true;
+        }
+        return false;
+    }
+
+    // The version an If-Match header asks the edit to apply to; null when any version will do
+    static Long versionOf(String ifMatch, long id) {
+        if (ifMatch == null || ifMatch.trim().equals("*"))
+            return null;
+
+        String etag = stripRepresentation(ifMatch.trim());
+        String prefix = "\"" + id + "-";
+        if (!etag.startsWith(prefix) || !etag.endsWith("\""))
+            throw new PreconditionFailedException("If-Match does not name this ship");
+        try {
+            return Long.parseLong(etag.substring(prefix.length(), etag.length() - 1));
+        } catch (NumberFormatException e) {
+            throw new PreconditionFailedException("If-Match does not name this ship", e);
+        }
+    }
+
+    // The gzip suffix is appended last, so it comes off first
+    private static String stripRepresentation(String etag) {
+        for (int i = 0; i < REPRESENTATION_SUFFIXES.length; i++) {
+            String suffix = REPRESENTATION_SUFFIXES[i] + "\"";
+            if (etag.endsWith(suffix))
+                etag = etag.substring(0, etag.length() - suffix.length()) + "\"";
+        }
+        return etag;
+    }
+}
@@ -0,0 +1,31 @@
+package com.space.controller;
+
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import io.prometheus.client.exporter.common.TextFormat;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.Writer;
+
+@RestController
+public class MetricsController {
+
+    private PrometheusMeterRegistry meterRegistry;
+
+    @Autowired
+    public void setMeterRegistry(PrometheusMeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    // Written straight to the response, the message converters only speak JSON, Smile and CBOR
+    @GetMapping("/metrics")
+    public void getMetrics(HttpServletResponse response) throws IOException {
+        response.setContentType(TextFormat.CONTENT_TYPE_004);
+        Writer writer = response.getWriter();
+        meterRegistry.scrape(writer);
+        writer.flush();
+    }
+}
@@ -0,0 +1,63 @@
+package com.space.controller;
+
+import com.space.config.ReplicaRoutingDataSource;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+import org.springframework.web.util.WebUtils;
+
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+// A client that has just written reads from the primary for stickyMillis, long enough for the replicas to catch up.
+// The deadline travels in a cookie, so it holds whichever instance serves the next request
+public class ReadYourWritesInterceptor extends HandlerInterceptorAdapter {
+
+    static final String COOKIE = "cosmoport-primary-until";
+
+    private final long stickyMillis;
+
+    public ReadYourWritesInterceptor(long stickyMillis) {
+        this.stickyMillis = stickyMillis;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!isRead(request)) {
+            long until = System.currentTimeMillis() + stickyMillis;
+            Cookie cookie = new Cookie(COOKIE, Long.toString(until));
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            cookie.setMaxAge((int) Math.max(stickyMillis / 1000, 1));
+            response.addCookie(cookie);
+            return true;
+        }
+
+        Cookie cookie = WebUtils.getCookie(request, COOKIE);
+        if (cookie != null && parse(cookie.getValue()) > System.currentTimeMillis())
+            ReplicaRoutingDataSource.setPrimaryOnly(true);
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        ReplicaRoutingDataSource.setPrimaryOnly(false);
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        ReplicaRoutingDataSource.setPrimaryOnly(false);
+    }
+
+    private static boolean isRead(HttpServletRequest request) {
+        String method = request.getMethod();
+        return "GET".equals(method) || "HEAD".equals(method) || "OPTIONS".equals(method);
+    }
+
+    private static long parse(String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.space.controller;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+// Latency per endpoint and status class, from the first dispatch to the one that completes the request, so an
+// asynchronous read includes its time on the query executor. Timers are looked up by handler method and status
+// class after the first request and recorded without building tags. A synchronous request starts and completes on
+// one thread and keeps its start in that thread's holder; only a request going asynchronous boxes it into an attribute
+public class RequestMetricsInterceptor extends HandlerInterceptorAdapter {
+
+    static final String REQUEST_TIMER = "http.server.requests";
+
+    private static final String START_ATTRIBUTE = RequestMetricsInterceptor.class.getName() + ".start";
+    private static final String[] OUTCOMES = {"INFORMATIONAL", "SUCCESS", "REDIRECTION", "CLIENT_ERROR", "SERVER_ERROR"};
+
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentMap<Method, Timer[]> timers = new ConcurrentHashMap<>();
+    private final ThreadLocal<Start> starts = ThreadLocal.withInitial(Start::new);
+
+    public RequestMetricsInterceptor(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        Start start = starts.get();
+        if (request.getAttribute(START_ATTRIBUTE) == null && start.request != request) {
+            start.request = request;
+            start.nanos = System.nanoTime();
+        }
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        Start start = starts.get();
+        if (start.request == request) {
+            request.setAttribute(START_ATTRIBUTE, start.nanos);
+            start.request = null;
+        }
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        long startNanos;
+        Object boxed = request.getAttribute(START_ATTRIBUTE);
+        if (boxed != null) {
+            startNanos = (Long) boxed;
+        } else {
+            Start start = starts.get();
+            if (start.request != request)
+                return;
+            startNanos = start.nanos;
+            start.request = null;
+        }
+        if (!(handler instanceof HandlerMethod))
+            return;
+
+        int outcome = ex != null ? OUTCOMES.length - 1 : Math.min(Math.max(response.getStatus() / 100 - 1, 0), OUTCOMES.length - 1);
+        timer(request, ((HandlerMethod) handler).getMethod(), outcome)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer timer(HttpServletRequest request, Method method, int outcome) {
+        Timer[] byOutcome = timers.get(method);
+        if (byOutcome == null)
+            byOutcome = timers.computeIfAbsent(method, key -> new Timer[OUTCOMES.length]);
+
+        Timer timer = byOutcome[outcome];
+        if (timer == null) {
+            // Racing threads get the same meter back from the registry
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            timer = Timer.builder(REQUEST_TIMER)
+                    .tag("method", request.getMethod())
+                    .tag("uri", pattern == null ? "UNKNOWN" : pattern.toString())
+                    .tag("outcome", OUTCOMES[outcome])
+                    .register(meterRegistry);
+            byOutcome[outcome] = timer;
+        }
+        return timer;
+    }
+
+    private static class Start {
+
+        private HttpServletRequest request;
+        private long nanos;
+    }
+}
@@ -0,0 +1,161 @@
+package com.space.controller;
+
+import com.space.exceptions.ChangesExpiredException;
+import com.space.model.ShipChange;
+import com.space.service.ShipChangeFeed;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Committed ship changes for clients that would otherwise poll the whole list: a server-sent event stream that
+// resumes after Last-Event-ID, or a long poll returning the changes after ?since= as soon as there are any. A
+// client that fell further behind than the feed keeps gets 410 and has to reload the list
+@RestController
+@RequestMapping("/rest/ships/changes")
+public class ShipChangeController implements InitializingBean, DisposableBean {
+
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+    private final Set<Poll> polls = ConcurrentHashMap.newKeySet();
+    private final Runnable watcher = this::dispatch;
+
+    private ShipChangeFeed changeFeed;
+
+    @Value("${ship.changes.batch-size}")
+    private int batchSize;
+
+    @Value("${ship.changes.poll-timeout-ms}")
+    private long pollTimeout;
+
+    @Value("${ship.changes.stream-timeout-ms}")
+    private long streamTimeout;
+
+    @Autowired
+    public void setChangeFeed(ShipChangeFeed changeFeed) {
+        this.changeFeed = changeFeed;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        changeFeed.addWatcher(watcher);
+    }
+
+    @Override
+    public void destroy() {
+        changeFeed.removeWatcher(watcher);
+        subscriptions.forEach(subscription -> subscription.emitter.complete());
+    }
+
+    // Without Last-Event-ID or since the stream starts with the next change
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges(@RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId,
+                                    @RequestParam(value = "since", required = false) Long since) {
+        long after = lastEventId != null ? lastEventId : since != null ? since : changeFeed.lastSequence();
+        changeFeed.since(after, 0);
+
+        SseEmitter emitter = new SseEmitter(streamTimeout);
+        Subscription subscription = new Subscription(emitter, after);
+        emitter.onCompletion(() -> subscriptions.remove(subscription));
+        emitter.onTimeout(() -> subscriptions.remove(subscription));
+        emitter.onError(e -> subscriptions.remove(subscription));
+        subscriptions.add(subscription);
+        changeFeed.wakeUp();
+        return emitter;
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    public DeferredResult<ResponseEntity<List<ShipChange>>> pollChanges(
+            @RequestParam(value = "since", required = false) Long since) {
+        long after = since != null ? since : changeFeed.lastSequence();
+        DeferredResult<ResponseEntity<List<ShipChange>>> result = new DeferredResult<>(pollTimeout,
+                () -> ResponseEntity.ok(Collections.<ShipChange>emptyList()));
+
+        List<ShipChange> changes = changeFeed.since(after, batchSize);
+        if (!changes.isEmpty()) {
+            result.setResult(ResponseEntity.ok(changes));
+            return result;
+        }
+
+        Poll poll = new Poll(result, after);
+        result.onCompletion(() -> polls.remove(poll));
+        polls.add(poll);
+        // A change committed since the check above has already woken the watcher
+        changeFeed.wakeUp();
+        return result;
+    }
+
+    // On the feed's thread, so one slow client delays the others but never a writer
+    private void dispatch() {
+        for (Subscription subscription : subscriptions)
+            subscription.send();
+
+        for (Poll poll : polls) {
+            try {
+                List<ShipChange> changes = changeFeed.since(poll.after, batchSize);
+                if (!changes.isEmpty())
+                    poll.result.setResult(ResponseEntity.ok(changes));
+            } catch (ChangesExpiredException e) {
+                poll.result.setErrorResult(e);
+            }
+        }
+    }
+
+    private class Subscription {
+
+        private final SseEmitter emitter;
+        private long after;
+
+        Subscription(SseEmitter emitter, long after) {
+            this.emitter = emitter;
+            this.after = after;
+        }
+
+        void send() {
+            try {
+                List<ShipChange> changes;
+                while (!(changes = changeFeed.since(after, batchSize)).isEmpty()) {
+                    for (ShipChange change : changes) {
+                        emitter.send(SseEmitter.event()
+                                .id(Long.toString(change.getSequence()))
+                                .name(change.getType().name())
+                                .data(change, MediaType.APPLICATION_JSON_UTF8));
+                        after = change.getSequence();
+                    }
+                }
+            } catch (ChangesExpiredException e) {
+                // The reconnect with Last-Event-ID is answered with 410
+                subscriptions.remove(this);
+                emitter.complete();
+            } catch (IOException | IllegalStateException e) {
+                subscriptions.remove(this);
+                emitter.completeWithError(e);
+            }
+        }
+    }
+
+    private static class Poll {
+
+        private final DeferredResult<ResponseEntity<List<ShipChange>>> result;
+        private final long after;
+
+        Poll(DeferredResult<ResponseEntity<List<ShipChange>>> result, long after) {
+            this.result = result;
+            this.after = after;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.space.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.space.exceptions.BadRequestException;
+import com.space.model.Ship;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+abstract class ShipExportWriter {
+
+    static final String NDJSON = "ndjson";
+    static final String CSV = "csv";
+
+    static String contentType(String format) {
+        switch (format) {
+            case NDJSON:
+                return "application/x-ndjson;charset=UTF-8";
+            case CSV:
+                return "text/csv;charset=UTF-8";
+            default:
+                throw new BadRequestException("Unknown export format");
+        }
+    }
+
+    static ShipExportWriter of(String format, OutputStream out, ObjectMapper objectMapper) throws IOException {
+        return CSV.equals(format) ? new CsvWriter(out) : new NdjsonWriter(out, objectMapper);
+    }
+
+    abstract void write(Ship ship) throws IOException;
+
+    abstract void finish() throws IOException;
+
+    private static class NdjsonWriter extends ShipExportWriter {
+
+        private final JsonGenerator generator;
+        private final ObjectWriter writer;
+
+        NdjsonWriter(OutputStream out, ObjectMapper objectMapper) throws IOException {
+            generator = objectMapper.getFactory().createGenerator(out);
+            generator.setRootValueSeparator(null);
+            writer = objectMapper.writerFor(Ship.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        }
+
+        @Override
+        void write(Ship ship) throws IOException {
+            writer.writeValue(generator, ship);
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        void finish() throws IOException {
+            generator.flush();
+        }
+    }
+
+    private static class CsvWriter extends ShipExportWriter {
+
+        private final Writer writer;
+
+        CsvWriter(OutputStream out) throws IOException {
+            writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            writer.write("id,name,planet,shipType,prodDate,isUsed,speed,crewSize,rating\n");
+        }
+
+        @Override
+        void write(Ship ship) throws IOException {
+            writer.write(String.valueOf(ship.getId()));
+            writer.write(',');
+            writer.write(quote(ship.getName()));
+            writer.write(',');
+            writer.write(quote(ship.getPlanet()));
+            writer.write(',');
+            writer.write(String.valueOf(ship.getShipType()));
+            writer.write(',');
+            writer.write(String.valueOf(ship.getProdDate().getTime()));
+            writer.write(',');
+            writer.write(String.valueOf(ship.getUsed()));
+            writer.write(',');
+            writer.write(String.valueOf(ship.getSpeed()));
+            writer.write(',');
+            writer.write(String.valueOf(ship.getCrewSize()));
+            writer.write(',');
+            writer.write(String.valueOf(ship.getRating()));
+            writer.write('\n');
+        }
+
+        @Override
+        void finish() throws IOException {
+            writer.flush();
+        }
+
+        private static String quote(String value) {
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0)
+                return value;
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+    }
+}
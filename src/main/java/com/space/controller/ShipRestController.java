@@ -1,47 +1,102 @@
 package com.space.controller;
 
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.space.cache.FleetVersion;
+import com.space.config.ReplicaReads;
 import com.space.exceptions.BadRequestException;
+import com.space.exceptions.ServiceUnavailableException;
 import com.space.model.Ship;
+import com.space.model.ShipBatchResult;
 import com.space.model.ShipOrder;
+import com.space.model.ShipStats;
 import com.space.model.ShipType;
 import com.space.service.ShipService;
-import com.space.specification.ShipSpecification;
+import com.space.specification.ShipCursor;
+import com.space.specification.ShipFilter;
+import com.space.specification.ShipProjection;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Sort;
-import org.springframework.data.jpa.domain.Specification;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.*;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/rest/ships")
 public class ShipRestController {
 
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private ShipService shipService;
+    private ObjectMapper objectMapper;
+    private Executor queryExecutor;
+    private Executor lookupExecutor;
+    private FleetVersion fleetVersion;
+    private ReplicaReads replicaReads;
 
     @Autowired
     public void setShipService(ShipService shipService) {
         this.shipService = shipService;
     }
 
-    @GetMapping(value = "/{id}", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    @Autowired
+    public void setObjectMapper(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Autowired
+    public void setFleetVersion(FleetVersion fleetVersion) {
+        this.fleetVersion = fleetVersion;
+    }
+
+    @Autowired
+    public void setReplicaReads(ReplicaReads replicaReads) {
+        this.replicaReads = replicaReads;
+    }
+
+    @Autowired
+    public void setQueryExecutor(@Qualifier("shipQueryExecutor") Executor queryExecutor) {
+        this.queryExecutor = queryExecutor;
+    }
+
+    @Autowired
+    public void setLookupExecutor(@Qualifier("shipLookupExecutor") Executor lookupExecutor) {
+        this.lookupExecutor = lookupExecutor;
+    }
+
+    @GetMapping(value = "/{id}", produces = {MediaType.APPLICATION_JSON_UTF8_VALUE, BinaryFormatAdvice.SMILE_VALUE, BinaryFormatAdvice.CBOR_VALUE})
     @ResponseBody
-    public ResponseEntity<Ship> getShip(@PathVariable("id") String id) {
+    public CompletableFuture<ResponseEntity<Ship>> getShip(@PathVariable("id") String id,
+                                                           @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         Long longId = checkId(id);
 
         if (longId < 1)
-            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+            return CompletableFuture.completedFuture(new ResponseEntity<>(HttpStatus.BAD_REQUEST));
 
-        Ship ship = shipService.getShip(longId);
+        return async(lookupExecutor, () -> {
+            Ship ship = shipService.getShip(longId);
 
-        if (null == ship)
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+            if (null == ship)
+                return new ResponseEntity<>(HttpStatus.NOT_FOUND);
 
-        return new ResponseEntity<>(ship, HttpStatus.OK);
+            String etag = ETags.of(ship);
+            if (ETags.matches(ifNoneMatch, etag))
+                return new ResponseEntity<>(eTag(etag), HttpStatus.NOT_MODIFIED);
+
+            return new ResponseEntity<>(ship, eTag(etag), HttpStatus.OK);
+        });
     }
 
     @PostMapping(produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
@@ -51,12 +106,26 @@ public class ShipRestController {
         return new ResponseEntity<>(ship, HttpStatus.OK);
     }
 
+    @PostMapping(value = "/batch", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    @ResponseBody
+    public ResponseEntity<ShipBatchResult> addShips(@RequestBody List<Ship> ships) {
+        return new ResponseEntity<>(shipService.createShips(ships), HttpStatus.OK);
+    }
+
+    @PostMapping(value = "/batch/edit", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    @ResponseBody
+    public ResponseEntity<ShipBatchResult> editShips(@RequestBody List<Ship> ships) {
+        return new ResponseEntity<>(shipService.editShips(ships), HttpStatus.OK);
+    }
+
     @PostMapping(value = "/{id}" ,produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
     @ResponseBody
-    public ResponseEntity<Ship> editShip(@PathVariable("id") String id, @RequestBody Ship ship) {
+    public ResponseEntity<Ship> editShip(@PathVariable("id") String id, @RequestBody Ship ship,
+                                         @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         Long idLong = checkId(id);
 
-        return new ResponseEntity<>(shipService.editShip(idLong, ship), HttpStatus.OK);
+        Ship editedShip = shipService.editShip(idLong, ship, ETags.versionOf(ifMatch, idLong));
+        return new ResponseEntity<>(editedShip, eTag(ETags.of(editedShip)), HttpStatus.OK);
     }
 
 
@@ -69,8 +138,8 @@ public class ShipRestController {
     }
 
 
-    @GetMapping(produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
-    public ResponseEntity<List<Ship>> getAllShips(@RequestParam(name = "name", required = false) String name,
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_UTF8_VALUE, BinaryFormatAdvice.SMILE_VALUE, BinaryFormatAdvice.CBOR_VALUE})
+    public CompletableFuture<ResponseEntity<List<?>>> getAllShips(@RequestParam(name = "name", required = false) String name,
                                                   @RequestParam(name = "planet", required = false) String planet,
                                                   @RequestParam(name = "shipType", required = false) ShipType shipType,
                                                   @RequestParam(name = "after", required = false) Long after,
@@ -84,33 +153,180 @@ public class ShipRestController {
                                                   @RequestParam(name = "maxRating", required = false) Double maxRating,
                                                   @RequestParam(name = "order", required = false, defaultValue = "ID") ShipOrder order,
                                                   @RequestParam(name = "pageNumber", required = false, defaultValue = "0") Integer pageNumber,
-                                                  @RequestParam(name = "pageSize", required = false, defaultValue = "3") Integer pageSize) {
-        PageRequest pageRequest = PageRequest.of(pageNumber, pageSize, Sort.by(order.getFieldName()));
+                                                  @RequestParam(name = "pageSize", required = false, defaultValue = "3") Integer pageSize,
+                                                  @RequestParam(name = "cursor", required = false) String cursor,
+                                                  @RequestParam(name = "fields", required = false) String fields,
+                                                  @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        ShipFilter filter = new ShipFilter(name, planet, shipType, after, before, isUsed, minSpeed, maxSpeed,
+                minCrewSize, maxCrewSize, minRating, maxRating);
 
-        Specification<Ship> specification = ShipSpecification.getSpecification(name, planet, shipType,
-                after, before, isUsed, minSpeed, maxSpeed, minCrewSize, maxCrewSize, minRating, maxRating);
+        String etag = fleetETag();
+        if (etag != null && ETags.matches(ifNoneMatch, etag))
+            return CompletableFuture.completedFuture(new ResponseEntity<>(eTag(etag), HttpStatus.NOT_MODIFIED));
 
-        Page<Ship> allShips = shipService.getAllShips(specification, pageRequest);
-        return new ResponseEntity<>(allShips.getContent(), HttpStatus.OK);
+        if (fields != null)
+            return getShipFields(filter, order, pageNumber, pageSize, cursor, ShipProjection.parse(fields), etag);
+        if (cursor != null)
+            return getShipsAfter(filter, order, cursor, pageSize, etag);
+
+        return async(() -> new ResponseEntity<>(shipService.getAllShips(filter, order, pageNumber, pageSize), eTag(etag), HttpStatus.OK));
     }
 
     @GetMapping("/count")
-    public ResponseEntity<Integer> getCount(@RequestParam(name = "name", required = false) String name,
-                                            @RequestParam(name = "planet", required = false) String planet,
-                                            @RequestParam(name = "shipType", required = false) ShipType shipType,
-                                            @RequestParam(name = "after", required = false) Long after,
-                                            @RequestParam(name = "before", required = false) Long before,
-                                            @RequestParam(name = "isUsed", required = false) Boolean isUsed,
-                                            @RequestParam(name = "minSpeed", required = false) Double minSpeed,
-                                            @RequestParam(name = "maxSpeed", required = false) Double maxSpeed,
-                                            @RequestParam(name = "minCrewSize", required = false) Integer minCrewSize,
-                                            @RequestParam(name = "maxCrewSize", required = false) Integer maxCrewSize,
-                                            @RequestParam(name = "minRating", required = false) Double minRating,
-                                            @RequestParam(name = "maxRating", required = false) Double maxRating) {
-
-        Specification<Ship> specification = ShipSpecification.getSpecification(name, planet, shipType, after, before, isUsed, minSpeed, maxSpeed,
+    public CompletableFuture<ResponseEntity<Long>> getCount(@RequestParam(name = "name", required = false) String name,
+                                         @RequestParam(name = "planet", required = false) String planet,
+                                         @RequestParam(name = "shipType", required = false) ShipType shipType,
+                                         @RequestParam(name = "after", required = false) Long after,
+                                         @RequestParam(name = "before", required = false) Long before,
+                                         @RequestParam(name = "isUsed", required = false) Boolean isUsed,
+                                         @RequestParam(name = "minSpeed", required = false) Double minSpeed,
+                                         @RequestParam(name = "maxSpeed", required = false) Double maxSpeed,
+                                         @RequestParam(name = "minCrewSize", required = false) Integer minCrewSize,
+                                         @RequestParam(name = "maxCrewSize", required = false) Integer maxCrewSize,
+                                         @RequestParam(name = "minRating", required = false) Double minRating,
+                                         @RequestParam(name = "maxRating", required = false) Double maxRating,
+                                         @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+
+        ShipFilter filter = new ShipFilter(name, planet, shipType, after, before, isUsed, minSpeed, maxSpeed,
                 minCrewSize, maxCrewSize, minRating, maxRating);
-        return new ResponseEntity<>(shipService.getAllShips(specification).size(), HttpStatus.OK);
+        String etag = fleetETag();
+        if (etag != null && ETags.matches(ifNoneMatch, etag))
+            return CompletableFuture.completedFuture(new ResponseEntity<>(eTag(etag), HttpStatus.NOT_MODIFIED));
+
+        return async(() -> new ResponseEntity<>(shipService.countShips(filter), eTag(etag), HttpStatus.OK));
+    }
+
+    @GetMapping(value = "/stats", produces = {MediaType.APPLICATION_JSON_UTF8_VALUE, BinaryFormatAdvice.SMILE_VALUE, BinaryFormatAdvice.CBOR_VALUE})
+    public CompletableFuture<ResponseEntity<ShipStats>> getStats(@RequestParam(name = "name", required = false) String name,
+                                                 @RequestParam(name = "planet", required = false) String planet,
+                                                 @RequestParam(name = "shipType", required = false) ShipType shipType,
+                                                 @RequestParam(name = "after", required = false) Long after,
+                                                 @RequestParam(name = "before", required = false) Long before,
+                                                 @RequestParam(name = "isUsed", required = false) Boolean isUsed,
+                                                 @RequestParam(name = "minSpeed", required = false) Double minSpeed,
+                                                 @RequestParam(name = "maxSpeed", required = false) Double maxSpeed,
+                                                 @RequestParam(name = "minCrewSize", required = false) Integer minCrewSize,
+                                                 @RequestParam(name = "maxCrewSize", required = false) Integer maxCrewSize,
+                                                 @RequestParam(name = "minRating", required = false) Double minRating,
+                                                 @RequestParam(name = "maxRating", required = false) Double maxRating,
+                                                 @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+
+        ShipFilter filter = new ShipFilter(name, planet, shipType, after, before, isUsed, minSpeed, maxSpeed,
+                minCrewSize, maxCrewSize, minRating, maxRating);
+        String etag = fleetETag();
+        if (etag != null && ETags.matches(ifNoneMatch, etag))
+            return CompletableFuture.completedFuture(new ResponseEntity<>(eTag(etag), HttpStatus.NOT_MODIFIED));
+
+        return async(() -> new ResponseEntity<>(shipService.getStats(filter), eTag(etag), HttpStatus.OK));
+    }
+
+    @GetMapping("/export")
+    public void exportShips(@RequestParam(name = "name", required = false) String name,
+                            @RequestParam(name = "planet", required = false) String planet,
+                            @RequestParam(name = "shipType", required = false) ShipType shipType,
+                            @RequestParam(name = "after", required = false) Long after,
+                            @RequestParam(name = "before", required = false) Long before,
+                            @RequestParam(name = "isUsed", required = false) Boolean isUsed,
+                            @RequestParam(name = "minSpeed", required = false) Double minSpeed,
+                            @RequestParam(name = "maxSpeed", required = false) Double maxSpeed,
+                            @RequestParam(name = "minCrewSize", required = false) Integer minCrewSize,
+                            @RequestParam(name = "maxCrewSize", required = false) Integer maxCrewSize,
+                            @RequestParam(name = "minRating", required = false) Double minRating,
+                            @RequestParam(name = "maxRating", required = false) Double maxRating,
+                            @RequestParam(name = "order", required = false, defaultValue = "ID") ShipOrder order,
+                            @RequestParam(name = "format", required = false, defaultValue = "ndjson") String format,
+                            HttpServletResponse response) throws IOException {
+        response.setContentType(ShipExportWriter.contentType(format));
+
+        ShipFilter filter = new ShipFilter(name, planet, shipType, after, before, isUsed, minSpeed, maxSpeed,
+                minCrewSize, maxCrewSize, minRating, maxRating);
+
+        ShipExportWriter writer = ShipExportWriter.of(format, response.getOutputStream(), objectMapper);
+        try {
+            shipService.exportShips(filter, order, ship -> {
+                try {
+                    writer.write(ship);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.finish();
+    }
+
+    // Keyset mode: an empty cursor starts from the beginning, the next cursor is returned in a header
+    private CompletableFuture<ResponseEntity<List<?>>> getShipsAfter(ShipFilter filter, ShipOrder order,
+                                                                     String cursor, Integer pageSize, String etag) {
+        if (pageSize < 1)
+            throw new BadRequestException("Incorrect page size");
+
+        ShipCursor shipCursor = cursor.isEmpty() ? null : ShipCursor.decode(cursor, order);
+        return async(() -> {
+            Slice<Ship> slice = shipService.getShipsAfter(filter, order, shipCursor, pageSize);
+
+            HttpHeaders headers = eTag(etag);
+            if (slice.hasNext()) {
+                List<Ship> ships = slice.getContent();
+                headers.set(NEXT_CURSOR_HEADER, ShipCursor.of(ships.get(ships.size() - 1), order).encode());
+            }
+            return new ResponseEntity<>(slice.getContent(), headers, HttpStatus.OK);
+        });
+    }
+
+    // Only the requested columns are selected; works in both page and keyset mode
+    private CompletableFuture<ResponseEntity<List<?>>> getShipFields(ShipFilter filter, ShipOrder order, Integer pageNumber,
+                                                                     Integer pageSize, String cursor, ShipProjection projection,
+                                                                     String etag) {
+        if (cursor == null)
+            return async(() -> new ResponseEntity<>(shipService.getShipFields(filter, order, pageNumber, pageSize, projection),
+                    eTag(etag), HttpStatus.OK));
+
+        if (pageSize < 1)
+            throw new BadRequestException("Incorrect page size");
+
+        ShipCursor shipCursor = cursor.isEmpty() ? null : ShipCursor.decode(cursor, order);
+        return async(() -> {
+            Slice<Map<String, Object>> slice = shipService.getShipFieldsAfter(filter, order, shipCursor, pageSize, projection);
+
+            HttpHeaders headers = eTag(etag);
+            List<Map<String, Object>> rows = slice.getContent();
+            if (slice.hasNext())
+                headers.set(NEXT_CURSOR_HEADER, ShipCursor.of(rows.get(rows.size() - 1), order).encode());
+            rows.forEach(projection::retain);
+            return new ResponseEntity<>(rows, headers, HttpStatus.OK);
+        });
+    }
+
+    // Reads run on the bounded query executor so slow queries do not hold container threads; a full queue is a 503
+    private <T> CompletableFuture<T> async(Supplier<T> supplier) {
+        return async(queryExecutor, supplier);
+    }
+
+    // A cancelled future skips its supplier, AsyncReadTimeoutInterceptor cancels the reads that timed out
+    private static <T> CompletableFuture<T> async(Executor executor, Supplier<T> supplier) {
+        CompletableFuture<T> future;
+        try {
+            future = CompletableFuture.supplyAsync(supplier, executor);
+        } catch (RejectedExecutionException e) {
+            throw new ServiceUnavailableException("Too many queued requests", e);
+        }
+        RequestContextHolder.currentRequestAttributes()
+                .setAttribute(AsyncReadTimeoutInterceptor.FUTURE_ATTRIBUTE, future, RequestAttributes.SCOPE_REQUEST);
+        return future;
+    }
+
+    // Null when the reads may come from a replica, which can lag behind the fleet version
+    private String fleetETag() {
+        return replicaReads.isActive() ? null : fleetVersion.etag();
+    }
+
+    private static HttpHeaders eTag(String etag) {
+        HttpHeaders headers = new HttpHeaders();
+        if (etag != null)
+            headers.setETag(etag);
+        return headers;
     }
 
     private Long checkId(String id) {
@@ -0,0 +1,22 @@
+package com.space.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.GONE)
+public class ChangesExpiredException extends RuntimeException {
+    public ChangesExpiredException() {
+    }
+
+    public ChangesExpiredException(String message) {
+        super(message);
+    }
+
+    public ChangesExpiredException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public ChangesExpiredException(Throwable cause) {
+        super(cause);
+    }
+}
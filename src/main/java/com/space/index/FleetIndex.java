@@ -0,0 +1,508 @@
+package com.space.index;
+
+import com.space.model.Ship;
+import com.space.model.ShipOrder;
+import com.space.model.ShipType;
+import com.space.repository.ShipRepository;
+import com.space.service.ShipChangeListener;
+import com.space.specification.Collation;
+import com.space.specification.ShipFilter;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+// In-memory copy of the fleet, one primitive array per column, answering filter/count requests without SQL.
+// The listeners run after the commits on the writers' threads, so changes may arrive out of order: a row keeps the
+// version it was set from and an older change is dropped, as is any change of a deleted ship
+@Component
+@Order(10)
+public class FleetIndex implements ShipChangeListener, SmartInitializingSingleton {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final boolean enabled;
+    private final boolean ignoreCase;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private ShipRepository shipRepository;
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${ship.export.fetch-size}")
+    private int fetchSize;
+
+    @Value("${ship.export.clear-every}")
+    private int clearEvery;
+
+    private int size;
+    private long[] ids;
+    private long[] versions;
+    private String[] names;
+    private String[] planets;
+    private String[] searchNames;
+    private String[] searchPlanets;
+    private double[] speeds;
+    private double[] ratings;
+    private int[] crewSizes;
+    private int[] prodDays;
+    private final BitSet live = new BitSet();
+    private final BitSet used = new BitSet();
+    private final BitSet[] shipTypes = new BitSet[ShipType.values().length];
+    private final Map<Long, Integer> rowById = new HashMap<>();
+    // Version each deleted ship had; ids are not reused
+    private final Map<Long, Long> deletedVersions = new HashMap<>();
+    private boolean idOrdered;
+
+    public FleetIndex(@Value("${ship.index.enabled}") boolean enabled,
+                      @Value("${ship.index.ignore-case}") boolean ignoreCase) {
+        this.enabled = enabled;
+        this.ignoreCase = ignoreCase;
+        clear();
+    }
+
+    @Autowired
+    public void setShipRepository(ShipRepository shipRepository) {
+        this.shipRepository = shipRepository;
+    }
+
+    @Autowired
+    public void setTransactionManager(PlatformTransactionManager transactionManager) {
+        this.transactionManager = transactionManager;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (enabled)
+            rebuild();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void rebuild() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+
+        lock.writeLock().lock();
+        try {
+            clear();
+            transactionTemplate.execute(status -> {
+                try (Stream<Ship> ships = shipRepository.streamAll(Specification.where(null), Sort.by("id"), fetchSize)) {
+                    int count = 0;
+                    for (Ship ship : (Iterable<Ship>) ships::iterator) {
+                        append(ship);
+                        if (++count % clearEvery == 0)
+                            entityManager.clear();
+                    }
+                }
+                return null;
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // LIKE wildcards in a substring filter have no plain-substring equivalent, such requests go to the database
+    public boolean canAnswer(ShipFilter filter) {
+        return enabled && isPlainSubstring(filter.getName()) && isPlainSubstring(filter.getPlanet());
+    }
+
+    public long count(ShipFilter filter) {
+        lock.readLock().lock();
+        try {
+            return select(filter).cardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Ship> find(ShipFilter filter, ShipOrder order, int pageNumber, int pageSize) {
+        lock.readLock().lock();
+        try {
+            BitSet rows = select(filter);
+            long skip = (long) pageNumber * pageSize;
+            int count = rows.cardinality();
+            if (skip >= count)
+                return Collections.emptyList();
+
+            List<Ship> ships = new ArrayList<>();
+            if (order == ShipOrder.ID && idOrdered) {
+                int row = rows.nextSetBit(0);
+                for (long i = 0; i < skip; i++)
+                    row = rows.nextSetBit(row + 1);
+                for (; row >= 0 && ships.size() < pageSize; row = rows.nextSetBit(row + 1))
+                    ships.add(toShip(row));
+                return ships;
+            }
+
+            int[] sorted = smallestRows(rows, order, (int) Math.min(count, skip + pageSize));
+            for (int i = (int) skip; i < sorted.length; i++)
+                ships.add(toShip(sorted[i]));
+            return ships;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void shipCreated(Ship ship) {
+        if (!enabled)
+            return;
+
+        lock.writeLock().lock();
+        try {
+            apply(ship);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void shipUpdated(Ship before, Ship after) {
+        if (!enabled)
+            return;
+
+        lock.writeLock().lock();
+        try {
+            apply(after);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void shipDeleted(Ship ship) {
+        if (!enabled)
+            return;
+
+        lock.writeLock().lock();
+        try {
+            deletedVersions.merge(ship.getId(), ship.getVersion(), Math::max);
+            Integer row = rowById.remove(ship.getId());
+            if (row != null) {
+                live.clear(row);
+                if (size - rowById.size() > size / 2)
+                    compact();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void apply(Ship ship) {
+        Long deletedVersion = deletedVersions.get(ship.getId());
+        if (deletedVersion != null && ship.getVersion() <= deletedVersion)
+            return;
+
+        Integer row = rowById.get(ship.getId());
+        if (row == null)
+            append(ship);
+        else if (ship.getVersion() > versions[row])
+            set(row, ship);
+    }
+
+    private BitSet select(ShipFilter filter) {
+        BitSet rows = (BitSet) live.clone();
+
+        if (filter.getShipType() != null)
+            rows.and(shipTypes[filter.getShipType().ordinal()]);
+
+        if (filter.getUsed() != null) {
+            if (filter.getUsed())
+                rows.and(used);
+            else
+                rows.andNot(used);
+        }
+
+        retainRange(rows, speeds, filter.getMinSpeed(), filter.getMaxSpeed());
+        retainRange(rows, ratings, filter.getMinRating(), filter.getMaxRating());
+        retainRange(rows, crewSizes,
+                filter.getMinCrewSize() == null ? Integer.MIN_VALUE : filter.getMinCrewSize(),
+                filter.getMaxCrewSize() == null ? Integer.MAX_VALUE : filter.getMaxCrewSize());
+        retainRange(rows, prodDays,
+                filter.getAfter() == null ? Integer.MIN_VALUE : dayAtOrAfter(filter.getAfter()),
+                filter.getBefore() == null ? Integer.MAX_VALUE : dayAtOrBefore(filter.getBefore()));
+
+        retainContaining(rows, searchNames, filter.getName());
+        retainContaining(rows, searchPlanets, filter.getPlanet());
+        return rows;
+    }
+
+    private static void retainRange(BitSet rows, double[] column, Double min, Double max) {
+        if (min == null && max == null)
+            return;
+
+        double low = min == null ? Double.NEGATIVE_INFINITY : min;
+        double high = max == null ? Double.POSITIVE_INFINITY : max;
+        for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1))
+            if (column[row] < low || column[row] > high)
+                rows.clear(row);
+    }
+
+    private static void retainRange(BitSet rows, int[] column, int low, int high) {
+        if (low == Integer.MIN_VALUE && high == Integer.MAX_VALUE)
+            return;
+
+        for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1))
+            if (column[row] < low || column[row] > high)
+                rows.clear(row);
+    }
+
+    private void retainContaining(BitSet rows, String[] column, String part) {
+        if (part == null)
+            return;
+
+        String needle = searchValue(part);
+        for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1))
+            if (!column[row].contains(needle))
+                rows.clear(row);
+    }
+
+    // Bounded max-heap keeps only the first `limit` rows of the requested order, then heap-sorts them
+    private int[] smallestRows(BitSet rows, ShipOrder order, int limit) {
+        int[] heap = new int[limit];
+        int heapSize = 0;
+
+        for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+            if (heapSize < limit) {
+                heap[heapSize] = row;
+                siftUp(heap, heapSize++, order);
+            } else if (compareRows(order, row, heap[0]) < 0) {
+                heap[0] = row;
+                siftDown(heap, heapSize, order);
+            }
+        }
+
+        for (int end = heapSize - 1; end > 0; end--) {
+            int top = heap[0];
+            heap[0] = heap[end];
+            heap[end] = top;
+            siftDown(heap, end, order);
+        }
+        return heap;
+    }
+
+    private void siftUp(int[] heap, int index, ShipOrder order) {
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            if (compareRows(order, heap[index], heap[parent]) <= 0)
+                return;
+            swap(heap, index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int[] heap, int heapSize, ShipOrder order) {
+        int index = 0;
+        while (true) {
+            int largest = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < heapSize && compareRows(order, heap[left], heap[largest]) > 0)
+                largest = left;
+            if (right < heapSize && compareRows(order, heap[right], heap[largest]) > 0)
+                largest = right;
+            if (largest == index)
+                return;
+            swap(heap, index, largest);
+            index = largest;
+        }
+    }
+
+    private static void swap(int[] array, int i, int j) {
+        int value = array[i];
+        array[i] = array[j];
+        array[j] = value;
+    }
+
+    private int compareRows(ShipOrder order, int a, int b) {
+        int result;
+        switch (order) {
+            case SPEED:
+                result = Double.compare(speeds[a], speeds[b]);
+                break;
+            case DATE:
+                result = Integer.compare(prodDays[a], prodDays[b]);
+                break;
+            case RATING:
+                result = Double.compare(ratings[a], ratings[b]);
+                break;
+            default:
+                result = 0;
+        }
+        return result != 0 ? result : Long.compare(ids[a], ids[b]);
+    }
+
+    private void clear() {
+        size = 0;
+        ids = new long[INITIAL_CAPACITY];
+        versions = new long[INITIAL_CAPACITY];
+        names = new String[INITIAL_CAPACITY];
+        planets = new String[INITIAL_CAPACITY];
+        searchNames = ignoreCase ? new String[INITIAL_CAPACITY] : names;
+        searchPlanets = ignoreCase ? new String[INITIAL_CAPACITY] : planets;
+        speeds = new double[INITIAL_CAPACITY];
+        ratings = new double[INITIAL_CAPACITY];
+        crewSizes = new int[INITIAL_CAPACITY];
+        prodDays = new int[INITIAL_CAPACITY];
+        live.clear();
+        used.clear();
+        for (int i = 0; i < shipTypes.length; i++)
+            shipTypes[i] = new BitSet();
+        rowById.clear();
+        deletedVersions.clear();
+        idOrdered = true;
+    }
+
+    private void append(Ship ship) {
+        if (size == ids.length)
+            grow();
+
+        if (size > 0 && ship.getId() <= ids[size - 1])
+            idOrdered = false;
+
+        int row = size++;
+        rowById.put(ship.getId(), row);
+        live.set(row);
+        set(row, ship);
+    }
+
+    // Deleted rows stay in the columns until they outnumber the live ones, then the live rows are moved down in order
+    private void compact() {
+        int target = 0;
+        for (int row = live.nextSetBit(0); row >= 0; row = live.nextSetBit(row + 1), target++) {
+            if (row == target)
+                continue;
+            ids[target] = ids[row];
+            versions[target] = versions[row];
+            names[target] = names[row];
+            planets[target] = planets[row];
+            if (ignoreCase) {
+                searchNames[target] = searchNames[row];
+                searchPlanets[target] = searchPlanets[row];
+            }
+            speeds[target] = speeds[row];
+            ratings[target] = ratings[row];
+            crewSizes[target] = crewSizes[row];
+            prodDays[target] = prodDays[row];
+            used.set(target, used.get(row));
+            for (BitSet shipType : shipTypes)
+                shipType.set(target, shipType.get(row));
+            rowById.put(ids[target], target);
+        }
+
+        Arrays.fill(names, target, size, null);
+        Arrays.fill(planets, target, size, null);
+        if (ignoreCase) {
+            Arrays.fill(searchNames, target, size, null);
+            Arrays.fill(searchPlanets, target, size, null);
+        }
+        live.clear();
+        live.set(0, target);
+        used.clear(target, size);
+        for (BitSet shipType : shipTypes)
+            shipType.clear(target, size);
+        size = target;
+    }
+
+    private void grow() {
+        int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        versions = Arrays.copyOf(versions, capacity);
+        names = Arrays.copyOf(names, capacity);
+        planets = Arrays.copyOf(planets, capacity);
+        searchNames = ignoreCase ? Arrays.copyOf(searchNames, capacity) : names;
+        searchPlanets = ignoreCase ? Arrays.copyOf(searchPlanets, capacity) : planets;
+        speeds = Arrays.copyOf(speeds, capacity);
+        ratings = Arrays.copyOf(ratings, capacity);
+        crewSizes = Arrays.copyOf(crewSizes, capacity);
+        prodDays = Arrays.copyOf(prodDays, capacity);
+    }
+
+    private void set(int row, Ship ship) {
+        ids[row] = ship.getId();
+        versions[row] = ship.getVersion();
+        names[row] = ship.getName();
+        planets[row] = ship.getPlanet();
+        if (ignoreCase) {
+            searchNames[row] = searchValue(ship.getName());
+            searchPlanets[row] = searchValue(ship.getPlanet());
+        }
+        speeds[row] = ship.getSpeed();
+        ratings[row] = ship.getRating();
+        crewSizes[row] = ship.getCrewSize();
+        prodDays[row] = epochDay(ship.getProdDate());
+        used.set(row, ship.getUsed());
+        for (ShipType shipType : ShipType.values())
+            shipTypes[shipType.ordinal()].set(row, shipType == ship.getShipType());
+    }
+
+    private Ship toShip(int row) {
+        Ship ship = new Ship();
+        ship.setId(ids[row]);
+        ship.setVersion(versions[row]);
+        ship.setName(names[row]);
+        ship.setPlanet(planets[row]);
+        for (ShipType shipType : ShipType.values())
+            if (shipTypes[shipType.ordinal()].get(row))
+                ship.setShipType(shipType);
+        ship.setProdDate(new Date(startOfDay(prodDays[row])));
+        ship.setUsed(used.get(row));
+        ship.setSpeed(speeds[row]);
+        ship.setCrewSize(crewSizes[row]);
+        ship.setRating(ratings[row]);
+        return ship;
+    }
+
+    private String searchValue(String value) {
+        return ignoreCase ? Collation.fold(value) : value;
+    }
+
+    private static boolean isPlainSubstring(String value) {
+        return value == null || (value.indexOf('%') < 0 && value.indexOf('_') < 0 && value.indexOf('\\') < 0);
+    }
+
+    // Production dates are whole days; day boundaries follow the JVM time zone, like the JDBC date mapping
+    private static int epochDay(Date date) {
+        return (int) Instant.ofEpochMilli(date.getTime()).atZone(ZoneId.systemDefault()).toLocalDate().toEpochDay();
+    }
+
+    private static long startOfDay(int epochDay) {
+        return LocalDate.ofEpochDay(epochDay).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static int dayAtOrAfter(long millis) {
+        int day = epochDay(new Date(millis));
+        return startOfDay(day) >= millis ? day : day + 1;
+    }
+
+    private static int dayAtOrBefore(long millis) {
+        return epochDay(new Date(millis));
+    }
+}
@@ -0,0 +1,297 @@
+package com.space.index;
+
+import com.space.model.Ship;
+import com.space.service.ShipChangeListener;
+import com.space.specification.Collation;
+import com.space.specification.ShipFilter;
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Inverted index from every substring of up to three characters of name/planet to the ids of the ships containing it.
+// Folding matches the case-insensitive collation on ASCII only, a character left outside it (like 'ß', equal to "s"
+// or "ss" depending on the collation) splits a filter like a wildcard, and a value holding one is always a candidate
+@Component
+@Order(20)
+public class NgramIndex implements ShipChangeListener, SmartInitializingSingleton {
+
+    private static final int GRAM_LENGTH = 3;
+    private static final String SELECT_SQL = "SELECT id, name, planet FROM ship";
+
+    private final boolean enabled;
+    private final boolean ignoreCase;
+    private final int maxCandidates;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, RoaringBitmap> names = new HashMap<>();
+    private final Map<String, RoaringBitmap> planets = new HashMap<>();
+    private final RoaringBitmap inexactNames = new RoaringBitmap();
+    private final RoaringBitmap inexactPlanets = new RoaringBitmap();
+    private boolean overflow;
+
+    private DataSource dataSource;
+
+    @Value("${ship.export.fetch-size}")
+    private int fetchSize;
+
+    public NgramIndex(@Value("${ship.search.enabled}") boolean enabled,
+                      @Value("${ship.index.ignore-case}") boolean ignoreCase,
+                      @Value("${ship.search.max-candidates}") int maxCandidates) {
+        this.enabled = enabled;
+        this.ignoreCase = ignoreCase;
+        this.maxCandidates = maxCandidates;
+    }
+
+    @Autowired
+    public void setDataSource(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (enabled)
+            rebuild();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void rebuild() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.setFetchSize(fetchSize);
+
+        lock.writeLock().lock();
+        try {
+            names.clear();
+            planets.clear();
+            inexactNames.clear();
+            inexactPlanets.clear();
+            overflow = false;
+            jdbcTemplate.query(SELECT_SQL, (RowCallbackHandler) resultSet ->
+                    add(resultSet.getLong(1), resultSet.getString(2), resultSet.getString(3)));
+            names.values().forEach(RoaringBitmap::runOptimize);
+            planets.values().forEach(RoaringBitmap::runOptimize);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Ids that may match the name/planet filters, a superset of what the LIKE predicates select;
+    // null when there is nothing to narrow or the set is too large to be worth an IN list
+    public List<Long> candidates(ShipFilter filter) {
+        if (!enabled || (filter.getName() == null && filter.getPlanet() == null))
+            return null;
+
+        lock.readLock().lock();
+        try {
+            if (overflow)
+                return null;
+
+            RoaringBitmap ids = intersect(null, names, inexactNames, filter.getName());
+            ids = intersect(ids, planets, inexactPlanets, filter.getPlanet());
+            if (ids == null || ids.getCardinality() > maxCandidates)
+                return null;
+
+            List<Long> candidates = new ArrayList<>(ids.getCardinality());
+            for (IntIterator iterator = ids.getIntIterator(); iterator.hasNext(); )
+                candidates.add((long) iterator.next());
+            return candidates;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void shipCreated(Ship ship) {
+        if (!enabled)
+            return;
+
+        lock.writeLock().lock();
+        try {
+            add(ship.getId(), ship.getName(), ship.getPlanet());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void shipUpdated(Ship before, Ship after) {
+        if (!enabled)
+            return;
+
+        lock.writeLock().lock();
+        try {
+            remove(before.getId(), before.getName(), before.getPlanet());
+            add(after.getId(), after.getName(), after.getPlanet());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void shipDeleted(Ship ship) {
+        if (!enabled)
+            return;
+
+        lock.writeLock().lock();
+        try {
+            remove(ship.getId(), ship.getName(), ship.getPlanet());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private RoaringBitmap intersect(RoaringBitmap ids, Map<String, RoaringBitmap> postings, RoaringBitmap inexact,
+                                    String pattern) {
+        if (pattern == null)
+            return ids;
+
+        List<String> fragments = literalFragments(pattern);
+        if (fragments == null)
+            return ids;
+
+        RoaringBitmap matches = null;
+        for (String fragment : fragments) {
+            for (String value : exactRuns(fold(fragment))) {
+                int length = Math.min(GRAM_LENGTH, value.length());
+                for (int i = 0; i + length <= value.length(); i++) {
+                    RoaringBitmap posting = postings.get(value.substring(i, i + length));
+                    if (posting == null)
+                        return and(ids, inexact);
+
+                    matches = matches == null ? posting : RoaringBitmap.and(matches, posting);
+                }
+            }
+        }
+        if (matches == null)
+            return ids;
+        return and(ids, RoaringBitmap.or(matches, inexact));
+    }
+
+    private static RoaringBitmap and(RoaringBitmap ids, RoaringBitmap matches) {
+        return ids == null ? matches : RoaringBitmap.and(ids, matches);
+    }
+
+    // The runs of a folded value between the characters folding cannot match exactly
+    private List<String> exactRuns(String value) {
+        List<String> runs = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i <= value.length(); i++) {
+            if (i < value.length() && isExact(value.charAt(i)))
+                continue;
+            if (i > start)
+                runs.add(value.substring(start, i));
+            start = i + 1;
+        }
+        return runs;
+    }
+
+    // The filter value is used inside '%...%' unescaped, so '%' and '_' in it are wildcards and '\' escapes;
+    // every match contains each literal run between wildcards. Null for a dangling escape the index cannot reason about
+    private static List<String> literalFragments(String pattern) {
+        List<String> fragments = new ArrayList<>();
+        StringBuilder fragment = new StringBuilder();
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '\\') {
+                if (++i == pattern.length())
+                    return null;
+                fragment.append(pattern.charAt(i));
+            } else if (c == '%' || c == '_') {
+                if (fragment.length() > 0)
+                    fragments.add(fragment.toString());
+                fragment.setLength(0);
+            } else {
+                fragment.append(c);
+            }
+        }
+        if (fragment.length() > 0)
+            fragments.add(fragment.toString());
+        return fragments;
+    }
+
+    private void add(long id, String name, String planet) {
+        if (id < 0 || id > Integer.MAX_VALUE) {
+            overflow = true;
+            return;
+        }
+
+        for (String gram : grams(name))
+            names.computeIfAbsent(gram, key -> new RoaringBitmap()).add((int) id);
+        for (String gram : grams(planet))
+            planets.computeIfAbsent(gram, key -> new RoaringBitmap()).add((int) id);
+        if (!isExact(name))
+            inexactNames.add((int) id);
+        if (!isExact(planet))
+            inexactPlanets.add((int) id);
+    }
+
+    private void remove(long id, String name, String planet) {
+        if (id < 0 || id > Integer.MAX_VALUE)
+            return;
+
+        for (String gram : grams(name))
+            remove(names, gram, (int) id);
+        for (String gram : grams(planet))
+            remove(planets, gram, (int) id);
+        inexactNames.remove((int) id);
+        inexactPlanets.remove((int) id);
+    }
+
+    private static void remove(Map<String, RoaringBitmap> postings, String gram, int id) {
+        RoaringBitmap posting = postings.get(gram);
+        if (posting == null)
+            return;
+
+        posting.remove(id);
+        if (posting.isEmpty())
+            postings.remove(gram);
+    }
+
+    private Set<String> grams(String value) {
+        Set<String> grams = new HashSet<>();
+        if (value == null)
+            return grams;
+
+        String folded = fold(value);
+        for (int length = 1; length <= GRAM_LENGTH; length++)
+            for (int i = 0; i + length <= folded.length(); i++)
+                grams.add(folded.substring(i, i + length));
+        return grams;
+    }
+
+    private boolean isExact(String value) {
+        if (value == null)
+            return true;
+
+        String folded = fold(value);
+        for (int i = 0; i < folded.length(); i++)
+            if (!isExact(folded.charAt(i)))
+                return false;
+        return true;
+    }
+
+    private boolean isExact(char c) {
+        return !ignoreCase || c < 128;
+    }
+
+    private String fold(String value) {
+        return ignoreCase ? Collation.fold(value) : value;
+    }
+}
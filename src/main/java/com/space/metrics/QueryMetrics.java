@@ -0,0 +1,64 @@
+package com.space.metrics;
+
+import com.space.specification.ShipQueryShapes;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// One timer per filter shape and query kind, registered the first time the shape runs. Later lookups are an array
+// read, so timing a query allocates nothing
+@Component
+public class QueryMetrics {
+
+    static final String QUERY_TIMER = "ship.query";
+
+    private static final int SELECT = 0;
+    private static final int COUNT = 1;
+
+    // Queries built from a Specification (slice, fields, stream, stats) have no filter shape
+    static final String SPECIFICATION_SHAPE = "specification";
+
+    private final AtomicReferenceArray<Timer> timers = new AtomicReferenceArray<>(2 * ShipQueryShapes.SHAPES);
+    private final ConcurrentMap<String, Timer> specificationTimers = new ConcurrentHashMap<>();
+
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    public void setMeterRegistry(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public Timer select(int shape) {
+        return timer(shape, SELECT);
+    }
+
+    public Timer count(int shape) {
+        return timer(shape, COUNT);
+    }
+
+    public Timer specification(String query) {
+        return specificationTimers.computeIfAbsent(query, name -> Timer.builder(QUERY_TIMER)
+                .tag("query", name)
+                .tag("shape", SPECIFICATION_SHAPE)
+                .register(meterRegistry));
+    }
+
+    private Timer timer(int shape, int kind) {
+        int index = 2 * shape + kind;
+        Timer timer = timers.get(index);
+        if (timer == null) {
+            // Racing threads get the same meter back from the registry
+            timer = Timer.builder(QUERY_TIMER)
+                    .tag("query", kind == SELECT ? "select" : "count")
+                    .tag("shape", ShipQueryShapes.describe(shape))
+                    .register(meterRegistry);
+            timers.set(index, timer);
+        }
+        return timer;
+    }
+}
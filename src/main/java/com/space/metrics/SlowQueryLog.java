@@ -0,0 +1,120 @@
+package com.space.metrics;
+
+import com.space.model.SlowQuery;
+import com.space.specification.ShipFilter;
+import com.space.specification.ShipQueryShapes;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// The last slow list and count queries in a ring that writers claim slots of with one increment. Queries under the
+// threshold cost a comparison; everything else is collected only once a query turned out to be slow
+@Component
+public class SlowQueryLog {
+
+    private final long thresholdNanos;
+    private final boolean explain;
+    private final AtomicReferenceArray<SlowQuery> entries;
+    private final int mask;
+    private final AtomicLong sequence = new AtomicLong();
+
+    private JdbcTemplate jdbcTemplate;
+
+    public SlowQueryLog(@Value("${ship.slow-query.enabled}") boolean enabled,
+                        @Value("${ship.slow-query.threshold-ms}") long thresholdMillis,
+                        @Value("${ship.slow-query.capacity}") int capacity,
+                        @Value("${ship.slow-query.explain}") boolean explain) {
+        if (capacity < 1 || capacity > 1 << 20)
+            throw new IllegalArgumentException("ship.slow-query.capacity must be between 1 and 1048576");
+        this.thresholdNanos = enabled ? TimeUnit.MILLISECONDS.toNanos(thresholdMillis) : Long.MAX_VALUE;
+        this.explain = explain;
+        int size = Integer.highestOneBit(capacity * 2 - 1);
+        this.entries = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    @Autowired
+    public void setJdbcTemplate(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public boolean isSlow(long elapsedNanos) {
+        return elapsedNanos >= thresholdNanos;
+    }
+
+    // Called right after the query on the thread that ran it, while its statement is the last one captured
+    public void record(String query, int shape, ShipFilter filter, Collection<Long> ids, Map<String, Object> paging,
+                       String jpql, long rows, long elapsedNanos) {
+        Map<String, Object> parameters = filter.toParameters();
+        parameters.putAll(paging);
+        String sql = SqlCapture.lastStatement();
+        List<Object> binds = ShipQueryShapes.bindValues(filter, ids);
+
+        SlowQuery entry = new SlowQuery(System.currentTimeMillis(), query, ShipQueryShapes.describe(shape), parameters,
+                jpql, sql, binds, rows, elapsedNanos / 1e6,
+                explain && sql != null ? explain(sql, pagedBinds(sql, binds, paging)) : null);
+        entries.set((int) (sequence.getAndIncrement() & mask), entry);
+    }
+
+    // Specification queries carry no filter to report and no bind values to explain the statement with
+    public void record(String query, Map<String, Object> parameters, long rows, long elapsedNanos) {
+        SlowQuery entry = new SlowQuery(System.currentTimeMillis(), query, QueryMetrics.SPECIFICATION_SHAPE, parameters,
+                null, SqlCapture.lastStatement(), Collections.emptyList(), rows, elapsedNanos / 1e6, null);
+        entries.set((int) (sequence.getAndIncrement() & mask), entry);
+    }
+
+    // Newest first; an entry overwritten while this runs may show up in place of the one it replaced
+    public List<SlowQuery> snapshot() {
+        long end = sequence.get();
+        List<SlowQuery> result = new ArrayList<>();
+        for (long n = end - 1; n >= 0 && n >= end - entries.length(); n--) {
+            SlowQuery entry = entries.get((int) (n & mask));
+            if (entry != null)
+                result.add(entry);
+        }
+        return result;
+    }
+
+    public void clear() {
+        for (int i = 0; i < entries.length(); i++)
+            entries.set(i, null);
+    }
+
+    private List<Map<String, Object>> explain(String sql, List<Object> binds) {
+        try {
+            return jdbcTemplate.queryForList("EXPLAIN " + sql, binds.toArray());
+        } catch (DataAccessException e) {
+            return Collections.singletonList(Collections.singletonMap("error", e.getMostSpecificCause().getMessage()));
+        }
+    }
+
+    // The MySQL dialect appends "limit ?" after the filter placeholders, or "limit ?, ?" binding the offset first
+    private static List<Object> pagedBinds(String sql, List<Object> binds, Map<String, Object> paging) {
+        List<Object> pagedBinds = new ArrayList<>(binds);
+        int trailing = placeholders(sql) - binds.size();
+        if (trailing > 1)
+            pagedBinds.add(paging.get("offset"));
+        if (trailing > 0)
+            pagedBinds.add(paging.get("limit"));
+        return pagedBinds;
+    }
+
+    private static int placeholders(String sql) {
+        int count = 0;
+        for (int i = 0; i < sql.length(); i++)
+            if (sql.charAt(i) == '?')
+                count++;
+        return count;
+    }
+}
@@ -0,0 +1,19 @@
+package com.space.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+// Remembers the last statement Hibernate prepared on each thread, so a slow query can be logged with its real SQL
+public class SqlCapture implements StatementInspector {
+
+    private static final ThreadLocal<String> LAST_STATEMENT = new ThreadLocal<>();
+
+    @Override
+    public String inspect(String sql) {
+        LAST_STATEMENT.set(sql);
+        return sql;
+    }
+
+    static String lastStatement() {
+        return LAST_STATEMENT.get();
+    }
+}
@@ -0,0 +1,58 @@
+package com.space.model;
+
+public class RatingJobStatus {
+
+    public enum State {
+        IDLE, RUNNING, PAUSED, DONE, FAILED
+    }
+
+    private State state;
+    private int currentYear;
+    private long lastId;
+    private long processed;
+    private long updated;
+    private long total;
+    private String error;
+
+    public RatingJobStatus(State state, int currentYear, long lastId, long processed, long updated, long total, String error) {
+        this.state = state;
+        this.currentYear = currentYear;
+        this.lastId = lastId;
+        this.processed = processed;
+        this.updated = updated;
+        this.total = total;
+        this.error = error;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    // The year ratings are computed for, by the job and by every create or edit since it was started
+    public int getCurrentYear() {
+        return currentYear;
+    }
+
+    // Ships up to this id have their rating for currentYear
+    public long getLastId() {
+        return lastId;
+    }
+
+    public long getProcessed() {
+        return processed;
+    }
+
+    // Processed ships whose rating changed and was written back
+    public long getUpdated() {
+        return updated;
+    }
+
+    // Ships in the table when the job was started
+    public long getTotal() {
+        return total;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
@@ -1,7 +1,8 @@
 package com.space.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import javax.persistence.*;
-import java.util.Calendar;
 import java.util.Date;
 import java.util.Objects;
 
@@ -38,6 +39,27 @@ public class Ship{
     @Column(name = "rating")
     private Double rating;
 
+    @Version
+    @Column(name = "version", nullable = false)
+    @JsonIgnore
+    private Long version;
+
+    public Ship() {
+    }
+
+    public Ship(Ship ship) {
+        this.id = ship.id;
+        this.name = ship.name;
+        this.planet = ship.planet;
+        this.shipType = ship.shipType;
+        this.prodDate = ship.prodDate;
+        this.isUsed = ship.isUsed;
+        this.speed = ship.speed;
+        this.crewSize = ship.crewSize;
+        this.rating = ship.rating;
+        this.version = ship.version;
+    }
+
     public String getName() {
         return name;
     }
@@ -110,21 +132,25 @@ public class Ship{
         this.id = id;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Ship ship = (Ship) o;
-        Calendar calendar1 = Calendar.getInstance();
-        calendar1.setTime(prodDate);
-        Calendar calendar2 = Calendar.getInstance();
-        calendar2.setTime(ship.prodDate);
         return Double.compare(ship.rating, rating) == 0 &&
                 Objects.equals(id, ship.id) &&
                 Objects.equals(name, ship.name) &&
                 Objects.equals(planet, ship.planet) &&
                 shipType == ship.shipType &&
-                Objects.equals(calendar1.get(Calendar.YEAR), calendar2.get(Calendar.YEAR)) &&
+                ShipDates.year(prodDate.getTime()) == ShipDates.year(ship.prodDate.getTime()) &&
                 Objects.equals(isUsed, ship.isUsed) &&
                 Objects.equals(speed, ship.speed) &&
                 Objects.equals(crewSize, ship.crewSize);
@@ -0,0 +1,51 @@
+package com.space.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ShipBatchResult {
+
+    private List<Ship> ships = new ArrayList<>();
+    private List<ItemError> errors = new ArrayList<>();
+
+    public List<Ship> getShips() {
+        return ships;
+    }
+
+    public void setShips(List<Ship> ships) {
+        this.ships = ships;
+    }
+
+    public List<ItemError> getErrors() {
+        return errors;
+    }
+
+    public void addError(int index, Long id, String message) {
+        errors.add(new ItemError(index, id, message));
+    }
+
+    public static class ItemError {
+
+        private int index;
+        private Long id;
+        private String message;
+
+        public ItemError(int index, Long id, String message) {
+            this.index = index;
+            this.id = id;
+            this.message = message;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+}
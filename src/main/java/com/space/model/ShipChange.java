@@ -0,0 +1,46 @@
+package com.space.model;
+
+public class ShipChange {
+
+    public enum Type {
+        CREATED, UPDATED, DELETED
+    }
+
+    private long sequence;
+    private Type type;
+    private long timestamp;
+    private Long id;
+    private Ship ship;
+
+    private ShipChange() {
+    }
+
+    // ship is the state after the change, the last stored state for a deletion
+    public ShipChange(long sequence, Type type, long timestamp, Ship ship) {
+        this.sequence = sequence;
+        this.type = type;
+        this.timestamp = timestamp;
+        this.id = ship.getId();
+        this.ship = ship;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Ship getShip() {
+        return ship;
+    }
+}
@@ -0,0 +1,76 @@
+package com.space.model;
+
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+// Calendar-free date and rounding arithmetic for the per-ship hot paths (validation, rating, equals)
+public final class ShipDates {
+
+    public static final int MIN_YEAR = 2800;
+    // Initial current year of the ratings; production dates are capped by the current year, whatever it is set to
+    public static final int MAX_YEAR = 3019;
+
+    private static final int FIRST_TABLE_YEAR = MIN_YEAR - 100;
+    private static final int LAST_TABLE_YEAR = MAX_YEAR + 100;
+
+    // Start of each year in the JVM zone; the zone is read once, the application never changes it at runtime
+    private static final TimeZone ZONE = TimeZone.getDefault();
+    private static final long[] YEAR_STARTS = yearStarts();
+    private static final long AVERAGE_YEAR = (YEAR_STARTS[YEAR_STARTS.length - 1] - YEAR_STARTS[0]) / (YEAR_STARTS.length - 1);
+
+    private ShipDates() {
+    }
+
+    public static int year(long millis) {
+        int last = YEAR_STARTS.length - 1;
+        if (millis < YEAR_STARTS[0] || millis >= YEAR_STARTS[last])
+            return calendarYear(millis);
+
+        int index = (int) Math.min((millis - YEAR_STARTS[0]) / AVERAGE_YEAR, last - 1);
+        while (millis < YEAR_STARTS[index])
+            index--;
+        while (millis >= YEAR_STARTS[index + 1])
+            index++;
+        return FIRST_TABLE_YEAR + index;
+    }
+
+    public static boolean isValidYear(long millis, int currentYear) {
+        int year = year(millis);
+        return year >= MIN_YEAR && year <= currentYear;
+    }
+
+    // Same result as BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_UP).doubleValue(): BigDecimal.valueOf
+    // rounds the shortest decimal form of the double, and that form is at or above a two-digit half-way point
+    // exactly when the double is at or above the double nearest to that point
+    public static double roundHalfUp2(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value))
+            throw new NumberFormatException("Infinite or NaN");
+        if (value < 0)
+            return -roundHalfUp2(-value);
+
+        long hundredths = Math.round(value * 100);
+        while (hundredths > 0 && value < (2 * hundredths - 1) / 200d)
+            hundredths--;
+        while (value >= (2 * hundredths + 1) / 200d)
+            hundredths++;
+        return hundredths / 100d;
+    }
+
+    private static int calendarYear(long millis) {
+        Calendar calendar = Calendar.getInstance(ZONE);
+        calendar.setTimeInMillis(millis);
+        return calendar.get(Calendar.YEAR);
+    }
+
+    private static long[] yearStarts() {
+        long[] starts = new long[LAST_TABLE_YEAR - FIRST_TABLE_YEAR + 2];
+        Calendar calendar = new GregorianCalendar(ZONE);
+        calendar.clear();
+        for (int i = 0; i < starts.length; i++) {
+            calendar.set(FIRST_TABLE_YEAR + i, Calendar.JANUARY, 1, 0, 0, 0);
+            starts[i] = calendar.getTimeInMillis();
+        }
+        return starts;
+    }
+}
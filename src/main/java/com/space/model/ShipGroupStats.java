@@ -0,0 +1,44 @@
+package com.space.model;
+
+public class ShipGroupStats {
+
+    private long count;
+    private long usedCount;
+    private long newCount;
+    private ShipMetricStats speed;
+    private ShipMetricStats rating;
+    private ShipMetricStats crewSize;
+
+    public ShipGroupStats(long count, long usedCount, ShipMetricStats speed, ShipMetricStats rating, ShipMetricStats crewSize) {
+        this.count = count;
+        this.usedCount = usedCount;
+        this.newCount = count - usedCount;
+        this.speed = speed;
+        this.rating = rating;
+        this.crewSize = crewSize;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getUsedCount() {
+        return usedCount;
+    }
+
+    public long getNewCount() {
+        return newCount;
+    }
+
+    public ShipMetricStats getSpeed() {
+        return speed;
+    }
+
+    public ShipMetricStats getRating() {
+        return rating;
+    }
+
+    public ShipMetricStats getCrewSize() {
+        return crewSize;
+    }
+}
@@ -0,0 +1,26 @@
+package com.space.model;
+
+public class ShipMetricStats {
+
+    private Double min;
+    private Double max;
+    private Double avg;
+
+    public ShipMetricStats(Double min, Double max, Double avg) {
+        this.min = min;
+        this.max = max;
+        this.avg = avg;
+    }
+
+    public Double getMin() {
+        return min;
+    }
+
+    public Double getMax() {
+        return max;
+    }
+
+    public Double getAvg() {
+        return avg;
+    }
+}
@@ -0,0 +1,42 @@
+package com.space.model;
+
+import java.util.Map;
+
+public class ShipStats {
+
+    private ShipGroupStats total;
+    private Map<String, ShipGroupStats> planets;
+    private Map<ShipType, ShipGroupStats> shipTypes;
+    private int yearBucket;
+    private Map<Integer, ShipGroupStats> years;
+
+    public ShipStats(ShipGroupStats total, Map<String, ShipGroupStats> planets, Map<ShipType, ShipGroupStats> shipTypes,
+                     int yearBucket, Map<Integer, ShipGroupStats> years) {
+        this.total = total;
+        this.planets = planets;
+        this.shipTypes = shipTypes;
+        this.yearBucket = yearBucket;
+        this.years = years;
+    }
+
+    public ShipGroupStats getTotal() {
+        return total;
+    }
+
+    public Map<String, ShipGroupStats> getPlanets() {
+        return planets;
+    }
+
+    public Map<ShipType, ShipGroupStats> getShipTypes() {
+        return shipTypes;
+    }
+
+    public int getYearBucket() {
+        return yearBucket;
+    }
+
+    // Keyed by the first production year of each bucket
+    public Map<Integer, ShipGroupStats> getYears() {
+        return years;
+    }
+}
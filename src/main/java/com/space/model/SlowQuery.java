@@ -0,0 +1,77 @@
+package com.space.model;
+
+import java.util.List;
+import java.util.Map;
+
+public class SlowQuery {
+
+    private long timestamp;
+    private String query;
+    private String shape;
+    private Map<String, Object> parameters;
+    private String jpql;
+    private String sql;
+    private List<Object> binds;
+    private long rows;
+    private double elapsedMillis;
+    private List<Map<String, Object>> plan;
+
+    public SlowQuery(long timestamp, String query, String shape, Map<String, Object> parameters, String jpql, String sql,
+                     List<Object> binds, long rows, double elapsedMillis, List<Map<String, Object>> plan) {
+        this.timestamp = timestamp;
+        this.query = query;
+        this.shape = shape;
+        this.parameters = parameters;
+        this.jpql = jpql;
+        this.sql = sql;
+        this.binds = binds;
+        this.rows = rows;
+        this.elapsedMillis = elapsedMillis;
+        this.plan = plan;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    // "select" or "count", or "slice", "fields", "stream" or "stats" for the specification queries
+    public String getQuery() {
+        return query;
+    }
+
+    public String getShape() {
+        return shape;
+    }
+
+    // The filters as the request named them, plus paging for a select
+    public Map<String, Object> getParameters() {
+        return parameters;
+    }
+
+    public String getJpql() {
+        return jpql;
+    }
+
+    // As prepared by Hibernate, null when the statement inspector is not installed
+    public String getSql() {
+        return sql;
+    }
+
+    // In placeholder order, IN lists expanded and padded the way Hibernate binds them
+    public List<Object> getBinds() {
+        return binds;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public double getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    // EXPLAIN rows, null unless enabled
+    public List<Map<String, Object>> getPlan() {
+        return plan;
+    }
+}
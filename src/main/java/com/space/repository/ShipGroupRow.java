@@ -0,0 +1,64 @@
+package com.space.repository;
+
+import com.space.model.ShipType;
+
+// One planet/shipType/production-year group of the GROUP BY statistics query
+public class ShipGroupRow {
+
+    public static final int SPEED = 0;
+    public static final int RATING = 1;
+    public static final int CREW_SIZE = 2;
+
+    private final String planet;
+    private final ShipType shipType;
+    private final int year;
+    private final long count;
+    private final long usedCount;
+    private final double[] min;
+    private final double[] max;
+    private final double[] sum;
+
+    public ShipGroupRow(String planet, ShipType shipType, int year, long count, long usedCount,
+                        double[] min, double[] max, double[] sum) {
+        this.planet = planet;
+        this.shipType = shipType;
+        this.year = year;
+        this.count = count;
+        this.usedCount = usedCount;
+        this.min = min;
+        this.max = max;
+        this.sum = sum;
+    }
+
+    public String getPlanet() {
+        return planet;
+    }
+
+    public ShipType getShipType() {
+        return shipType;
+    }
+
+    public int getYear() {
+        return year;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getUsedCount() {
+        return usedCount;
+    }
+
+    public double getMin(int metric) {
+        return min[metric];
+    }
+
+    public double getMax(int metric) {
+        return max[metric];
+    }
+
+    public double getSum(int metric) {
+        return sum[metric];
+    }
+}
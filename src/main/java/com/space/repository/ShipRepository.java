@@ -3,10 +3,19 @@ package com.space.repository;
 import com.space.model.Ship;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-@Repository
-public interface ShipRepository extends JpaRepository<Ship, Long>, JpaSpecificationExecutor<Ship> {
+import javax.persistence.LockModeType;
+import java.util.Optional;
 
+@Repository
+public interface ShipRepository extends JpaRepository<Ship, Long>, JpaSpecificationExecutor<Ship>, ShipRepositoryCustom {
 
+    // The current row, locked until the transaction ends
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM Ship s WHERE s.id = :id")
+    Optional<Ship> findForUpdate(@Param("id") Long id);
 }
@@ -0,0 +1,32 @@
+package com.space.repository;
+
+import com.space.model.Ship;
+import com.space.model.ShipOrder;
+import com.space.specification.ShipFilter;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+public interface ShipRepositoryCustom {
+
+    List<Ship> findPage(ShipFilter filter, Collection<Long> ids, ShipOrder order, long offset, int limit);
+
+    long countMatching(ShipFilter filter, Collection<Long> ids);
+
+    Slice<Ship> findSlice(Specification<Ship> specification, Sort sort, int size);
+
+    List<Map<String, Object>> findFields(Specification<Ship> specification, Sort sort, List<String> fields, long offset, int limit);
+
+    Stream<Ship> streamAll(Specification<Ship> specification, Sort sort, int fetchSize);
+
+    void insertAll(List<Ship> ships, int batchSize);
+
+    void updateAll(List<Ship> ships, int batchSize);
+
+    List<ShipGroupRow> groupStats(Specification<Ship> specification);
+}
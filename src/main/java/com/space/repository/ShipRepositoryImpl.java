@@ -0,0 +1,344 @@
+package com.space.repository;
+
+import com.space.exceptions.ConflictException;
+import com.space.metrics.QueryMetrics;
+import com.space.metrics.SlowQueryLog;
+import com.space.model.Ship;
+import com.space.model.ShipOrder;
+import com.space.model.ShipType;
+import com.space.specification.ShipFilter;
+import com.space.specification.ShipQueryShapes;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Tuple;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+
+public class ShipRepositoryImpl implements ShipRepositoryCustom {
+
+    private static final String INSERT_SQL = "INSERT INTO ship (name, planet, shipType, prodDate, isUsed, speed, crewSize, rating) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE_SQL = "UPDATE ship SET name = ?, planet = ?, shipType = ?, prodDate = ?, isUsed = ?, "
+            + "speed = ?, crewSize = ?, rating = ?, version = version + 1 WHERE id = ? AND version = ?";
+    private static final String LOCK_VERSIONS_SQL = "SELECT id, version FROM ship WHERE id IN (%s) ORDER BY id FOR UPDATE";
+    // In ShipGroupRow metric order
+    private static final String[] STATS_METRICS = {"speed", "rating", "crewSize"};
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private QueryMetrics queryMetrics;
+
+    @Autowired
+    private SlowQueryLog slowQueryLog;
+
+    // ids narrows the filter to candidate ids when not null
+    @Override
+    public List<Ship> findPage(ShipFilter filter, Collection<Long> ids, ShipOrder order, long offset, int limit) {
+        int shape = ShipQueryShapes.shapeOf(filter, ids);
+        String jpql = ShipQueryShapes.select(shape, order);
+        List<Ship> ships;
+        long start = System.nanoTime();
+        long elapsed;
+        try {
+            TypedQuery<Ship> query = entityManager.createQuery(jpql, Ship.class);
+            ShipQueryShapes.bind(query, filter, ids);
+            ships = query.setFirstResult(Math.toIntExact(offset))
+                    .setMaxResults(limit)
+                    .getResultList();
+        } finally {
+            elapsed = System.nanoTime() - start;
+            queryMetrics.select(shape).record(elapsed, TimeUnit.NANOSECONDS);
+        }
+
+        if (slowQueryLog.isSlow(elapsed)) {
+            Map<String, Object> paging = new LinkedHashMap<>();
+            paging.put("order", order);
+            paging.put("offset", offset);
+            paging.put("limit", limit);
+            slowQueryLog.record("select", shape, filter, ids, paging, jpql, ships.size(), elapsed);
+        }
+        return ships;
+    }
+
+    @Override
+    public long countMatching(ShipFilter filter, Collection<Long> ids) {
+        int shape = ShipQueryShapes.shapeOf(filter, ids);
+        String jpql = ShipQueryShapes.count(shape);
+        long count;
+        long start = System.nanoTime();
+        long elapsed;
+        try {
+            TypedQuery<Long> query = entityManager.createQuery(jpql, Long.class);
+            ShipQueryShapes.bind(query, filter, ids);
+            count = query.getSingleResult();
+        } finally {
+            elapsed = System.nanoTime() - start;
+            queryMetrics.count(shape).record(elapsed, TimeUnit.NANOSECONDS);
+        }
+
+        if (slowQueryLog.isSlow(elapsed))
+            slowQueryLog.record("count", shape, filter, ids, Collections.emptyMap(), jpql, 1, elapsed);
+        return count;
+    }
+
+    // Fetches one extra row to find out whether there is a next slice, so no count query is needed
+    @Override
+    public Slice<Ship> findSlice(Specification<Ship> specification, Sort sort, int size) {
+        List<Ship> ships = timed("slice", () -> createQuery(specification, sort)
+                        .setMaxResults(size + 1)
+                        .getResultList(),
+                List::size, "sort", sort, "size", size);
+
+        boolean hasNext = ships.size() > size;
+        if (hasNext)
+            ships = ships.subList(0, size);
+
+        return new SliceImpl<>(ships, PageRequest.of(0, size, sort), hasNext);
+    }
+
+    // Selects only the given attributes, so no entity is hydrated or registered in the persistence context
+    @Override
+    public List<Map<String, Object>> findFields(Specification<Ship> specification, Sort sort, List<String> fields, long offset, int limit) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = criteriaBuilder.createTupleQuery();
+        Root<Ship> root = query.from(Ship.class);
+
+        List<Selection<?>> columns = new ArrayList<>();
+        for (String field : fields)
+            columns.add(root.get(field).alias(field));
+        query.multiselect(columns);
+
+        Predicate predicate = specification.toPredicate(root, query, criteriaBuilder);
+        if (predicate != null)
+            query.where(predicate);
+        query.orderBy(QueryUtils.toOrders(sort, root, criteriaBuilder));
+
+        List<Tuple> tuples = timed("fields", () -> entityManager.createQuery(query)
+                        .setFirstResult(Math.toIntExact(offset))
+                        .setMaxResults(limit)
+                        .getResultList(),
+                List::size, "fields", fields, "sort", sort, "offset", offset, "limit", limit);
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (Tuple tuple : tuples) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (String field : fields)
+                row.put(field, tuple.get(field));
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    // Forward-only cursor; has to be consumed and closed inside a transaction. Only opening it is timed, the rows
+    // are not known until the caller has read them
+    @Override
+    public Stream<Ship> streamAll(Specification<Ship> specification, Sort sort, int fetchSize) {
+        return timed("stream", () -> createQuery(specification, sort)
+                        .setHint(QueryHints.HINT_FETCH_SIZE, fetchSize)
+                        .setHint(QueryHints.HINT_READONLY, true)
+                        .getResultStream(),
+                stream -> -1, "sort", sort, "fetchSize", fetchSize);
+    }
+
+    // Plain JDBC batches: the IDENTITY id of Ship turns off Hibernate insert batching
+    @Override
+    @Transactional
+    public void insertAll(List<Ship> ships, int batchSize) {
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                for (int from = 0; from < ships.size(); from += batchSize) {
+                    List<Ship> chunk = ships.subList(from, Math.min(from + batchSize, ships.size()));
+                    for (Ship ship : chunk) {
+                        setColumns(statement, ship);
+                        statement.addBatch();
+                    }
+                    statement.executeBatch();
+
+                    try (ResultSet keys = statement.getGeneratedKeys()) {
+                        for (Ship ship : chunk) {
+                            if (!keys.next())
+                                throw new IllegalStateException("Fewer generated keys than inserted ships");
+                            ship.setId(keys.getLong(1));
+                            ship.setVersion(0L);
+                        }
+                    }
+                }
+            }
+            return null;
+        });
+    }
+
+    // The rows are locked and their versions compared first: a rewritten batch reports SUCCESS_NO_INFO for every row,
+    // which cannot tell an update from a version check that failed
+    @Override
+    @Transactional
+    public void updateAll(List<Ship> ships, int batchSize) {
+        Map<Long, Long> versions = lockVersions(ships, batchSize);
+        for (Ship ship : ships)
+            if (!ship.getVersion().equals(versions.get(ship.getId())))
+                throw new ConflictException("The ship " + ship.getId() + " has been modified concurrently");
+
+        int[][] counts = jdbcTemplate.batchUpdate(UPDATE_SQL, ships, batchSize, (statement, ship) -> {
+            setColumns(statement, ship);
+            statement.setLong(9, ship.getId());
+            statement.setLong(10, ship.getVersion());
+        });
+
+        int index = 0;
+        for (int[] chunk : counts)
+            for (int count : chunk) {
+                Ship ship = ships.get(index++);
+                if (count != Statement.SUCCESS_NO_INFO && count < 1)
+                    throw new ConflictException("The ship " + ship.getId() + " has been modified concurrently");
+            }
+
+        for (Ship ship : ships)
+            ship.setVersion(ship.getVersion() + 1);
+    }
+
+    // In id order, so that batches locking the same rows cannot deadlock each other
+    private Map<Long, Long> lockVersions(List<Ship> ships, int batchSize) {
+        List<Long> ids = new ArrayList<>();
+        for (Ship ship : ships)
+            ids.add(ship.getId());
+        Collections.sort(ids);
+
+        Map<Long, Long> versions = new HashMap<>();
+        for (int from = 0; from < ids.size(); from += batchSize) {
+            List<Long> chunk = ids.subList(from, Math.min(from + batchSize, ids.size()));
+            String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+            jdbcTemplate.query(String.format(LOCK_VERSIONS_SQL, placeholders),
+                    (RowCallbackHandler) resultSet -> versions.put(resultSet.getLong(1), resultSet.getLong(2)),
+                    chunk.toArray());
+        }
+        return versions;
+    }
+
+    @Override
+    public List<ShipGroupRow> groupStats(Specification<Ship> specification) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Object[]> query = criteriaBuilder.createQuery(Object[].class);
+        Root<Ship> root = query.from(Ship.class);
+
+        Expression<Integer> year = criteriaBuilder.function("YEAR", Integer.class, root.get("prodDate"));
+        Expression<Integer> used = criteriaBuilder.<Integer>selectCase()
+                .when(criteriaBuilder.isTrue(root.get("isUsed")), 1)
+                .otherwise(0);
+        List<Selection<?>> columns = new ArrayList<>();
+        columns.add(root.get("planet"));
+        columns.add(root.get("shipType"));
+        columns.add(year);
+        columns.add(criteriaBuilder.count(root));
+        columns.add(criteriaBuilder.sum(used));
+        for (String metric : STATS_METRICS) {
+            columns.add(criteriaBuilder.min(root.get(metric)));
+            columns.add(criteriaBuilder.max(root.get(metric)));
+            columns.add(criteriaBuilder.sum(root.get(metric)));
+        }
+        query.multiselect(columns);
+
+        Predicate predicate = specification.toPredicate(root, query, criteriaBuilder);
+        if (predicate != null)
+            query.where(predicate);
+        query.groupBy(root.get("planet"), root.get("shipType"), year);
+
+        List<ShipGroupRow> rows = new ArrayList<>();
+        for (Object[] row : timed("stats", () -> entityManager.createQuery(query).getResultList(), List::size)) {
+            double[] min = new double[STATS_METRICS.length];
+            double[] max = new double[STATS_METRICS.length];
+            double[] sum = new double[STATS_METRICS.length];
+            for (int i = 0; i < STATS_METRICS.length; i++) {
+                min[i] = ((Number) row[5 + 3 * i]).doubleValue();
+                max[i] = ((Number) row[6 + 3 * i]).doubleValue();
+                sum[i] = ((Number) row[7 + 3 * i]).doubleValue();
+            }
+            rows.add(new ShipGroupRow((String) row[0], (ShipType) row[1], ((Number) row[2]).intValue(),
+                    ((Number) row[3]).longValue(), ((Number) row[4]).longValue(), min, max, sum));
+        }
+        return rows;
+    }
+
+    // Timing and slow query logging for the Specification queries; parameters are name/value pairs for the log
+    private <T> T timed(String query, Supplier<T> execution, ToLongFunction<T> rows, Object... parameters) {
+        T result;
+        long start = System.nanoTime();
+        long elapsed;
+        try {
+            result = execution.get();
+        } finally {
+            elapsed = System.nanoTime() - start;
+            queryMetrics.specification(query).record(elapsed, TimeUnit.NANOSECONDS);
+        }
+
+        if (slowQueryLog.isSlow(elapsed)) {
+            Map<String, Object> logged = new LinkedHashMap<>();
+            for (int i = 0; i < parameters.length; i += 2)
+                logged.put((String) parameters[i], parameters[i + 1] instanceof Sort ? parameters[i + 1].toString() : parameters[i + 1]);
+            slowQueryLog.record(query, logged, rows.applyAsLong(result), elapsed);
+        }
+        return result;
+    }
+
+    private static void setColumns(PreparedStatement statement, Ship ship) throws SQLException {
+        statement.setString(1, ship.getName());
+        statement.setString(2, ship.getPlanet());
+        statement.setString(3, ship.getShipType().name());
+        statement.setTimestamp(4, new Timestamp(ship.getProdDate().getTime()));
+        statement.setBoolean(5, ship.getUsed());
+        statement.setDouble(6, ship.getSpeed());
+        statement.setInt(7, ship.getCrewSize());
+        statement.setDouble(8, ship.getRating());
+    }
+
+    private TypedQuery<Ship> createQuery(Specification<Ship> specification, Sort sort) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Ship> query = criteriaBuilder.createQuery(Ship.class);
+        Root<Ship> root = query.from(Ship.class);
+
+        Predicate predicate = specification.toPredicate(root, query, criteriaBuilder);
+        if (predicate != null)
+            query.where(predicate);
+        query.orderBy(QueryUtils.toOrders(sort, root, criteriaBuilder));
+
+        return entityManager.createQuery(query);
+    }
+}
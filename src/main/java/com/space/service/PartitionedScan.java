@@ -0,0 +1,331 @@
+package com.space.service;
+
+import com.space.config.ReplicaRoutingDataSource;
+import com.space.model.Ship;
+import com.space.model.ShipOrder;
+import com.space.repository.ShipRepository;
+import com.space.specification.ShipSpecification;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+// Splits the id range into partitions that run the same query concurrently, each in a read-only transaction on its
+// own connection, and merges them back in order. The partitions are separate snapshots: a scan racing writes may
+// see a write in one partition and not in another. Off with a single partition.
+// A scan is admitted only once all its partitions have a thread: partitions of concurrent scans queued behind each
+// other's would leave every merge waiting for a partition that never starts
+@Component
+public class PartitionedScan implements DisposableBean {
+
+    private static final String ID_RANGE_SQL = "SELECT MIN(id), MAX(id) FROM ship";
+    private static final long POLL_MILLIS = 100;
+    private static final Object END = new Object();
+
+    private final int partitions;
+    private final int queueSize;
+    private final long timeoutMillis;
+    private final ExecutorService executor;
+    private final Semaphore admission;
+
+    private ShipRepository shipRepository;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readOnlyTransaction;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public PartitionedScan(@Value("${ship.scan.partitions}") int partitions,
+                           @Value("${ship.scan.queue-size}") int queueSize,
+                           @Value("${ship.scan.timeout-seconds}") long timeoutSeconds) {
+        if (queueSize < 1)
+            throw new IllegalArgumentException("ship.scan.queue-size must be positive");
+        if (timeoutSeconds < 1)
+            throw new IllegalArgumentException("ship.scan.timeout-seconds must be positive");
+        this.partitions = partitions;
+        this.queueSize = queueSize;
+        this.timeoutMillis = TimeUnit.SECONDS.toMillis(timeoutSeconds);
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = partitions < 2 ? null : Executors.newFixedThreadPool(partitions, runnable -> {
+            Thread thread = new Thread(runnable, "ship-scan-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.admission = new Semaphore(Math.max(partitions, 1), true);
+    }
+
+    @Autowired
+    public void setShipRepository(ShipRepository shipRepository) {
+        this.shipRepository = shipRepository;
+    }
+
+    @Autowired
+    public void setJdbcTemplate(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Autowired
+    public void setTransactionManager(PlatformTransactionManager transactionManager) {
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        // Hibernate turns it into the query timeout of every statement, interrupting a thread stops none of them
+        this.readOnlyTransaction.setTimeout((int) TimeUnit.MILLISECONDS.toSeconds(timeoutMillis));
+    }
+
+    public boolean isEnabled() {
+        return executor != null;
+    }
+
+    public long count(Specification<Ship> specification) {
+        List<Specification<Ship>> specifications = partition(specification);
+        admit(specifications.size());
+        List<Future<Long>> counts = new ArrayList<>();
+        try {
+            for (Specification<Ship> partition : specifications)
+                counts.add(submit(() -> readOnlyTransaction.execute(status -> shipRepository.count(partition))));
+
+            long total = 0;
+            for (Future<Long> count : counts)
+                total += await(count);
+            return total;
+        } finally {
+            finish(counts);
+            admission.release(specifications.size());
+        }
+    }
+
+    // Every partition streams into a queue of queueSize ships; the calling thread merges the queue heads, for the id
+    // order the partitions simply follow each other
+    public void forEach(Specification<Ship> specification, ShipOrder order, int fetchSize, int clearEvery,
+                        Consumer<Ship> consumer) {
+        Sort sort = Sort.by(order.getFieldName());
+        if (order != ShipOrder.ID)
+            sort = sort.and(Sort.by("id"));
+
+        List<Specification<Ship>> specifications = partition(specification);
+        admit(specifications.size());
+        List<Partition> running = new ArrayList<>();
+        try {
+            for (Specification<Ship> specificationOfPartition : specifications) {
+                Partition partition = new Partition(running.size());
+                Sort partitionSort = sort;
+                partition.future = submit(() -> {
+                    scan(partition, specificationOfPartition, partitionSort, fetchSize, clearEvery);
+                    return null;
+                });
+                running.add(partition);
+            }
+            merge(running, comparator(order), consumer);
+        } finally {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Partition partition : running) {
+                partition.cancelled = true;
+                partition.queue.clear();
+                futures.add(partition.future);
+            }
+            finish(futures);
+            admission.release(specifications.size());
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (executor != null)
+            executor.shutdownNow();
+    }
+
+    // Equal id ranges between the current bounds; the last one is open so that rows inserted meanwhile are not lost
+    private List<Specification<Ship>> partition(Specification<Ship> specification) {
+        long[] range = readOnlyTransaction.execute(status -> jdbcTemplate.queryForObject(ID_RANGE_SQL, (resultSet, rowNum) ->
+                resultSet.getObject(1) == null ? null : new long[]{resultSet.getLong(1), resultSet.getLong(2)}));
+        if (range == null)
+            return Collections.emptyList();
+
+        long width = Math.max((range[1] - range[0] + partitions) / partitions, 1);
+        List<Specification<Ship>> result = new ArrayList<>();
+        for (long from = range[0]; from <= range[1]; from += width) {
+            Long to = from + width > range[1] ? null : from + width - 1;
+            result.add(Specification.where(specification).and(ShipSpecification.shipsByIdRange(from, to)));
+        }
+        return result;
+    }
+
+    private void scan(Partition partition, Specification<Ship> specification, Sort sort, int fetchSize, int clearEvery) {
+        try {
+            readOnlyTransaction.execute(status -> {
+                try (Stream<Ship> ships = shipRepository.streamAll(specification, sort, fetchSize)) {
+                    int count = 0;
+                    for (Ship ship : (Iterable<Ship>) ships::iterator) {
+                        if (!partition.put(ship))
+                            return null;
+                        if (++count % clearEvery == 0)
+                            entityManager.clear();
+                    }
+                }
+                return null;
+            });
+        } catch (RuntimeException e) {
+            partition.error = e;
+        }
+        partition.put(END);
+    }
+
+    private static void merge(List<Partition> partitions, Comparator<Ship> comparator, Consumer<Ship> consumer) {
+        PriorityQueue<Partition> heads = new PriorityQueue<>(Math.max(partitions.size(), 1),
+                Comparator.comparing((Partition partition) -> partition.head, comparator)
+                        .thenComparingInt(partition -> partition.index));
+        for (Partition partition : partitions)
+            if (partition.next())
+                heads.add(partition);
+
+        while (!heads.isEmpty()) {
+            Partition partition = heads.poll();
+            consumer.accept(partition.head);
+            if (partition.next())
+                heads.add(partition);
+        }
+    }
+
+    // The order of the SQL: the order column, nulls first as both MySQL and H2 sort them, then id
+    private static Comparator<Ship> comparator(ShipOrder order) {
+        Comparator<Ship> byId = Comparator.comparing(Ship::getId);
+        switch (order) {
+            case SPEED:
+                return Comparator.comparing(Ship::getSpeed, Comparator.nullsFirst(Comparator.<Double>naturalOrder())).thenComparing(byId);
+            case DATE:
+                return Comparator.comparing(Ship::getProdDate, Comparator.nullsFirst(Comparator.naturalOrder())).thenComparing(byId);
+            case RATING:
+                return Comparator.comparingDouble(Ship::getRating).thenComparing(byId);
+            default:
+                return byId;
+        }
+    }
+
+    private void admit(int tasks) {
+        try {
+            admission.acquire(tasks);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while scanning ships", e);
+        }
+    }
+
+    // The partitions read from the primary whenever the caller does
+    private <T> Future<T> submit(Callable<T> task) {
+        FutureTask<T> future = new FutureTask<>(task);
+        executor.execute(ReplicaRoutingDataSource.propagate(future));
+        return future;
+    }
+
+    private <T> T await(Future<T> future) {
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new IllegalStateException("Timed out scanning ships", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while scanning ships", e);
+        }
+    }
+
+    // The connections are back in the pool before the caller continues, unless a partition is still running at the
+    // timeout: it is interrupted and left to its statement timeout
+    private void finish(List<? extends Future<?>> futures) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        for (Future<?> future : futures) {
+            try {
+                future.get(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+            } catch (ExecutionException | CancellationException e) {
+                // Reported by the merge or the count already
+            } catch (TimeoutException e) {
+                future.cancel(true);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                future.cancel(true);
+            }
+        }
+    }
+
+    private class Partition {
+
+        private final int index;
+        private final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(queueSize);
+        private Future<?> future;
+        private Ship head;
+        private volatile boolean cancelled;
+        private volatile RuntimeException error;
+
+        Partition(int index) {
+            this.index = index;
+        }
+
+        // False once the merge has given up on this partition
+        boolean put(Object item) {
+            try {
+                while (!queue.offer(item, POLL_MILLIS, TimeUnit.MILLISECONDS))
+                    if (cancelled)
+                        return false;
+                return !cancelled;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        // Moves head to the next ship, false at the end of the partition. A partition stuck past the timeout is
+        // interrupted, awaiting it would hold up the caller as well
+        boolean next() {
+            Object item;
+            try {
+                item = queue.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while scanning ships", e);
+            }
+            if (item == null) {
+                future.cancel(true);
+                throw new IllegalStateException("Timed out scanning ships");
+            }
+            if (item != END) {
+                head = (Ship) item;
+                return true;
+            }
+            if (error != null)
+                throw error;
+            return false;
+        }
+    }
+}
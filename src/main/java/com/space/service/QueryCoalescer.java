@@ -0,0 +1,165 @@
+package com.space.service;
+
+import com.space.model.Ship;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// Single flight for identical list and count queries: the first request for a key runs the query, the ones arriving
+// while it runs, or up to lingerMillis after it finished, get the same result. Any ship change ends every flight
+// for new requests, so nothing read before a write is handed out after it
+@Component
+@Order(50)
+public class QueryCoalescer implements ShipChangeListener, DisposableBean {
+
+    static final String COALESCING_COUNTER = "ship.query.coalescing";
+
+    private final boolean enabled;
+    private final long lingerNanos;
+    private final ConcurrentMap<Object, Flight> flights = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Counter[]> counters = new ConcurrentHashMap<>();
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder shared = new LongAdder();
+    private final ScheduledExecutorService expiry;
+
+    private MeterRegistry meterRegistry;
+
+    public QueryCoalescer(@Value("${ship.coalescing.enabled}") boolean enabled,
+                          @Value("${ship.coalescing.linger-ms}") long lingerMillis) {
+        this.enabled = enabled;
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+        this.expiry = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "query-coalescer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // The ratio is of all queries since the start: shared / (executed + shared)
+    @Autowired
+    public void setMeterRegistry(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        Gauge.builder(COALESCING_COUNTER + ".ratio", this, QueryCoalescer::ratio).register(meterRegistry);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String query, Object key, Supplier<T> loader) {
+        if (!enabled)
+            return loader.get();
+
+        Flight flight = new Flight();
+        Flight existing;
+        while ((existing = flights.putIfAbsent(key, flight)) != null) {
+            if (!existing.isExpired()) {
+                count(query, 1, shared);
+                return (T) existing.join();
+            }
+            flights.remove(key, existing);
+        }
+
+        count(query, 0, executed);
+        T result;
+        try {
+            result = loader.get();
+        } catch (RuntimeException | Error e) {
+            flights.remove(key, flight);
+            flight.result.completeExceptionally(e);
+            throw e;
+        }
+
+        flight.expiresAt = System.nanoTime() + lingerNanos;
+        flight.result.complete(result);
+        if (lingerNanos == 0)
+            flights.remove(key, flight);
+        else
+            expiry.schedule(() -> flights.remove(key, flight), lingerNanos, TimeUnit.NANOSECONDS);
+        return result;
+    }
+
+    public void clear() {
+        flights.clear();
+    }
+
+    @Override
+    public void shipCreated(Ship ship) {
+        clear();
+    }
+
+    @Override
+    public void shipUpdated(Ship before, Ship after) {
+        clear();
+    }
+
+    @Override
+    public void shipDeleted(Ship ship) {
+        clear();
+    }
+
+    @Override
+    public void shipsCreated(List<Ship> ships) {
+        clear();
+    }
+
+    @Override
+    public void shipsUpdated(List<Ship[]> changes) {
+        clear();
+    }
+
+    @Override
+    public void destroy() {
+        expiry.shutdownNow();
+    }
+
+    private double ratio() {
+        double total = executed.sum() + shared.sum();
+        return total == 0 ? 0 : shared.sum() / total;
+    }
+
+    private void count(String query, int role, LongAdder total) {
+        total.increment();
+        Counter[] byRole = counters.get(query);
+        if (byRole == null)
+            byRole = counters.computeIfAbsent(query, key -> new Counter[]{
+                    Counter.builder(COALESCING_COUNTER).tag("query", key).tag("role", "executed").register(meterRegistry),
+                    Counter.builder(COALESCING_COUNTER).tag("query", key).tag("role", "shared").register(meterRegistry)});
+        byRole[role].increment();
+    }
+
+    private static class Flight {
+
+        private final CompletableFuture<Object> result = new CompletableFuture<>();
+        private volatile long expiresAt;
+
+        boolean isExpired() {
+            return result.isDone() && System.nanoTime() - expiresAt > 0;
+        }
+
+        Object join() {
+            try {
+                return result.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException)
+                    throw (RuntimeException) e.getCause();
+                if (e.getCause() instanceof Error)
+                    throw (Error) e.getCause();
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,383 @@
+package com.space.service;
+
+import com.space.exceptions.BadRequestException;
+import com.space.exceptions.ConflictException;
+import com.space.model.RatingJobStatus;
+import com.space.model.RatingJobStatus.State;
+import com.space.model.Ship;
+import com.space.model.ShipChange;
+import com.space.model.ShipDates;
+import com.space.model.ShipType;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+
+// Rewrites every stored rating for a new current year in id order, one chunk per transaction together with the
+// checkpoint, so a paused, failed or interrupted run continues after the last committed chunk. Each write is
+// conditional on the version read with the chunk: a ship edited in between already got the new year's rating
+@Component
+public class RatingRecomputeJob implements SmartInitializingSingleton, DisposableBean {
+
+    private static final String SELECT_CHUNK_SQL = "SELECT id, name, planet, shipType, prodDate, isUsed, speed, crewSize, "
+            + "rating, version FROM ship WHERE id > ? ORDER BY id LIMIT ?";
+    private static final String UPDATE_SQL = "UPDATE ship SET rating = ?, version = version + 1 WHERE id = ? AND version = ?";
+    private static final String LOCK_VERSIONS_SQL = "SELECT id, version FROM ship WHERE id IN (%s) ORDER BY id FOR UPDATE";
+    private static final String COUNT_SQL = "SELECT COUNT(*) FROM ship";
+    private static final String LATEST_PROD_DATE_SQL = "SELECT MAX(prodDate) FROM ship";
+    private static final String LOAD_SQL = "SELECT currentYear, lastId, processed, updated, total, state FROM rating_job WHERE id = 1";
+    private static final String SAVE_SQL = "UPDATE rating_job SET currentYear = ?, lastId = ?, processed = ?, updated = ?, "
+            + "total = ?, state = ? WHERE id = 1";
+    private static final String INSERT_SQL = "INSERT INTO rating_job (currentYear, lastId, processed, updated, total, state, id) "
+            + "VALUES (?, ?, ?, ?, ?, ?, 1)";
+
+    private static final int SPLIT_THRESHOLD = 256;
+
+    private final int chunkSize;
+    private final int maxRowsPerSecond;
+    private final boolean resumeOnStartup;
+    private final ExecutorService runner;
+    private final ForkJoinPool pool;
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private ShipChangeFeed changeFeed;
+    private List<ShipChangeListener> changeListeners = Collections.emptyList();
+
+    private volatile int currentYear;
+    private volatile boolean pauseRequested;
+    private volatile boolean stopping;
+
+    // Guarded by this
+    private State state = State.IDLE;
+    private long lastId;
+    private long processed;
+    private long updated;
+    private long total;
+    private String error;
+
+    public RatingRecomputeJob(@Value("${ship.rating.current-year}") int currentYear,
+                              @Value("${ship.rating-job.chunk-size}") int chunkSize,
+                              @Value("${ship.rating-job.parallelism}") int parallelism,
+                              @Value("${ship.rating-job.max-rows-per-second}") int maxRowsPerSecond,
+                              @Value("${ship.rating-job.resume-on-startup}") boolean resumeOnStartup) {
+        if (chunkSize < 1)
+            throw new IllegalArgumentException("ship.rating-job.chunk-size must be positive");
+        this.currentYear = currentYear;
+        this.chunkSize = chunkSize;
+        this.maxRowsPerSecond = maxRowsPerSecond;
+        this.resumeOnStartup = resumeOnStartup;
+        this.runner = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rating-job");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @Autowired
+    public void setJdbcTemplate(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Autowired
+    public void setTransactionManager(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Autowired
+    public void setChangeFeed(ShipChangeFeed changeFeed) {
+        this.changeFeed = changeFeed;
+    }
+
+    @Autowired(required = false)
+    public void setChangeListeners(List<ShipChangeListener> changeListeners) {
+        this.changeListeners = changeListeners;
+    }
+
+    @Override
+    public synchronized void afterSingletonsInstantiated() {
+        List<RatingJobStatus> rows = jdbcTemplate.query(LOAD_SQL, (resultSet, rowNum) -> new RatingJobStatus(
+                State.valueOf(resultSet.getString(6)), resultSet.getInt(1), resultSet.getLong(2),
+                resultSet.getLong(3), resultSet.getLong(4), resultSet.getLong(5), null));
+        if (rows.isEmpty())
+            return;
+
+        RatingJobStatus checkpoint = rows.get(0);
+        currentYear = checkpoint.getCurrentYear();
+        lastId = checkpoint.getLastId();
+        processed = checkpoint.getProcessed();
+        updated = checkpoint.getUpdated();
+        total = checkpoint.getTotal();
+        state = checkpoint.getState();
+        if (state == State.RUNNING) {
+            if (resumeOnStartup)
+                runner.execute(this::run);
+            else
+                transition(State.PAUSED);
+        }
+    }
+
+    // The run stops after its current chunk; an interrupted run stays RUNNING in the checkpoint
+    @Override
+    public void destroy() throws InterruptedException {
+        stopping = true;
+        runner.shutdown();
+        runner.awaitTermination(30, TimeUnit.SECONDS);
+        pool.shutdown();
+    }
+
+    public int getCurrentYear() {
+        return currentYear;
+    }
+
+    public synchronized RatingJobStatus status() {
+        return new RatingJobStatus(state, currentYear, lastId, processed, updated, total, error);
+    }
+
+    public synchronized RatingJobStatus start(int year) {
+        if (state == State.RUNNING)
+            throw new ConflictException("The rating job is already running");
+        if (year < ShipDates.MIN_YEAR || year < latestProductionYear())
+            throw new BadRequestException("Incorrect the current year");
+
+        currentYear = year;
+        lastId = 0;
+        processed = 0;
+        updated = 0;
+        total = jdbcTemplate.queryForObject(COUNT_SQL, Long.class);
+        error = null;
+        pauseRequested = false;
+        transition(State.RUNNING);
+        runner.execute(this::run);
+        return status();
+    }
+
+    // Production dates are validated against the current year, so a new one must not precede any stored ship
+    private int latestProductionYear() {
+        Timestamp latest = jdbcTemplate.queryForObject(LATEST_PROD_DATE_SQL, Timestamp.class);
+        return latest == null ? ShipDates.MIN_YEAR : ShipDates.year(latest.getTime());
+    }
+
+    public synchronized RatingJobStatus pause() {
+        if (state != State.RUNNING)
+            throw new ConflictException("The rating job is not running");
+        pauseRequested = true;
+        return status();
+    }
+
+    public synchronized RatingJobStatus resume() {
+        if (state == State.RUNNING) {
+            pauseRequested = false;
+            return status();
+        }
+        if (state != State.PAUSED && state != State.FAILED)
+            throw new ConflictException("There is no rating job to resume");
+
+        error = null;
+        pauseRequested = false;
+        transition(State.RUNNING);
+        runner.execute(this::run);
+        return status();
+    }
+
+    private void run() {
+        int year = currentYear;
+        long startNanos = System.nanoTime();
+        long processedAtStart;
+        synchronized (this) {
+            processedAtStart = processed;
+        }
+
+        try {
+            while (!stopping) {
+                long from;
+                synchronized (this) {
+                    if (pauseRequested) {
+                        pauseRequested = false;
+                        transition(State.PAUSED);
+                        return;
+                    }
+                    from = lastId;
+                }
+
+                List<Ship> chunk = jdbcTemplate.query(SELECT_CHUNK_SQL, RatingRecomputeJob::mapShip, from, chunkSize);
+                if (chunk.isEmpty()) {
+                    synchronized (this) {
+                        transition(State.DONE);
+                    }
+                    return;
+                }
+
+                List<Ship[]> changes = write(chunk, recompute(chunk, year));
+                if (!changes.isEmpty())
+                    changeListeners.forEach(listener -> listener.shipsUpdated(changes));
+                throttle(startNanos, processedSince(processedAtStart));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                error = e.toString();
+                transition(State.FAILED);
+            }
+        }
+    }
+
+    private double[] recompute(List<Ship> chunk, int year) {
+        double[] ratings = new double[chunk.size()];
+        pool.invoke(new RatingTask(chunk, ratings, year, 0, chunk.size()));
+        return ratings;
+    }
+
+    // Writes the changed ratings and the checkpoint in one transaction, returns the before/after pairs written
+    private List<Ship[]> write(List<Ship> chunk, double[] ratings) {
+        List<Ship[]> changes = new ArrayList<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            Ship ship = chunk.get(i);
+            if (Double.compare(ratings[i], ship.getRating()) == 0)
+                continue;
+
+            Ship after = new Ship(ship);
+            after.setRating(ratings[i]);
+            after.setVersion(ship.getVersion() + 1);
+            changes.add(new Ship[]{ship, after});
+        }
+        long chunkLastId = chunk.get(chunk.size() - 1).getId();
+
+        List<Ship[]> written = transactionTemplate.execute(transaction -> {
+            List<Ship[]> unchanged = unchanged(changes);
+            List<Object[]> arguments = new ArrayList<>();
+            for (Ship[] change : unchanged)
+                arguments.add(new Object[]{change[1].getRating(), change[0].getId(), change[0].getVersion()});
+
+            List<Ship[]> result = new ArrayList<>();
+            int[] counts = arguments.isEmpty() ? new int[0] : jdbcTemplate.batchUpdate(UPDATE_SQL, arguments);
+            for (int i = 0; i < counts.length; i++)
+                if (counts[i] > 0 || counts[i] == Statement.SUCCESS_NO_INFO)
+                    result.add(unchanged.get(i));
+            for (Ship[] change : result)
+                changeFeed.record(ShipChange.Type.UPDATED, change[1]);
+
+            synchronized (this) {
+                save(currentYear, chunkLastId, processed + chunk.size(), updated + result.size(), total, state);
+            }
+            return result;
+        });
+
+        synchronized (this) {
+            lastId = chunkLastId;
+            processed += chunk.size();
+            updated += written.size();
+        }
+        return written;
+    }
+
+    // Locks the rows and keeps those still at the version read with the chunk; a rewritten batch reports
+    // SUCCESS_NO_INFO for every row, the lock is what makes those updates certain. Rows edited since are left to the
+    // edit, the chunk holds their old values
+    private List<Ship[]> unchanged(List<Ship[]> changes) {
+        if (changes.isEmpty())
+            return changes;
+
+        Map<Long, Long> versions = new HashMap<>();
+        Object[] ids = new Object[changes.size()];
+        for (int i = 0; i < ids.length; i++)
+            ids[i] = changes.get(i)[0].getId();
+        jdbcTemplate.query(String.format(LOCK_VERSIONS_SQL, String.join(", ", Collections.nCopies(ids.length, "?"))),
+                (RowCallbackHandler) resultSet -> versions.put(resultSet.getLong(1), resultSet.getLong(2)), ids);
+
+        List<Ship[]> result = new ArrayList<>();
+        for (Ship[] change : changes)
+            if (change[0].getVersion().equals(versions.get(change[0].getId())))
+                result.add(change);
+        return result;
+    }
+
+    private synchronized long processedSince(long processedAtStart) {
+        return processed - processedAtStart;
+    }
+
+    private void throttle(long startNanos, long rows) throws InterruptedException {
+        if (maxRowsPerSecond <= 0)
+            return;
+        long wait = startNanos + rows * TimeUnit.SECONDS.toNanos(1) / maxRowsPerSecond - System.nanoTime();
+        if (wait > 0)
+            TimeUnit.NANOSECONDS.sleep(wait);
+    }
+
+    // Callers hold the lock
+    private void transition(State state) {
+        this.state = state;
+        save(currentYear, lastId, processed, updated, total, state);
+    }
+
+    private void save(int year, long lastId, long processed, long updated, long total, State state) {
+        Object[] arguments = {year, lastId, processed, updated, total, state.name()};
+        if (jdbcTemplate.update(SAVE_SQL, arguments) == 0)
+            jdbcTemplate.update(INSERT_SQL, arguments);
+    }
+
+    private static Ship mapShip(ResultSet resultSet, int rowNum) throws SQLException {
+        Ship ship = new Ship();
+        ship.setId(resultSet.getLong(1));
+        ship.setName(resultSet.getString(2));
+        ship.setPlanet(resultSet.getString(3));
+        ship.setShipType(ShipType.valueOf(resultSet.getString(4)));
+        ship.setProdDate(resultSet.getTimestamp(5));
+        ship.setUsed(resultSet.getBoolean(6));
+        ship.setSpeed(resultSet.getDouble(7));
+        ship.setCrewSize(resultSet.getInt(8));
+        ship.setRating(resultSet.getDouble(9));
+        ship.setVersion(resultSet.getLong(10));
+        return ship;
+    }
+
+    private static class RatingTask extends RecursiveAction {
+
+        private final List<Ship> ships;
+        private final double[] ratings;
+        private final int year;
+        private final int from;
+        private final int to;
+
+        RatingTask(List<Ship> ships, double[] ratings, int year, int from, int to) {
+            this.ships = ships;
+            this.ratings = ratings;
+            this.year = year;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SPLIT_THRESHOLD) {
+                for (int i = from; i < to; i++)
+                    ratings[i] = ShipServiceImpl.calculateRating(ships.get(i), year);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new RatingTask(ships, ratings, year, from, middle), new RatingTask(ships, ratings, year, middle, to));
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package com.space.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.space.exceptions.ChangesExpiredException;
+import com.space.model.Ship;
+import com.space.model.ShipChange;
+import com.space.model.ShipChange.Type;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Every committed create, edit and delete numbered in commit order and kept in a ring of the last capacity changes.
+// With a log file the changes are also appended there as JSON lines, and a restart continues the numbering and the
+// ring from its tail. Watchers are woken on one background thread, never on the thread that wrote the ship
+@Component
+public class ShipChangeFeed implements DisposableBean {
+
+    private final ShipChange[] ring;
+    private final int mask;
+    private final ObjectMapper mapper;
+    // Held by a writing transaction from just before its commit until its changes are numbered
+    private final ReentrantLock commitLock = new ReentrantLock();
+    private final List<Runnable> watchers = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean wakeUpPending = new AtomicBoolean();
+    private final ExecutorService dispatcher;
+
+    // Guarded by this
+    private long sequence;
+    private BufferedWriter log;
+
+    public ShipChangeFeed(@Value("${ship.changes.capacity}") int capacity,
+                          @Value("${ship.changes.log-file}") String logFile,
+                          ObjectMapper mapper) throws IOException {
+        if (capacity < 1)
+            throw new IllegalArgumentException("ship.changes.capacity must be positive");
+        ring = new ShipChange[Integer.highestOneBit(capacity * 2 - 1)];
+        mask = ring.length - 1;
+        this.mapper = mapper;
+
+        if (!logFile.trim().isEmpty()) {
+            Path path = Paths.get(logFile.trim());
+            if (Files.exists(path))
+                replay(path);
+            log = Files.newBufferedWriter(path, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+
+        dispatcher = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ship-changes");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void addWatcher(Runnable watcher) {
+        watchers.add(watcher);
+    }
+
+    public void removeWatcher(Runnable watcher) {
+        watchers.remove(watcher);
+    }
+
+    public synchronized long lastSequence() {
+        return sequence;
+    }
+
+    // Changes after the given sequence, oldest first. A sequence that has left the ring, or one this feed never
+    // handed out, cannot be resumed from
+    public synchronized List<ShipChange> since(long after, int limit) {
+        long first = Math.max(sequence - ring.length, 0);
+        if (after < first || after > sequence)
+            throw new ChangesExpiredException("Changes after " + after + " are no longer available");
+
+        long last = Math.min(sequence, after + limit);
+        List<ShipChange> changes = new ArrayList<>((int) (last - after));
+        for (long i = after + 1; i <= last; i++) {
+            ShipChange change = ring[(int) (i & mask)];
+            // A replayed log that starts after sequence 1 leaves the older slots empty
+            if (change == null || change.getSequence() != i)
+                throw new ChangesExpiredException("Changes after " + after + " are no longer available");
+            changes.add(change);
+        }
+        return changes;
+    }
+
+    // Runs the watchers on the dispatcher thread; wake-ups arriving before they have run are coalesced
+    public void wakeUp() {
+        if (wakeUpPending.compareAndSet(false, true))
+            dispatcher.execute(() -> {
+                wakeUpPending.set(false);
+                watchers.forEach(Runnable::run);
+            });
+    }
+
+    // Called by the writers inside the transaction that makes the change. The changes of a transaction are numbered
+    // once it commits, holding the commit lock across the commit, so the numbering is the commit order; a rolled back
+    // change is never seen. Writers flush before recording: a statement still flushed by the commit could wait for a
+    // row lock of a writer that in turn waits for the commit lock
+    public void record(Type type, Ship ship) {
+        Ship snapshot = new Ship(ship);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            commitLock.lock();
+            try {
+                append(Collections.singletonList(new Object[]{type, snapshot}));
+            } finally {
+                commitLock.unlock();
+            }
+            return;
+        }
+
+        Pending pending = (Pending) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new Pending();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        pending.changes.add(new Object[]{type, snapshot});
+    }
+
+    @Override
+    public synchronized void destroy() throws IOException {
+        dispatcher.shutdownNow();
+        if (log != null)
+            log.close();
+    }
+
+    private void append(List<Object[]> changes) {
+        synchronized (this) {
+            long timestamp = System.currentTimeMillis();
+            for (Object[] pending : changes) {
+                ShipChange change = new ShipChange(sequence + 1, (Type) pending[0], timestamp, (Ship) pending[1]);
+                ring[(int) (change.getSequence() & mask)] = change;
+                sequence = change.getSequence();
+                if (log != null)
+                    write(change);
+            }
+        }
+        wakeUp();
+    }
+
+    // The ship is already committed and the other listeners still have to run, so a failing log is given up on and
+    // the feed continues from memory
+    private void write(ShipChange change) {
+        try {
+            log.write(mapper.writeValueAsString(change));
+            log.write('\n');
+            log.flush();
+        } catch (IOException e) {
+            try {
+                log.close();
+            } catch (IOException ignored) {
+            }
+            log = null;
+        }
+    }
+
+    // A crash in the middle of a write leaves a torn last line. It is skipped and cut off, otherwise the next change
+    // would be appended to it and be unreadable as well
+    private void replay(Path path) throws IOException {
+        long offset = 0;
+        long valid = 0;
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                offset += line.getBytes(StandardCharsets.UTF_8).length + 1;
+                if (line.isEmpty())
+                    continue;
+                ShipChange change;
+                try {
+                    change = mapper.readValue(line, ShipChange.class);
+                } catch (JsonProcessingException e) {
+                    continue;
+                }
+                ring[(int) (change.getSequence() & mask)] = change;
+                sequence = change.getSequence();
+                valid = offset;
+            }
+        }
+
+        long size = Files.size(path);
+        if (valid < size) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                channel.truncate(valid);
+            }
+        } else if (valid > size) {
+            // The last change was written but its line break was not
+            Files.write(path, new byte[]{'\n'}, StandardOpenOption.APPEND);
+        }
+    }
+
+    private class Pending extends TransactionSynchronizationAdapter {
+
+        private final List<Object[]> changes = new ArrayList<>();
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            commitLock.lock();
+        }
+
+        @Override
+        public void afterCommit() {
+            append(changes);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(ShipChangeFeed.this);
+            if (commitLock.isHeldByCurrentThread())
+                commitLock.unlock();
+        }
+    }
+}
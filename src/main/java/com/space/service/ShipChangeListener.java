@@ -0,0 +1,29 @@
+package com.space.service;
+
+import com.space.model.Ship;
+
+import java.util.List;
+
+public interface ShipChangeListener {
+
+    default void shipCreated(Ship ship) {
+    }
+
+    default void shipUpdated(Ship before, Ship after) {
+    }
+
+    // A batch create, delivered once like shipsUpdated
+    default void shipsCreated(List<Ship> ships) {
+        for (Ship ship : ships)
+            shipCreated(ship);
+    }
+
+    default void shipDeleted(Ship ship) {
+    }
+
+    // A batch edit or a rating job chunk as before/after pairs; listeners doing fleet-wide work per event do it once
+    default void shipsUpdated(List<Ship[]> changes) {
+        for (Ship[] change : changes)
+            shipUpdated(change[0], change[1]);
+    }
+}
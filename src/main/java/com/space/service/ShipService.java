@@ -1,11 +1,18 @@
 package com.space.service;
 
 import com.space.model.Ship;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import com.space.model.ShipBatchResult;
+import com.space.model.ShipOrder;
+import com.space.model.ShipStats;
+import com.space.specification.ShipCursor;
+import com.space.specification.ShipFilter;
+import com.space.specification.ShipProjection;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.domain.Specification;
 
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 public interface ShipService {
 
@@ -13,11 +20,27 @@ public interface ShipService {
 
     void createShip(Ship ship);
 
+    ShipBatchResult createShips(List<Ship> ships);
+
     void deleteShip(Long id);
 
     List<Ship> getAllShips(Specification<Ship> specification);
 
-    Page<Ship> getAllShips(Specification<Ship> specification, Pageable sortedByName);
+    List<Ship> getAllShips(ShipFilter filter, ShipOrder order, int pageNumber, int pageSize);
+
+    Slice<Ship> getShipsAfter(ShipFilter filter, ShipOrder order, ShipCursor cursor, int pageSize);
+
+    List<Map<String, Object>> getShipFields(ShipFilter filter, ShipOrder order, int pageNumber, int pageSize, ShipProjection projection);
+
+    Slice<Map<String, Object>> getShipFieldsAfter(ShipFilter filter, ShipOrder order, ShipCursor cursor, int pageSize, ShipProjection projection);
+
+    void exportShips(ShipFilter filter, ShipOrder order, Consumer<Ship> consumer);
+
+    long countShips(ShipFilter filter);
+
+    ShipStats getStats(ShipFilter filter);
+
+    Ship editShip(Long id, Ship ship, Long expectedVersion);
 
-    Ship editShip(Long id, Ship ship);
+    ShipBatchResult editShips(List<Ship> ships);
 }
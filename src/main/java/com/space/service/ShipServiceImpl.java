@@ -1,20 +1,53 @@
 package com.space.service;
 
+import com.space.cache.ShipCache;
+import com.space.cache.ShipQueryCache;
+import com.space.config.ReplicaReads;
+import com.space.config.ReplicaRoutingDataSource;
 import com.space.exceptions.BadRequestException;
+import com.space.exceptions.ConflictException;
+import com.space.exceptions.PreconditionFailedException;
 import com.space.exceptions.ShipNotFoundException;
+import com.space.index.FleetIndex;
+import com.space.index.NgramIndex;
 import com.space.model.Ship;
+import com.space.model.ShipBatchResult;
+import com.space.model.ShipChange;
+import com.space.model.ShipDates;
+import com.space.model.ShipOrder;
+import com.space.model.ShipStats;
 import com.space.repository.ShipRepository;
+import com.space.specification.ShipCursor;
+import com.space.specification.ShipFilter;
+import com.space.specification.ShipProjection;
+import com.space.specification.ShipSpecification;
+import com.space.stats.FleetStatistics;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
-
-import java.math.BigDecimal;
-import java.math.RoundingMode;
-import java.util.Calendar;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class ShipServiceImpl implements ShipService{
@@ -22,68 +55,323 @@ public class ShipServiceImpl implements ShipService{
     @Autowired
     private ShipRepository shipRepository;
 
+    @Autowired
+    private ShipCache shipCache;
+
+    @Autowired
+    private FleetIndex fleetIndex;
+
+    @Autowired
+    private NgramIndex ngramIndex;
+
+    @Autowired
+    private FleetStatistics fleetStatistics;
+
+    @Autowired
+    private RatingRecomputeJob ratingJob;
+
+    @Autowired
+    private ShipQueryCache queryCache;
+
+    @Autowired
+    private QueryCoalescer queryCoalescer;
+
+    @Autowired
+    private PartitionedScan partitionedScan;
+
+    @Autowired
+    private ShipChangeFeed changeFeed;
+
+    @Autowired
+    private ReplicaReads replicaReads;
+
+    @Autowired(required = false)
+    private List<ShipChangeListener> changeListeners = Collections.emptyList();
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private TransactionTemplate readOnlyTransaction;
+    private TransactionTemplate writeTransaction;
+
+    @Value("${ship.export.fetch-size}")
+    private int exportFetchSize;
+
+    @Value("${ship.export.clear-every}")
+    private int exportClearEvery;
+
+    @Value("${ship.batch.size}")
+    private int batchSize;
+
+    @Autowired
+    public void setTransactionManager(PlatformTransactionManager transactionManager) {
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+        writeTransaction = new TransactionTemplate(transactionManager);
+    }
 
     @Override
+    @Transactional(readOnly = true)
     public Ship getShip(Long id) {
-        Optional<Ship> optionalShip = shipRepository.findById(id);
-        if (optionalShip.isPresent())
-            return optionalShip.get();
+        Ship ship = findShip(id);
+        if (ship != null)
+            return ship;
         else
             throw new ShipNotFoundException("The ship is not found");
     }
 
     @Override
     public void createShip(Ship ship) {
-        if (ship.getName() == null
-                || ship.getPlanet() == null
-                || ship.getShipType() == null
-                || ship.getProdDate() == null
-                || ship.getSpeed() == null
-                || ship.getCrewSize() == null)
-            throw new BadRequestException("One of the Params is null");
+        prepareNewShip(ship);
+
+        writeTransaction.execute(status -> {
+            shipRepository.saveAndFlush(ship);
+            changeFeed.record(ShipChange.Type.CREATED, ship);
+            return null;
+        });
+        changeListeners.forEach(listener -> listener.shipCreated(ship));
+    }
 
-        checkValidShip(ship);
+    @Override
+    public ShipBatchResult createShips(List<Ship> ships) {
+        ShipBatchResult result = new ShipBatchResult();
+        List<Ship> validShips = new ArrayList<>();
+
+        for (int i = 0; i < ships.size(); i++) {
+            Ship ship = ships.get(i);
+            try {
+                prepareNewShip(ship);
+                ship.setId(null);
+                validShips.add(ship);
+            } catch (BadRequestException e) {
+                result.addError(i, null, e.getMessage());
+            }
+        }
 
-        if (ship.getUsed() == null)
-            ship.setUsed(false);
-        else
-            ship.setUsed(ship.getUsed());
+        writeTransaction.execute(status -> {
+            shipRepository.insertAll(validShips, batchSize);
+            for (Ship ship : validShips)
+                changeFeed.record(ShipChange.Type.CREATED, ship);
+            return null;
+        });
+        if (!validShips.isEmpty())
+            changeListeners.forEach(listener -> listener.shipsCreated(validShips));
+
+        result.setShips(validShips);
+        return result;
+    }
 
-        ship.setRating(calculateRating(ship));
+    @Override
+    public void deleteShip(Long id) {
+        // Locked so that the ship deleted is the one a concurrent edit left, not an older read
+        Ship deleted = writeTransaction.execute(status -> {
+            Ship ship = shipRepository.findForUpdate(id)
+                    .orElseThrow(() -> new ShipNotFoundException("The ship is not found"));
+            shipRepository.delete(ship);
+            shipRepository.flush();
+            changeFeed.record(ShipChange.Type.DELETED, ship);
+            return new Ship(ship);
+        });
+        changeListeners.forEach(listener -> listener.shipDeleted(deleted));
+    }
+
+    @Override
+    public List<Ship> getAllShips(Specification<Ship> specification) {
+        if (!partitionedScan.isEnabled())
+            return readOnlyTransaction.execute(status -> shipRepository.findAll(specification));
 
-        shipRepository.saveAndFlush(ship);
+        List<Ship> ships = new ArrayList<>();
+        partitionedScan.forEach(specification, ShipOrder.ID, exportFetchSize, exportClearEvery, ships::add);
+        return ships;
     }
 
+    // Cached and coalesced before the transaction starts, requests sharing a query do not hold a connection each
+    // while waiting
     @Override
-    public void deleteShip(Long id) {
-        Optional<Ship> optional = shipRepository.findById(id);
-        if (!optional.isPresent())
-            throw new ShipNotFoundException("The ship is not found");
+    public List<Ship> getAllShips(ShipFilter filter, ShipOrder order, int pageNumber, int pageSize) {
+        List<Object> key = Arrays.asList("select", filter, order, pageNumber, pageSize);
+        return cached(filter, key, () -> queryCoalescer.execute("select", flightKey(key),
+                () -> readOnlyTransaction.execute(status -> findPage(filter, order, pageNumber, pageSize))));
+    }
 
-        shipRepository.deleteById(id);
+    @Override
+    @Transactional(readOnly = true)
+    public Slice<Ship> getShipsAfter(ShipFilter filter, ShipOrder order, ShipCursor cursor, int pageSize) {
+        return replicaReads.read(() -> shipRepository.findSlice(
+                specificationOf(filter).and(ShipSpecification.shipsAfterCursor(cursor)), sortOf(order), pageSize));
     }
 
     @Override
-    public List<Ship> getAllShips(Specification<Ship> specification) {
-        return shipRepository.findAll(specification);
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> getShipFields(ShipFilter filter, ShipOrder order, int pageNumber, int pageSize,
+                                                   ShipProjection projection) {
+        PageRequest pageRequest = PageRequest.of(pageNumber, pageSize, Sort.by(order.getFieldName()));
+        if (fleetIndex.canAnswer(filter))
+            return fleetIndex.find(filter, order, pageNumber, pageSize).stream()
+                    .map(projection::apply)
+                    .collect(Collectors.toList());
+
+        return replicaReads.read(() -> shipRepository.findFields(specificationOf(filter), pageRequest.getSort(),
+                projection.getFields(), pageRequest.getOffset(), pageSize));
     }
 
+    // The rows also carry id and the order column, whatever the projection, so that the caller can build the next cursor
     @Override
-    public Page<Ship> getAllShips(Specification<Ship> specification, Pageable sortedByName) {
-        return shipRepository.findAll(specification, sortedByName);
+    @Transactional(readOnly = true)
+    public Slice<Map<String, Object>> getShipFieldsAfter(ShipFilter filter, ShipOrder order, ShipCursor cursor, int pageSize,
+                                                         ShipProjection projection) {
+        Sort sort = sortOf(order);
+        List<Map<String, Object>> rows = replicaReads.read(() -> shipRepository.findFields(
+                specificationOf(filter).and(ShipSpecification.shipsAfterCursor(cursor)), sort,
+                projection.with("id", order.getFieldName()).getFields(), 0, pageSize + 1));
+
+        boolean hasNext = rows.size() > pageSize;
+        if (hasNext)
+            rows = rows.subList(0, pageSize);
+
+        return new SliceImpl<>(rows, PageRequest.of(0, pageSize, sort), hasNext);
     }
 
+    // Partitioned scans run on their own transactions, the caller does not hold a connection of its own meanwhile
     @Override
-    public Ship editShip(Long id, Ship ship) {
-        checkValidShip(ship);
+    public void exportShips(ShipFilter filter, ShipOrder order, Consumer<Ship> consumer) {
+        if (partitionedScan.isEnabled()) {
+            partitionedScan.forEach(specificationOf(filter), order, exportFetchSize, exportClearEvery, consumer);
+            return;
+        }
 
-        Optional<Ship> optional = shipRepository.findById(id);
+        readOnlyTransaction.execute(status -> {
+            try (Stream<Ship> ships = shipRepository.streamAll(specificationOf(filter), sortOf(order), exportFetchSize)) {
+                int count = 0;
+                for (Ship ship : (Iterable<Ship>) ships::iterator) {
+                    consumer.accept(ship);
+                    if (++count % exportClearEvery == 0)
+                        entityManager.clear();
+                }
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public long countShips(ShipFilter filter) {
+        List<Object> key = Arrays.asList("count", filter);
+        return cached(filter, key, () -> queryCoalescer.execute("count", flightKey(key), () -> countMatching(filter)));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ShipStats getStats(ShipFilter filter) {
+        if (fleetStatistics.canAnswer(filter))
+            return fleetStatistics.snapshot();
+
+        return fleetStatistics.fromRows(replicaReads.read(() -> shipRepository.groupStats(specificationOf(filter))));
+    }
+
+    @Override
+    public Ship editShip(Long id, Ship ship, Long expectedVersion) {
+        checkValidShip(ship, ratingJob.getCurrentYear());
+
+        // The repository reads in a read-only transaction, a replica would hand out a version the write conflicts with
+        Optional<Ship> optional = ReplicaRoutingDataSource.onPrimary(() -> shipRepository.findById(id));
 
         if (!optional.isPresent())
             throw new ShipNotFoundException("The ship is not found");
 
         Ship editedShip = optional.get();
+        if (expectedVersion != null && !expectedVersion.equals(editedShip.getVersion()))
+            throw new PreconditionFailedException("The ship has been modified");
+
+        Ship before = new Ship(editedShip);
+        mergeShip(editedShip, ship);
+
+        // The merge compares the version read above with the row, so a concurrent edit in between is a conflict
+        Ship savedShip;
+        try {
+            savedShip = writeTransaction.execute(status -> {
+                Ship saved = shipRepository.saveAndFlush(editedShip);
+                changeFeed.record(ShipChange.Type.UPDATED, saved);
+                return saved;
+            });
+        } catch (ObjectOptimisticLockingFailureException e) {
+            throw new ConflictException("The ship has been modified concurrently", e);
+        }
+        changeListeners.forEach(listener -> listener.shipUpdated(before, savedShip));
+        return savedShip;
+    }
+
+    @Override
+    public ShipBatchResult editShips(List<Ship> ships) {
+        ShipBatchResult result = new ShipBatchResult();
+
+        List<Long> ids = new ArrayList<>();
+        for (Ship ship : ships)
+            if (ship.getId() != null)
+                ids.add(ship.getId());
+
+        Map<Long, Ship> existingShips = new LinkedHashMap<>();
+        ReplicaRoutingDataSource.onPrimary(() -> shipRepository.findAllById(ids))
+                .forEach(ship -> existingShips.put(ship.getId(), ship));
+
+        Map<Long, Ship> editedShips = new LinkedHashMap<>();
+        Map<Long, Ship> originalShips = new LinkedHashMap<>();
+        for (int i = 0; i < ships.size(); i++) {
+            Ship ship = ships.get(i);
+            try {
+                if (ship.getId() == null || ship.getId() < 1)
+                    throw new BadRequestException("Incorrect ID");
+
+                checkValidShip(ship, ratingJob.getCurrentYear());
+
+                Ship editedShip = existingShips.get(ship.getId());
+                if (editedShip == null)
+                    throw new ShipNotFoundException("The ship is not found");
+
+                originalShips.putIfAbsent(editedShip.getId(), new Ship(editedShip));
+                mergeShip(editedShip, ship);
+                editedShips.put(editedShip.getId(), editedShip);
+            } catch (BadRequestException | ShipNotFoundException e) {
+                result.addError(i, ship.getId(), e.getMessage());
+            }
+        }
+
+        List<Ship> validShips = new ArrayList<>(editedShips.values());
+        writeTransaction.execute(status -> {
+            shipRepository.updateAll(validShips, batchSize);
+            for (Ship ship : validShips)
+                changeFeed.record(ShipChange.Type.UPDATED, ship);
+            return null;
+        });
+        List<Ship[]> changes = new ArrayList<>();
+        for (Ship ship : validShips)
+            changes.add(new Ship[]{originalShips.get(ship.getId()), ship});
+        if (!changes.isEmpty())
+            changeListeners.forEach(listener -> listener.shipsUpdated(changes));
+
+        result.setShips(validShips);
+        return result;
+    }
+
+    private void prepareNewShip(Ship ship) {
+        if (ship.getName() == null
+                || ship.getPlanet() == null
+                || ship.getShipType() == null
+                || ship.getProdDate() == null
+                || ship.getSpeed() == null
+                || ship.getCrewSize() == null)
+            throw new BadRequestException("One of the Params is null");
+
+        checkValidShip(ship, ratingJob.getCurrentYear());
+
+        if (ship.getUsed() == null)
+            ship.setUsed(false);
+        else
+            ship.setUsed(ship.getUsed());
 
+        ship.setRating(calculateRating(ship, ratingJob.getCurrentYear()));
+    }
+
+    private void mergeShip(Ship editedShip, Ship ship) {
         if (ship.getName() != null)
             editedShip.setName(ship.getName());
 
@@ -106,11 +394,71 @@ public class ShipServiceImpl implements ShipService{
             editedShip.setCrewSize(ship.getCrewSize());
 
 
-        editedShip.setRating(calculateRating(editedShip));
-        return shipRepository.saveAndFlush(editedShip);
+        editedShip.setRating(calculateRating(editedShip, ratingJob.getCurrentYear()));
+    }
+
+    // A cached entry outlives replica lag: only primary reads fill the ship cache, replica reads are served from it
+    private Ship findShip(Long id) {
+        if (!replicaReads.isActive())
+            return shipCache.get(id, key -> ReplicaRoutingDataSource.onPrimary(() -> shipRepository.findById(key).orElse(null)));
+
+        Ship ship = shipCache.getIfPresent(id);
+        return ship != null ? ship : shipRepository.findById(id).orElse(null);
+    }
+
+    // The same for the query cache
+    private <T> T cached(ShipFilter filter, List<Object> key, Supplier<T> loader) {
+        if (!replicaReads.isActive())
+            return queryCache.get(filter, key, () -> ReplicaRoutingDataSource.onPrimary(loader));
+
+        T result = queryCache.getIfPresent(key);
+        return result != null ? result : loader.get();
+    }
+
+    // A request that must read from the primary does not share a flight with replica reads
+    private List<Object> flightKey(List<Object> key) {
+        return Arrays.asList(key, replicaReads.isActive());
+    }
+
+    private List<Ship> findPage(ShipFilter filter, ShipOrder order, int pageNumber, int pageSize) {
+        PageRequest pageRequest = PageRequest.of(pageNumber, pageSize, Sort.by(order.getFieldName()));
+        if (fleetIndex.canAnswer(filter))
+            return fleetIndex.find(filter, order, pageNumber, pageSize);
+
+        List<Long> ids = ngramIndex.candidates(filter);
+        if (ids != null && ids.isEmpty())
+            return Collections.emptyList();
+
+        return shipRepository.findPage(filter, ids, order, pageRequest.getOffset(), pageSize);
+    }
+
+    private long countMatching(ShipFilter filter) {
+        if (fleetIndex.canAnswer(filter))
+            return fleetIndex.count(filter);
+
+        List<Long> ids = ngramIndex.candidates(filter);
+        if (ids != null && ids.isEmpty())
+            return 0;
+
+        // A short candidate list is cheaper as one query than as several
+        if (ids == null && partitionedScan.isEnabled())
+            return partitionedScan.count(filter.toSpecification());
+
+        return readOnlyTransaction.execute(status -> shipRepository.countMatching(filter, ids));
+    }
+
+    // Substring filters are narrowed to index candidates first, the LIKE predicates still decide the exact match
+    private Specification<Ship> specificationOf(ShipFilter filter) {
+        return Specification.where(ShipSpecification.shipsByIds(ngramIndex.candidates(filter)))
+                .and(filter.toSpecification());
     }
 
-    private void checkValidShip(Ship ship) {
+    private static Sort sortOf(ShipOrder order) {
+        Sort sort = Sort.by(order.getFieldName());
+        return order == ShipOrder.ID ? sort : sort.and(Sort.by("id"));
+    }
+
+    static void checkValidShip(Ship ship, int currentYear) {
         if (ship.getName() != null && (ship.getName().length() < 1 || ship.getName().length() > 50))
             throw new BadRequestException("Incorrect the name of the ship");
 
@@ -123,20 +471,12 @@ public class ShipServiceImpl implements ShipService{
         if (ship.getCrewSize() != null && (ship.getCrewSize() < 1 || ship.getCrewSize() > 9999))
             throw new BadRequestException("Incorrect the crew size of the ship");
 
-        if (ship.getProdDate() != null) {
-            Calendar calendar = Calendar.getInstance();
-            calendar.setTime(ship.getProdDate());
-            if (calendar.get(Calendar.YEAR) < 2800 || calendar.get(Calendar.YEAR) > 3019)
-                throw new BadRequestException("Incorrect the production date of the ship");
-        }
+        if (ship.getProdDate() != null && !ShipDates.isValidYear(ship.getProdDate().getTime(), currentYear))
+            throw new BadRequestException("Incorrect the production date of the ship");
     }
 
-    private Double calculateRating(Ship ship) {
-        Calendar calendar = Calendar.getInstance();
-        calendar.setTime(ship.getProdDate());
-        int y1 = calendar.get(Calendar.YEAR);
-        BigDecimal rating = BigDecimal.valueOf((80 * ship.getSpeed() * (ship.getUsed() ? 0.5 : 1)) / (3019 - y1 + 1));
-        rating = rating.setScale(2, RoundingMode.HALF_UP);
-        return rating.doubleValue();
+    static double calculateRating(Ship ship, int currentYear) {
+        int y1 = ShipDates.year(ship.getProdDate().getTime());
+        return ShipDates.roundHalfUp2((80 * ship.getSpeed() * (ship.getUsed() ? 0.5 : 1)) / (currentYear - y1 + 1));
     }
 }
@@ -0,0 +1,19 @@
+package com.space.specification;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+// utf8_general_ci compares case- and accent-insensitively; in-memory matching folds both sides the same way
+public final class Collation {
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    private Collation() {
+    }
+
+    public static String fold(String value) {
+        String decomposed = Normalizer.normalize(value, Normalizer.Form.NFD);
+        return COMBINING_MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+}
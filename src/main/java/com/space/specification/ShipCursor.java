@@ -0,0 +1,84 @@
+package com.space.specification;
+
+import com.space.exceptions.BadRequestException;
+import com.space.model.Ship;
+import com.space.model.ShipOrder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Map;
+
+public class ShipCursor {
+
+    private final ShipOrder order;
+    private final Comparable<?> value;
+    private final long id;
+
+    private ShipCursor(ShipOrder order, Comparable<?> value, long id) {
+        this.order = order;
+        this.value = value;
+        this.id = id;
+    }
+
+    public static ShipCursor of(Ship ship, ShipOrder order) {
+        switch (order) {
+            case SPEED:
+                return new ShipCursor(order, ship.getSpeed(), ship.getId());
+            case DATE:
+                return new ShipCursor(order, new Date(ship.getProdDate().getTime()), ship.getId());
+            case RATING:
+                return new ShipCursor(order, ship.getRating(), ship.getId());
+            default:
+                return new ShipCursor(order, ship.getId(), ship.getId());
+        }
+    }
+
+    public static ShipCursor of(Map<String, Object> row, ShipOrder order) {
+        long id = ((Number) row.get("id")).longValue();
+        Object value = row.get(order.getFieldName());
+        if (value instanceof Date)
+            return new ShipCursor(order, new Date(((Date) value).getTime()), id);
+        return new ShipCursor(order, (Comparable<?>) value, id);
+    }
+
+    public static ShipCursor decode(String token, ShipOrder order) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = decoded.split(":");
+            if (parts.length != 3 || ShipOrder.valueOf(parts[0]) != order)
+                throw new BadRequestException("The cursor does not match the order");
+
+            long id = Long.parseLong(parts[2]);
+            switch (order) {
+                case SPEED:
+                case RATING:
+                    return new ShipCursor(order, Double.valueOf(parts[1]), id);
+                case DATE:
+                    return new ShipCursor(order, new Date(Long.parseLong(parts[1])), id);
+                default:
+                    return new ShipCursor(order, id, id);
+            }
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Incorrect cursor", e);
+        }
+    }
+
+    public String encode() {
+        String value = this.value instanceof Date ? String.valueOf(((Date) this.value).getTime()) : this.value.toString();
+        String raw = order.name() + ":" + value + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public ShipOrder getOrder() {
+        return order;
+    }
+
+    public Comparable<?> getValue() {
+        return value;
+    }
+
+    public long getId() {
+        return id;
+    }
+}
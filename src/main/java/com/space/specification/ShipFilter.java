@@ -0,0 +1,239 @@
+package com.space.specification;
+
+import com.space.model.Ship;
+import com.space.model.ShipType;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+public class ShipFilter {
+
+    private static final long DAY_MILLIS = 24 * 60 * 60 * 1000L;
+
+    private final String name;
+    private final String planet;
+    private final ShipType shipType;
+    private final Long after;
+    private final Long before;
+    private final Boolean isUsed;
+    private final Double minSpeed;
+    private final Double maxSpeed;
+    private final Integer minCrewSize;
+    private final Integer maxCrewSize;
+    private final Double minRating;
+    private final Double maxRating;
+    private final String foldedName;
+    private final String foldedPlanet;
+
+    public ShipFilter(String name, String planet, ShipType shipType, Long after, Long before, Boolean isUsed,
+                      Double minSpeed, Double maxSpeed, Integer minCrewSize, Integer maxCrewSize,
+                      Double minRating, Double maxRating) {
+        this.name = name;
+        this.planet = planet;
+        this.shipType = shipType;
+        this.after = after;
+        this.before = before;
+        this.isUsed = isUsed;
+        this.minSpeed = minSpeed;
+        this.maxSpeed = maxSpeed;
+        this.minCrewSize = minCrewSize;
+        this.maxCrewSize = maxCrewSize;
+        this.minRating = minRating;
+        this.maxRating = maxRating;
+        this.foldedName = name == null ? null : Collation.fold(name);
+        this.foldedPlanet = planet == null ? null : Collation.fold(planet);
+    }
+
+    public static ShipFilter empty() {
+        return new ShipFilter(null, null, null, null, null, null, null, null, null, null, null, null);
+    }
+
+    public boolean isEmpty() {
+        return equals(empty());
+    }
+
+    public Specification<Ship> toSpecification() {
+        return ShipSpecification.getSpecification(name, planet, shipType, after, before, isUsed, minSpeed, maxSpeed,
+                minCrewSize, maxCrewSize, minRating, maxRating);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getPlanet() {
+        return planet;
+    }
+
+    public ShipType getShipType() {
+        return shipType;
+    }
+
+    public Long getAfter() {
+        return after;
+    }
+
+    public Long getBefore() {
+        return before;
+    }
+
+    public Boolean getUsed() {
+        return isUsed;
+    }
+
+    public Double getMinSpeed() {
+        return minSpeed;
+    }
+
+    public Double getMaxSpeed() {
+        return maxSpeed;
+    }
+
+    public Integer getMinCrewSize() {
+        return minCrewSize;
+    }
+
+    public Integer getMaxCrewSize() {
+        return maxCrewSize;
+    }
+
+    public Double getMinRating() {
+        return minRating;
+    }
+
+    public Double getMaxRating() {
+        return maxRating;
+    }
+
+    // Present filters under their request parameter names
+    public Map<String, Object> toParameters() {
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        putIfPresent(parameters, "name", name);
+        putIfPresent(parameters, "planet", planet);
+        putIfPresent(parameters, "shipType", shipType);
+        putIfPresent(parameters, "after", after);
+        putIfPresent(parameters, "before", before);
+        putIfPresent(parameters, "isUsed", isUsed);
+        putIfPresent(parameters, "minSpeed", minSpeed);
+        putIfPresent(parameters, "maxSpeed", maxSpeed);
+        putIfPresent(parameters, "minCrewSize", minCrewSize);
+        putIfPresent(parameters, "maxCrewSize", maxCrewSize);
+        putIfPresent(parameters, "minRating", minRating);
+        putIfPresent(parameters, "maxRating", maxRating);
+        return parameters;
+    }
+
+    // Whether the row could satisfy the filter. Errs towards true: substrings match ignoring case and accents whatever
+    // the collation, text still non-ASCII after folding matches, the collation equates more letters than folding does,
+    // and production dates a day beyond the bounds match, the date column drops the time of day
+    public boolean matches(Ship ship) {
+        return (name == null || ship.getName() != null && likeContains(ship.getName(), foldedName))
+                && (planet == null || ship.getPlanet() != null && likeContains(ship.getPlanet(), foldedPlanet))
+                && (shipType == null || shipType == ship.getShipType())
+                && (after == null || ship.getProdDate() != null && ship.getProdDate().getTime() >= after - DAY_MILLIS)
+                && (before == null || ship.getProdDate() != null && ship.getProdDate().getTime() <= before + DAY_MILLIS)
+                && (isUsed == null || isUsed.equals(ship.getUsed()))
+                && inRange(ship.getSpeed(), minSpeed, maxSpeed)
+                && inRange(ship.getCrewSize(), minCrewSize, maxCrewSize)
+                && inRange(ship.getRating(), minRating, maxRating);
+    }
+
+    private static boolean inRange(Number value, Number min, Number max) {
+        if (min == null && max == null)
+            return true;
+        return value != null
+                && (min == null || value.doubleValue() >= min.doubleValue())
+                && (max == null || value.doubleValue() <= max.doubleValue());
+    }
+
+    // LIKE '%pattern%' with % and _ as wildcards and backslash escaping the next character, pattern already folded
+    private static boolean likeContains(String text, String pattern) {
+        String folded = Collation.fold(text);
+        if (!isAscii(folded) || !isAscii(pattern))
+            return true;
+        return like(folded, 0, "%" + pattern + "%", 0);
+    }
+
+    private static boolean isAscii(String value) {
+        for (int i = 0; i < value.length(); i++)
+            if (value.charAt(i) > 0x7F)
+                return false;
+        return true;
+    }
+
+    private static boolean like(String text, int t, String pattern, int p) {
+        while (p < pattern.length()) {
+            char c = pattern.charAt(p);
+            if (c == '%') {
+                for (int i = t; i <= text.length(); i++)
+                    if (like(text, i, pattern, p + 1))
+                        return true;
+                return false;
+            }
+            if (t == text.length())
+                return false;
+            if (c == '\\' && p + 1 < pattern.length())
+                c = pattern.charAt(++p);
+            else if (c == '_') {
+                t++;
+                p++;
+                continue;
+            }
+            if (c != text.charAt(t))
+                return false;
+            t++;
+            p++;
+        }
+        return t == text.length();
+    }
+
+    private static void putIfPresent(Map<String, Object> parameters, String name, Object value) {
+        if (value != null)
+            parameters.put(name, value);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ShipFilter that = (ShipFilter) o;
+        return Objects.equals(name, that.name) &&
+                Objects.equals(planet, that.planet) &&
+                shipType == that.shipType &&
+                Objects.equals(after, that.after) &&
+                Objects.equals(before, that.before) &&
+                Objects.equals(isUsed, that.isUsed) &&
+                Objects.equals(minSpeed, that.minSpeed) &&
+                Objects.equals(maxSpeed, that.maxSpeed) &&
+                Objects.equals(minCrewSize, that.minCrewSize) &&
+                Objects.equals(maxCrewSize, that.maxCrewSize) &&
+                Objects.equals(minRating, that.minRating) &&
+                Objects.equals(maxRating, that.maxRating);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, planet, shipType, after, before, isUsed, minSpeed, maxSpeed,
+                minCrewSize, maxCrewSize, minRating, maxRating);
+    }
+
+    @Override
+    public String toString() {
+        return "ShipFilter{" +
+                "name='" + name + '\'' +
+                ", planet='" + planet + '\'' +
+                ", shipType=" + shipType +
+                ", after=" + after +
+                ", before=" + before +
+                ", isUsed=" + isUsed +
+                ", minSpeed=" + minSpeed +
+                ", maxSpeed=" + maxSpeed +
+                ", minCrewSize=" + minCrewSize +
+                ", maxCrewSize=" + maxCrewSize +
+                ", minRating=" + minRating +
+                ", maxRating=" + maxRating +
+                '}';
+    }
+}
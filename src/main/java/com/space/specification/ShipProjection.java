@@ -0,0 +1,88 @@
+package com.space.specification;
+
+import com.space.exceptions.BadRequestException;
+import com.space.model.Ship;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// The subset of Ship columns a client asked for with fields=, in request order
+public class ShipProjection {
+
+    private static final List<String> FIELDS = Arrays.asList("id", "name", "planet", "shipType", "prodDate", "isUsed",
+            "speed", "crewSize", "rating");
+
+    private final List<String> fields;
+
+    private ShipProjection(Set<String> fields) {
+        this.fields = Collections.unmodifiableList(new ArrayList<>(fields));
+    }
+
+    public static ShipProjection parse(String fields) {
+        Set<String> parsed = new LinkedHashSet<>();
+        for (String field : fields.split(",")) {
+            field = field.trim();
+            if (field.isEmpty())
+                continue;
+            if (!FIELDS.contains(field))
+                throw new BadRequestException("Unknown field " + field);
+            parsed.add(field);
+        }
+        if (parsed.isEmpty())
+            throw new BadRequestException("No fields requested");
+
+        return new ShipProjection(parsed);
+    }
+
+    public ShipProjection with(String... fields) {
+        Set<String> extended = new LinkedHashSet<>(this.fields);
+        extended.addAll(Arrays.asList(fields));
+        return new ShipProjection(extended);
+    }
+
+    public List<String> getFields() {
+        return fields;
+    }
+
+    public Map<String, Object> apply(Ship ship) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        for (String field : fields)
+            row.put(field, valueOf(ship, field));
+        return row;
+    }
+
+    // Drops the columns a wider projection added on top of this one
+    public Map<String, Object> retain(Map<String, Object> row) {
+        row.keySet().retainAll(fields);
+        return row;
+    }
+
+    private static Object valueOf(Ship ship, String field) {
+        switch (field) {
+            case "id":
+                return ship.getId();
+            case "name":
+                return ship.getName();
+            case "planet":
+                return ship.getPlanet();
+            case "shipType":
+                return ship.getShipType();
+            case "prodDate":
+                return ship.getProdDate();
+            case "isUsed":
+                return ship.getUsed();
+            case "speed":
+                return ship.getSpeed();
+            case "crewSize":
+                return ship.getCrewSize();
+            default:
+                return ship.getRating();
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.space.specification;
+
+import com.space.model.ShipOrder;
+
+import javax.persistence.Query;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+// JPQL with bind parameters for every combination of present filters, rendered once per shape. The same string
+// for the same shape lets Hibernate reuse its compiled plan instead of translating a new Criteria tree each time
+public final class ShipQueryShapes {
+
+    private static final String[] CONDITIONS = {
+            "s.name LIKE :name",
+            "s.planet LIKE :planet",
+            "s.shipType = :shipType",
+            "s.prodDate >= :after",
+            "s.prodDate <= :before",
+            "s.isUsed = :isUsed",
+            "s.speed >= :minSpeed",
+            "s.speed <= :maxSpeed",
+            "s.crewSize >= :minCrewSize",
+            "s.crewSize <= :maxCrewSize",
+            "s.rating >= :minRating",
+            "s.rating <= :maxRating",
+            "s.id IN :ids"
+    };
+    private static final String[] PARAMETERS = Arrays.stream(CONDITIONS)
+            .map(condition -> condition.substring(condition.indexOf(':') + 1))
+            .toArray(String[]::new);
+    private static final int IDS = 1 << 12;
+
+    public static final int SHAPES = IDS << 1;
+
+    private static final ConcurrentMap<Integer, String> SELECTS = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<Integer, String> COUNTS = new ConcurrentHashMap<>();
+
+    private ShipQueryShapes() {
+    }
+
+    // One bit per present filter in CONDITIONS order, 4096 shapes plus the candidate id list
+    public static int shapeOf(ShipFilter filter, Collection<Long> ids) {
+        Object[] values = valuesOf(filter);
+        int shape = ids == null ? 0 : IDS;
+        for (int i = 0; i < values.length; i++)
+            if (values[i] != null)
+                shape |= 1 << i;
+        return shape;
+    }
+
+    public static String select(int shape, ShipOrder order) {
+        return SELECTS.computeIfAbsent(shape | order.ordinal() << 13,
+                key -> "SELECT s FROM Ship s" + where(shape) + orderBy(order));
+    }
+
+    public static String count(int shape) {
+        return COUNTS.computeIfAbsent(shape, key -> "SELECT COUNT(s) FROM Ship s" + where(shape));
+    }
+
+    // Names of the present filters, "none" for the unfiltered shape
+    public static String describe(int shape) {
+        StringBuilder description = new StringBuilder();
+        for (int i = 0; i < PARAMETERS.length; i++) {
+            if ((shape & 1 << i) == 0)
+                continue;
+            description.append(description.length() == 0 ? "" : "+").append(PARAMETERS[i]);
+        }
+        return description.length() == 0 ? "none" : description.toString();
+    }
+
+    public static void bind(Query query, ShipFilter filter, Collection<Long> ids) {
+        Object[] values = valuesOf(filter);
+        for (int i = 0; i < values.length; i++)
+            if (values[i] != null)
+                query.setParameter(PARAMETERS[i], values[i]);
+        if (ids != null)
+            query.setParameter("ids", ids);
+    }
+
+    // Values in placeholder order as JDBC sees them: dates as timestamps, the ship type by name and the id list
+    // padded to a power of two by repeating its last element
+    public static List<Object> bindValues(ShipFilter filter, Collection<Long> ids) {
+        List<Object> binds = new ArrayList<>();
+        for (Object value : valuesOf(filter)) {
+            if (value instanceof Date)
+                binds.add(new Timestamp(((Date) value).getTime()));
+            else if (value instanceof Enum)
+                binds.add(((Enum<?>) value).name());
+            else if (value != null)
+                binds.add(value);
+        }
+        if (ids != null && !ids.isEmpty()) {
+            binds.addAll(ids);
+            Object last = binds.get(binds.size() - 1);
+            for (int i = ids.size(); i < Integer.highestOneBit(ids.size() * 2 - 1); i++)
+                binds.add(last);
+        }
+        return binds;
+    }
+
+    private static Object[] valuesOf(ShipFilter filter) {
+        return new Object[]{
+                filter.getName() == null ? null : "%" + filter.getName() + "%",
+                filter.getPlanet() == null ? null : "%" + filter.getPlanet() + "%",
+                filter.getShipType(),
+                filter.getAfter() == null ? null : new Date(filter.getAfter()),
+                filter.getBefore() == null ? null : new Date(filter.getBefore()),
+                filter.getUsed(),
+                filter.getMinSpeed(),
+                filter.getMaxSpeed(),
+                filter.getMinCrewSize(),
+                filter.getMaxCrewSize(),
+                filter.getMinRating(),
+                filter.getMaxRating()
+        };
+    }
+
+    // Ties are broken by id so that page boundaries stay put between requests for the same page
+    private static String orderBy(ShipOrder order) {
+        String orderBy = " ORDER BY s." + order.getFieldName();
+        return order == ShipOrder.ID ? orderBy : orderBy + ", s.id";
+    }
+
+    private static String where(int shape) {
+        StringBuilder where = new StringBuilder();
+        for (int i = 0; i < CONDITIONS.length; i++) {
+            if ((shape & 1 << i) == 0)
+                continue;
+            where.append(where.length() == 0 ? " WHERE " : " AND ").append(CONDITIONS[i]);
+        }
+        return where.toString();
+    }
+}
@@ -5,6 +5,11 @@ import com.space.model.ShipOrder;
 import com.space.model.ShipType;
 import org.springframework.data.jpa.domain.Specification;
 
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.Collection;
 import java.util.Date;
 
 public class ShipSpecification {
@@ -53,6 +58,24 @@ public class ShipSpecification {
     }
 
 
+    public static Specification<Ship> shipsByIds(Collection<Long> ids) {
+        return ((root, query, criteriaBuilder) -> {
+            if (ids == null)
+                return null;
+
+            return ids.isEmpty() ? criteriaBuilder.disjunction() : root.get("id").in(ids);
+        });
+    }
+
+
+    // Open-ended when to is null
+    public static Specification<Ship> shipsByIdRange(long from, Long to) {
+        return ((root, query, criteriaBuilder) -> to == null
+                ? criteriaBuilder.greaterThanOrEqualTo(root.get("id"), from)
+                : criteriaBuilder.between(root.get("id"), from, to));
+    }
+
+
     public static Specification<Ship> shipsByShipType(ShipType shipType) {
         return ((root, query, criteriaBuilder) ->
                 shipType == null ? null : criteriaBuilder.equal(root.get("shipType"), shipType));
@@ -120,4 +143,31 @@ public class ShipSpecification {
             return criteriaBuilder.between(root.get("crewSize"), minCrewSize, maxCrewSize);
         });
     }
+
+
+    public static Specification<Ship> shipsAfterCursor(ShipCursor cursor) {
+        return ((root, query, criteriaBuilder) -> {
+            if (cursor == null)
+                return null;
+
+            switch (cursor.getOrder()) {
+                case SPEED:
+                case RATING:
+                    return seek(root, criteriaBuilder, cursor.getOrder().getFieldName(), (Double) cursor.getValue(), cursor.getId());
+                case DATE:
+                    return seek(root, criteriaBuilder, cursor.getOrder().getFieldName(), (Date) cursor.getValue(), cursor.getId());
+                default:
+                    return criteriaBuilder.greaterThan(root.get("id"), cursor.getId());
+            }
+        });
+    }
+
+    // (field, id) > (value, lastId), written out so MySQL can use a range scan on the sort field
+    private static <T extends Comparable<? super T>> Predicate seek(Root<Ship> root, CriteriaBuilder criteriaBuilder,
+                                                                   String fieldName, T value, long lastId) {
+        Path<T> field = root.get(fieldName);
+        return criteriaBuilder.or(criteriaBuilder.greaterThan(field, value),
+                criteriaBuilder.and(criteriaBuilder.equal(field, value),
+                        criteriaBuilder.greaterThan(root.get("id"), lastId)));
+    }
 }
@@ -0,0 +1,238 @@
+package com.space.stats;
+
+import com.space.model.Ship;
+import com.space.model.ShipDates;
+import com.space.model.ShipGroupStats;
+import com.space.model.ShipStats;
+import com.space.model.ShipType;
+import com.space.repository.ShipGroupRow;
+import com.space.service.ShipChangeListener;
+import com.space.specification.ShipFilter;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Unfiltered fleet aggregates by planet, ship type and production-year bucket, kept current from the change events.
+// The events may arrive out of order, so every ship's aggregated state is kept with its version: a change replaces
+// that state only when newer, and it is that state, not the event's before, which is taken out of the groups
+@Component
+@Order(30)
+public class FleetStatistics implements ShipChangeListener, SmartInitializingSingleton {
+
+    private static final String SELECT_SQL = "SELECT id, version, planet, shipType, prodDate, isUsed, speed, rating, crewSize FROM ship";
+
+    private final boolean enabled;
+    private final int yearBucket;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Groups groups;
+    private final Map<Long, Ship> ships = new HashMap<>();
+    // Version each deleted ship had; ids are not reused
+    private final Map<Long, Long> deletedVersions = new HashMap<>();
+
+    private DataSource dataSource;
+
+    @Value("${ship.export.fetch-size}")
+    private int fetchSize;
+
+    public FleetStatistics(@Value("${ship.stats.enabled}") boolean enabled,
+                           @Value("${ship.stats.year-bucket}") int yearBucket) {
+        if (yearBucket < 1)
+            throw new IllegalArgumentException("ship.stats.year-bucket must be positive");
+        this.enabled = enabled;
+        this.yearBucket = yearBucket;
+        this.groups = new Groups(yearBucket);
+    }
+
+    @Autowired
+    public void setDataSource(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (enabled)
+            rebuild();
+    }
+
+    public void rebuild() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.setFetchSize(fetchSize);
+
+        lock.writeLock().lock();
+        try {
+            groups.clear();
+            ships.clear();
+            deletedVersions.clear();
+            jdbcTemplate.query(SELECT_SQL, (RowCallbackHandler) resultSet -> {
+                Ship ship = new Ship();
+                ship.setId(resultSet.getLong(1));
+                ship.setVersion(resultSet.getLong(2));
+                ship.setPlanet(resultSet.getString(3));
+                ship.setShipType(ShipType.valueOf(resultSet.getString(4)));
+                ship.setProdDate(resultSet.getTimestamp(5));
+                ship.setUsed(resultSet.getBoolean(6));
+                ship.setSpeed(resultSet.getDouble(7));
+                ship.setRating(resultSet.getDouble(8));
+                ship.setCrewSize(resultSet.getInt(9));
+                apply(ship);
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean canAnswer(ShipFilter filter) {
+        return enabled && filter.isEmpty();
+    }
+
+    public ShipStats snapshot() {
+        lock.readLock().lock();
+        try {
+            return groups.toStats();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Rolls the planet/shipType/year rows of the GROUP BY query up into the same shape as the snapshot
+    public ShipStats fromRows(List<ShipGroupRow> rows) {
+        Groups rolledUp = new Groups(yearBucket);
+        for (ShipGroupRow row : rows)
+            rolledUp.add(row);
+        return rolledUp.toStats();
+    }
+
+    @Override
+    public void shipCreated(Ship ship) {
+        if (!enabled)
+            return;
+
+        lock.writeLock().lock();
+        try {
+            apply(ship);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void shipUpdated(Ship before, Ship after) {
+        if (!enabled)
+            return;
+
+        lock.writeLock().lock();
+        try {
+            apply(after);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void shipDeleted(Ship ship) {
+        if (!enabled)
+            return;
+
+        lock.writeLock().lock();
+        try {
+            deletedVersions.merge(ship.getId(), ship.getVersion(), Math::max);
+            Ship current = ships.remove(ship.getId());
+            if (current != null)
+                groups.remove(current);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void apply(Ship ship) {
+        Long deletedVersion = deletedVersions.get(ship.getId());
+        if (deletedVersion != null && ship.getVersion() <= deletedVersion)
+            return;
+
+        Ship current = ships.get(ship.getId());
+        if (current != null && ship.getVersion() <= current.getVersion())
+            return;
+        if (current != null)
+            groups.remove(current);
+        Ship snapshot = new Ship(ship);
+        groups.add(snapshot);
+        ships.put(ship.getId(), snapshot);
+    }
+
+    private static class Groups {
+
+        private final int yearBucket;
+        private GroupAggregate total = new GroupAggregate();
+        private final Map<String, GroupAggregate> planets = new TreeMap<>();
+        private final Map<ShipType, GroupAggregate> shipTypes = new EnumMap<>(ShipType.class);
+        private final Map<Integer, GroupAggregate> years = new TreeMap<>();
+
+        Groups(int yearBucket) {
+            this.yearBucket = yearBucket;
+        }
+
+        void clear() {
+            total = new GroupAggregate();
+            planets.clear();
+            shipTypes.clear();
+            years.clear();
+        }
+
+        void add(Ship ship) {
+            total.add(ship);
+            planets.computeIfAbsent(ship.getPlanet(), key -> new GroupAggregate()).add(ship);
+            shipTypes.computeIfAbsent(ship.getShipType(), key -> new GroupAggregate()).add(ship);
+            years.computeIfAbsent(bucketOf(ShipDates.year(ship.getProdDate().getTime())), key -> new GroupAggregate()).add(ship);
+        }
+
+        void add(ShipGroupRow row) {
+            total.add(row);
+            planets.computeIfAbsent(row.getPlanet(), key -> new GroupAggregate()).add(row);
+            shipTypes.computeIfAbsent(row.getShipType(), key -> new GroupAggregate()).add(row);
+            years.computeIfAbsent(bucketOf(row.getYear()), key -> new GroupAggregate()).add(row);
+        }
+
+        void remove(Ship ship) {
+            total.remove(ship);
+            remove(planets, ship.getPlanet(), ship);
+            remove(shipTypes, ship.getShipType(), ship);
+            remove(years, bucketOf(ShipDates.year(ship.getProdDate().getTime())), ship);
+        }
+
+        ShipStats toStats() {
+            return new ShipStats(total.toStats(), toStats(planets, new TreeMap<>()),
+                    toStats(shipTypes, new EnumMap<>(ShipType.class)), yearBucket, toStats(years, new TreeMap<>()));
+        }
+
+        private int bucketOf(int year) {
+            return Math.floorDiv(year, yearBucket) * yearBucket;
+        }
+
+        private static <K> void remove(Map<K, GroupAggregate> groups, K key, Ship ship) {
+            GroupAggregate group = groups.get(key);
+            if (group == null)
+                return;
+            group.remove(ship);
+            if (group.isEmpty())
+                groups.remove(key);
+        }
+
+        private static <K, M extends Map<K, ShipGroupStats>> M toStats(Map<K, GroupAggregate> groups, M target) {
+            groups.forEach((key, group) -> target.put(key, group.toStats()));
+            return target;
+        }
+    }
+}
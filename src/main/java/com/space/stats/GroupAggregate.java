@@ -0,0 +1,90 @@
+package com.space.stats;
+
+import com.space.model.Ship;
+import com.space.model.ShipGroupStats;
+import com.space.model.ShipMetricStats;
+import com.space.repository.ShipGroupRow;
+
+import java.math.BigDecimal;
+import java.util.TreeMap;
+
+// Count, used count and per-metric min/max/sum of one group; min/max are kept as value multisets so that
+// removing a ship never needs a rescan
+class GroupAggregate {
+
+    private long count;
+    private long usedCount;
+    private final Metric[] metrics = {new Metric(), new Metric(), new Metric()};
+
+    void add(Ship ship) {
+        count++;
+        if (ship.getUsed())
+            usedCount++;
+        for (int i = 0; i < metrics.length; i++)
+            metrics[i].add(valueOf(ship, i));
+    }
+
+    void remove(Ship ship) {
+        count--;
+        if (ship.getUsed())
+            usedCount--;
+        for (int i = 0; i < metrics.length; i++)
+            metrics[i].remove(valueOf(ship, i));
+    }
+
+    // A row only carries the extremes of its group, which is all a merged min/max needs
+    void add(ShipGroupRow row) {
+        count += row.getCount();
+        usedCount += row.getUsedCount();
+        for (int i = 0; i < metrics.length; i++) {
+            metrics[i].values.merge(row.getMin(i), 1, Integer::sum);
+            metrics[i].values.merge(row.getMax(i), 1, Integer::sum);
+            metrics[i].sum = metrics[i].sum.add(BigDecimal.valueOf(row.getSum(i)));
+        }
+    }
+
+    boolean isEmpty() {
+        return count == 0;
+    }
+
+    ShipGroupStats toStats() {
+        return new ShipGroupStats(count, usedCount,
+                metrics[ShipGroupRow.SPEED].toStats(count),
+                metrics[ShipGroupRow.RATING].toStats(count),
+                metrics[ShipGroupRow.CREW_SIZE].toStats(count));
+    }
+
+    private static double valueOf(Ship ship, int metric) {
+        switch (metric) {
+            case ShipGroupRow.SPEED:
+                return ship.getSpeed();
+            case ShipGroupRow.RATING:
+                return ship.getRating();
+            default:
+                return ship.getCrewSize();
+        }
+    }
+
+    private static class Metric {
+
+        private final TreeMap<Double, Integer> values = new TreeMap<>();
+        // Exact, so that an add followed by a remove leaves no rounding residue behind
+        private BigDecimal sum = BigDecimal.ZERO;
+
+        void add(double value) {
+            values.merge(value, 1, Integer::sum);
+            sum = sum.add(BigDecimal.valueOf(value));
+        }
+
+        void remove(double value) {
+            values.computeIfPresent(value, (key, n) -> n == 1 ? null : n - 1);
+            sum = sum.subtract(BigDecimal.valueOf(value));
+        }
+
+        ShipMetricStats toStats(long count) {
+            if (count == 0)
+                return new ShipMetricStats(null, null, null);
+            return new ShipMetricStats(values.firstKey(), values.lastKey(), sum.doubleValue() / count);
+        }
+    }
+}
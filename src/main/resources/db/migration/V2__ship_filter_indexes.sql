@@ -0,0 +1,14 @@
+-- Every list query is WHERE <optional filters> ORDER BY <speed|prodDate|rating|id>[, id] LIMIT n, every count the
+-- same WHERE without the order. name/planet are '%x%' searches no B-tree can serve, so the indexes target the
+-- ranges and the orders. InnoDB appends the primary key to each secondary index, which makes (column) also serve
+-- the keyset order (column, id) of the cursor and export paths without a filesort.
+CREATE INDEX ix_ship_speed ON ship (speed);
+CREATE INDEX ix_ship_prod_date ON ship (prodDate);
+CREATE INDEX ix_ship_rating ON ship (rating);
+CREATE INDEX ix_ship_crew_size ON ship (crewSize);
+
+-- The catalogue filters by type and used/new before anything else; with both equalities in front the sorted
+-- column is still read in order, and a count over type/used plus a rating or speed range is answered from the index
+CREATE INDEX ix_ship_type_used_rating ON ship (shipType, isUsed, rating);
+CREATE INDEX ix_ship_type_used_speed ON ship (shipType, isUsed, speed);
+CREATE INDEX ix_ship_type_used_prod_date ON ship (shipType, isUsed, prodDate);
@@ -0,0 +1,2 @@
+-- Optimistic-locking version of each ship, bumped on every update; GET /rest/ships/{id} derives its ETag from it
+ALTER TABLE ship ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
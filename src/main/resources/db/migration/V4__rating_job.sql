@@ -0,0 +1,12 @@
+-- Checkpoint of the rating recomputation job, a single row; written together with every chunk of updated ratings
+CREATE TABLE IF NOT EXISTS rating_job
+(
+    id          INT         NOT NULL,
+    currentYear INT         NOT NULL,
+    lastId      BIGINT      NOT NULL,
+    processed   BIGINT      NOT NULL,
+    updated     BIGINT      NOT NULL,
+    total       BIGINT      NOT NULL,
+    state       VARCHAR(16) NOT NULL,
+    PRIMARY KEY (id)
+);
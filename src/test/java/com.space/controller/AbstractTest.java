@@ -1,8 +1,11 @@
 package com.space.controller;
 
+import com.space.cache.ShipCache;
+import com.space.cache.ShipQueryCache;
 import com.space.config.AppConfig;
 import com.space.config.MyWebAppInit;
 import com.space.config.WebConfig;
+import com.space.service.QueryCoalescer;
 import org.junit.Before;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -13,9 +16,14 @@ import org.springframework.test.context.jdbc.SqlConfig;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.test.context.web.WebAppConfiguration;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
 
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+
 @RunWith(SpringJUnit4ClassRunner.class)
 @ActiveProfiles("dev")
 @ContextConfiguration(classes = {AppConfig.class, MyWebAppInit.class, WebConfig.class})
@@ -25,14 +33,45 @@ public abstract class AbstractTest {
 
     WebApplicationContext context;
     MockMvc mockMvc;
+    ShipCache shipCache;
+    ShipQueryCache queryCache;
+    QueryCoalescer queryCoalescer;
 
     @Autowired
     public void setContext(WebApplicationContext context) {
         this.context = context;
     }
 
+    @Autowired
+    public void setShipCache(ShipCache shipCache) {
+        this.shipCache = shipCache;
+    }
+
+    @Autowired
+    public void setQueryCache(ShipQueryCache queryCache) {
+        this.queryCache = queryCache;
+    }
+
+    @Autowired
+    public void setQueryCoalescer(QueryCoalescer queryCoalescer) {
+        this.queryCoalescer = queryCoalescer;
+    }
+
+    // test.sql rewrites the table behind the service, so nothing cached by a previous test is valid
     @Before
     public void setup() {
+        shipCache.invalidateAll();
+        queryCache.invalidateAll();
+        queryCoalescer.clear();
         mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
     }
+
+    // Read endpoints complete asynchronously; their result is dispatched the way the servlet container would
+    ResultActions perform(RequestBuilder requestBuilder) throws Exception {
+        ResultActions resultActions = mockMvc.perform(requestBuilder);
+        MvcResult result = resultActions.andReturn();
+        if (result.getRequest().isAsyncStarted())
+            return mockMvc.perform(asyncDispatch(result));
+        return resultActions;
+    }
 }
@@ -0,0 +1,128 @@
+package com.space.controller;
+
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.context.request.async.AsyncRequestTimeoutException;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+
+import static org.springframework.test.util.AssertionErrors.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@TestPropertySource(properties = {"ship.async.pool-size=1", "ship.async.queue-capacity=1"})
+public class AsyncShipTest extends AbstractTest {
+
+    private ThreadPoolTaskExecutor shipQueryExecutor;
+
+    @Autowired
+    public void setShipQueryExecutor(@Qualifier("shipQueryExecutor") ThreadPoolTaskExecutor shipQueryExecutor) {
+        this.shipQueryExecutor = shipQueryExecutor;
+    }
+
+    //test1
+    @Test
+    public void getAllStartsAsync() throws Exception {
+        mockMvc.perform(get("/rest/ships")
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(request().asyncStarted());
+    }
+
+    //test2
+    @Test
+    public void getShipNotFoundAsync() throws Exception {
+        perform(get("/rest/ships/410")
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isNotFound());
+    }
+
+    //test3
+    @Test
+    public void getCountWithFullQueue() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch latch = new CountDownLatch(1);
+        try {
+            shipQueryExecutor.execute(() -> {
+                started.countDown();
+                await(latch);
+            });
+            started.await();
+            shipQueryExecutor.execute(() -> await(latch));
+
+            mockMvc.perform(get("/rest/ships/count")
+                    .accept(MediaType.APPLICATION_JSON_UTF8))
+                    .andExpect(status().isServiceUnavailable());
+        } finally {
+            latch.countDown();
+        }
+    }
+
+    //test4
+    @Test
+    public void getShipWithFullQueryQueue() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch latch = new CountDownLatch(1);
+        try {
+            shipQueryExecutor.execute(() -> {
+                started.countDown();
+                await(latch);
+            });
+            started.await();
+            shipQueryExecutor.execute(() -> await(latch));
+
+            perform(get("/rest/ships/1")
+                    .accept(MediaType.APPLICATION_JSON_UTF8))
+                    .andExpect(status().isOk());
+        } finally {
+            latch.countDown();
+        }
+    }
+
+    //test5
+    @Test
+    public void getCountTimedOutInQueueIsCancelled() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch latch = new CountDownLatch(1);
+        try {
+            shipQueryExecutor.execute(() -> {
+                started.countDown();
+                await(latch);
+            });
+            started.await();
+
+            MvcResult result = mockMvc.perform(get("/rest/ships/count")
+                    .accept(MediaType.APPLICATION_JSON_UTF8))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+            MockAsyncContext asyncContext = (MockAsyncContext) result.getRequest().getAsyncContext();
+            for (AsyncListener listener : asyncContext.getListeners())
+                listener.onTimeout(new AsyncEvent(asyncContext));
+            asyncContext.complete();
+
+            assertTrue("Запрос GET /rest/ships/count, не дождавшийся очереди, должен завершиться по таймауту.",
+                    result.getAsyncResult() instanceof AsyncRequestTimeoutException);
+            Future<?> future = (Future<?>) result.getRequest().getAttribute(AsyncReadTimeoutInterceptor.FUTURE_ATTRIBUTE);
+            assertTrue("Запрос GET /rest/ships/count, не дождавшийся очереди, должен быть отменен.", future.isCancelled());
+        } finally {
+            latch.countDown();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.space.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.space.controller.utils.ShipInfoTest;
+import com.space.controller.utils.TestsHelper;
+import com.space.exceptions.ConflictException;
+import com.space.model.Ship;
+import com.space.model.ShipType;
+import com.space.repository.ShipRepository;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.util.Collections;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.util.AssertionErrors.fail;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class BatchShipTest extends AbstractTest {
+
+    private ObjectMapper mapper = new ObjectMapper();
+    private ShipRepository shipRepository;
+
+    @Autowired
+    public void setShipRepository(ShipRepository shipRepository) {
+        this.shipRepository = shipRepository;
+    }
+
+    //test1
+    @Test
+    public void createShipsReportsInvalidItems() throws Exception {
+        ResultActions resultActions = perform(post("/rest/ships/batch")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .accept(MediaType.APPLICATION_JSON_UTF8)
+                .content("[" + TestsHelper.NORMAL_JSON + "," + TestsHelper.NO_SPEED_JSON + "," + TestsHelper.IS_USED_TRUE_JSON + "]"))
+                .andExpect(status().isOk());
+
+        JsonNode result = mapper.readTree(resultActions.andReturn().getResponse().getContentAsString());
+
+        assertEquals("Неверное количество созданных кораблей при запросе POST /rest/ships/batch.", 2, result.get("ships").size());
+        assertEquals("Неверное количество ошибок при запросе POST /rest/ships/batch.", 1, result.get("errors").size());
+        assertEquals("Неверный индекс ошибки при запросе POST /rest/ships/batch.", 1, result.get("errors").get(0).get("index").asInt());
+
+        ShipInfoTest first = mapper.treeToValue(result.get("ships").get(0), ShipInfoTest.class);
+        assertEquals("Возвращается не правильный результат при запросе POST /rest/ships/batch.",
+                new ShipInfoTest(41L, "123456789", "Earth", ShipType.MILITARY, 32998274577071L, false, 0.8, 14, 12.8), first);
+
+        assertEquals("Созданный пакетом корабль не найден при запросе GET /rest/ships/{id}.",
+                new ShipInfoTest(42L, "123456789", "Earth", ShipType.MILITARY, 32998274577071L, true, 0.8, 14, 6.4), getShip(42));
+    }
+
+    //test2
+    @Test
+    public void editShipsReportsInvalidItems() throws Exception {
+        ShipInfoTest expected = new TestsHelper().getShipInfosById(5);
+        expected.name = "Excalibur II";
+
+        ResultActions resultActions = perform(post("/rest/ships/batch/edit")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .accept(MediaType.APPLICATION_JSON_UTF8)
+                .content("[{\"id\": 5, \"name\": \"Excalibur II\"}, {\"id\": 415, \"name\": \"Ghost\"}, {\"id\": 3, \"speed\": 1.5}, {\"name\": \"No id\"}]"))
+                .andExpect(status().isOk());
+
+        JsonNode result = mapper.readTree(resultActions.andReturn().getResponse().getContentAsString());
+
+        assertEquals("Неверное количество измененных кораблей при запросе POST /rest/ships/batch/edit.", 1, result.get("ships").size());
+        assertEquals("Неверное количество ошибок при запросе POST /rest/ships/batch/edit.", 3, result.get("errors").size());
+        assertEquals("Возвращается не правильный результат при запросе POST /rest/ships/batch/edit.",
+                expected, mapper.treeToValue(result.get("ships").get(0), ShipInfoTest.class));
+        assertEquals("Измененный пакетом корабль не обновлен в базе.", expected, getShip(5));
+        assertEquals("Корабль с некорректными параметрами был изменен.", new TestsHelper().getShipInfosById(3), getShip(3));
+    }
+
+    //test3
+    @Test
+    public void updateAllRejectsStaleVersion() throws Exception {
+        Ship fresh = shipRepository.findById(5L).get();
+        Ship stale = new Ship(fresh);
+        fresh.setName("Excalibur II");
+        shipRepository.updateAll(Collections.singletonList(fresh), 10);
+
+        stale.setName("Excalibur III");
+        try {
+            shipRepository.updateAll(Collections.singletonList(stale), 10);
+            fail("Изменение корабля с устаревшей версией не отклонено.");
+        } catch (ConflictException e) {
+            assertEquals("Корабль с устаревшей версией был изменен.", "Excalibur II", getShip(5).name);
+        }
+    }
+
+    private ShipInfoTest getShip(long id) throws Exception {
+        ResultActions resultActions = perform(get("/rest/ships/" + id)
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk());
+        return mapper.readValue(resultActions.andReturn().getResponse().getContentAsString(), ShipInfoTest.class);
+    }
+}
@@ -0,0 +1,112 @@
+package com.space.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.space.cache.FleetVersion;
+import com.space.config.WebConfig;
+import com.space.controller.utils.ShipInfoTest;
+import com.space.controller.utils.TestsHelper;
+import com.space.model.ShipType;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.util.AssertionErrors.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class BinaryFormatTest extends AbstractTest {
+
+    private static final MediaType SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+    private static final MediaType CBOR = MediaType.parseMediaType("application/cbor");
+
+    private TestsHelper testsHelper = new TestsHelper();
+    private ObjectMapper smileMapper = WebConfig.binaryObjectMapper(new SmileFactory());
+    private ObjectMapper cborMapper = WebConfig.binaryObjectMapper(new CBORFactory());
+
+    private FleetVersion fleetVersion;
+
+    @Autowired
+    public void setFleetVersion(FleetVersion fleetVersion) {
+        this.fleetVersion = fleetVersion;
+    }
+
+    @Before
+    @Override
+    public void setup() {
+        super.setup();
+        fleetVersion.touch();
+    }
+
+    //test1
+    @Test
+    public void getAllAsSmile() throws Exception {
+        MvcResult result = perform(get("/rest/ships?order=RATING&pageSize=20")
+                .accept(SMILE))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(SMILE))
+                .andReturn();
+        JsonNode ships = smileMapper.readTree(result.getResponse().getContentAsByteArray());
+
+        List<ShipInfoTest> actual = new ArrayList<>();
+        for (JsonNode ship : ships)
+            actual.add(toShipInfo(ship));
+        List<ShipInfoTest> expected = testsHelper.getShipInfosByPage(0, 20,
+                testsHelper.getShipInfosByOrder(ShipOrder.RATING, testsHelper.getAllShips()));
+
+        assertEquals("Возвращается не правильный результат при запросе GET /rest/ships в формате Smile.", expected, actual);
+    }
+
+    //test2
+    @Test
+    public void getShipAsCbor() throws Exception {
+        MvcResult result = perform(get("/rest/ships/1")
+                .accept(CBOR))
+                .andExpect(status().isOk())
+                .andExpect(header().stringValues(HttpHeaders.ETAG, "\"1-0-cbor\""))
+                .andReturn();
+        JsonNode ship = cborMapper.readTree(result.getResponse().getContentAsByteArray());
+
+        assertTrue("Дата производства в формате CBOR должна передаваться числом дней от эпохи.",
+                ship.get("prodDate").canConvertToInt());
+        assertTrue("Тип корабля в формате CBOR должен передаваться порядковым номером.",
+                ship.get("shipType").isInt());
+        assertEquals("Возвращается не правильный результат при запросе GET /rest/ships/{id} в формате CBOR.",
+                testsHelper.getShipInfosById(1), toShipInfo(ship));
+
+        perform(get("/rest/ships/1")
+                .accept(CBOR)
+                .header(HttpHeaders.IF_NONE_MATCH, "\"1-0-cbor\""))
+                .andExpect(status().isNotModified());
+    }
+
+    //test3
+    @Test
+    public void getShipWithoutAcceptIsJson() throws Exception {
+        perform(get("/rest/ships/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_UTF8_VALUE))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1-0\""));
+    }
+
+    private static ShipInfoTest toShipInfo(JsonNode ship) {
+        long prodDate = LocalDate.ofEpochDay(ship.get("prodDate").asLong())
+                .atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        return new ShipInfoTest(ship.get("id").asLong(), ship.get("name").asText(), ship.get("planet").asText(),
+                ShipType.values()[ship.get("shipType").asInt()], prodDate, ship.get("isUsed").asBoolean(),
+                ship.get("speed").asDouble(), ship.get("crewSize").asInt(), ship.get("rating").asDouble());
+    }
+}
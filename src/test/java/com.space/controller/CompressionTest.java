@@ -0,0 +1,114 @@
+package com.space.controller;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.space.controller.utils.ShipInfoTest;
+import com.space.controller.utils.TestsHelper;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.util.AssertionErrors.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class CompressionTest extends AbstractTest {
+
+    private TestsHelper testsHelper = new TestsHelper();
+    private ObjectMapper mapper = new ObjectMapper();
+    private TypeReference<List<ShipInfoTest>> typeReference = new TypeReference<List<ShipInfoTest>>() {
+    };
+
+    private CompressionFilter compressionFilter;
+
+    @Autowired
+    public void setCompressionFilter(CompressionFilter compressionFilter) {
+        this.compressionFilter = compressionFilter;
+    }
+
+    @Before
+    @Override
+    public void setup() {
+        super.setup();
+        mockMvc = MockMvcBuilders.webAppContextSetup(context).addFilters(compressionFilter).build();
+    }
+
+    //test1
+    @Test
+    public void getAllLargePageIsGzipped() throws Exception {
+        MvcResult result = perform(get("/rest/ships?pageSize=40")
+                .accept(MediaType.APPLICATION_JSON_UTF8)
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        assertEquals("Большой ответ GET /rest/ships не сжимается.", "gzip", result.getResponse().getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertTrue("Сжатый ответ не отличается ETag от несжатого.", result.getResponse().getHeader(HttpHeaders.ETAG).endsWith("-gzip\""));
+        List<ShipInfoTest> actual = mapper.readValue(gunzip(result.getResponse().getContentAsByteArray()), typeReference);
+        assertEquals("Возвращается не правильный результат при запросе GET /rest/ships со сжатием.", testsHelper.getAllShips(), actual);
+    }
+
+    //test2
+    @Test
+    public void getCountSmallBodyIsNotGzipped() throws Exception {
+        MvcResult result = perform(get("/rest/ships/count")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        assertEquals("Маленький ответ GET /rest/ships/count не должен сжиматься.", null, result.getResponse().getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertEquals("Возвращается не правильный результат при запросе GET /rest/ships/count.",
+                String.valueOf(testsHelper.getAllShips().size()), result.getResponse().getContentAsString());
+    }
+
+    //test3
+    @Test
+    public void exportIsGzippedWhileStreaming() throws Exception {
+        MvcResult result = perform(get("/rest/ships/export")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        assertEquals("Выгрузка GET /rest/ships/export не сжимается.", "gzip", result.getResponse().getHeader(HttpHeaders.CONTENT_ENCODING));
+        String body = new String(gunzip(result.getResponse().getContentAsByteArray()), StandardCharsets.UTF_8);
+        assertEquals("Возвращается не правильный результат при запросе GET /rest/ships/export со сжатием.",
+                testsHelper.getAllShips().size(), body.split("\n").length);
+    }
+
+    //test4
+    @Test
+    public void getAllWithoutAcceptEncodingIsNotGzipped() throws Exception {
+        MvcResult result = perform(get("/rest/ships?pageSize=40")
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        assertEquals("Ответ сжимается без заголовка Accept-Encoding.", null, result.getResponse().getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertEquals("Ответ не содержит заголовок Vary.", HttpHeaders.ACCEPT_ENCODING, result.getResponse().getHeader(HttpHeaders.VARY));
+        assertEquals("Возвращается не правильный результат при запросе GET /rest/ships без сжатия.",
+                testsHelper.getAllShips(), mapper.readValue(result.getResponse().getContentAsString(), typeReference));
+    }
+
+    private static byte[] gunzip(byte[] compressed) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] chunk = new byte[8192];
+            for (int n; (n = in.read(chunk)) > 0; )
+                out.write(chunk, 0, n);
+            return out.toByteArray();
+        }
+    }
+}
@@ -27,7 +27,7 @@ public class CreateShipTest extends AbstractTest {
     //test1
     @Test
     public void createShipEmptyBodyTest() throws Exception {
-        mockMvc.perform(post("/rest/ships/")
+        perform(post("/rest/ships/")
                 .contentType(MediaType.APPLICATION_JSON_UTF8)
                 .accept(MediaType.APPLICATION_JSON_UTF8)
                 .content("{}"))
@@ -37,7 +37,7 @@ public class CreateShipTest extends AbstractTest {
     //test2
     @Test
     public void createShipNoSpeedTest() throws Exception {
-        mockMvc.perform(post("/rest/ships/")
+        perform(post("/rest/ships/")
                 .contentType(MediaType.APPLICATION_JSON_UTF8)
                 .accept(MediaType.APPLICATION_JSON_UTF8)
                 .content(TestsHelper.NO_SPEED_JSON))
@@ -47,7 +47,7 @@ public class CreateShipTest extends AbstractTest {
     //test3
     @Test
     public void createShipEmptyNameTest() throws Exception {
-        mockMvc.perform(post("/rest/ships/")
+        perform(post("/rest/ships/")
                 .contentType(MediaType.APPLICATION_JSON_UTF8)
                 .accept(MediaType.APPLICATION_JSON_UTF8)
                 .content(TestsHelper.EMPTY_NAME_JSON))
@@ -57,7 +57,7 @@ public class CreateShipTest extends AbstractTest {
     //test4
     @Test
     public void createShipProdDateNegativeTest() throws Exception {
-        mockMvc.perform(post("/rest/ships/")
+        perform(post("/rest/ships/")
                 .contentType(MediaType.APPLICATION_JSON_UTF8)
                 .accept(MediaType.APPLICATION_JSON_UTF8)
                 .content(TestsHelper.NEGATIVE_PROD_DATE_JSON))
@@ -67,7 +67,7 @@ public class CreateShipTest extends AbstractTest {
     //test5
     @Test
     public void createShipCrewSizeTooBigTest() throws Exception {
-        mockMvc.perform(post("/rest/ships/")
+        perform(post("/rest/ships/")
                 .contentType(MediaType.APPLICATION_JSON_UTF8)
                 .accept(MediaType.APPLICATION_JSON_UTF8)
                 .content(TestsHelper.TOO_BIG_CREW_SIZE_JSON))
@@ -77,7 +77,7 @@ public class CreateShipTest extends AbstractTest {
     //test6
     @Test
     public void createShipPlanetLengthTooBigTest() throws Exception {
-        mockMvc.perform(post("/rest/ships/")
+        perform(post("/rest/ships/")
                 .contentType(MediaType.APPLICATION_JSON_UTF8)
                 .accept(MediaType.APPLICATION_JSON_UTF8)
                 .content(TestsHelper.TOO_BIG_PLANET_LENGTH_JSON))
@@ -90,7 +90,7 @@ public class CreateShipTest extends AbstractTest {
         expected.isUsed = false;
         expected.rating = 12.8;
 
-        ResultActions resultActions = mockMvc.perform(post("/rest/ships/")
+        ResultActions resultActions = perform(post("/rest/ships/")
                 .contentType(MediaType.APPLICATION_JSON_UTF8)
                 .accept(MediaType.APPLICATION_JSON_UTF8)
                 .content(TestsHelper.NO_IS_USED_JSON))
@@ -104,7 +104,7 @@ public class CreateShipTest extends AbstractTest {
     //test8
     @Test
     public void createShipIsUsedTrueTest() throws Exception {
-        ResultActions resultActions = mockMvc.perform(post("/rest/ships/")
+        ResultActions resultActions = perform(post("/rest/ships/")
                 .contentType(MediaType.APPLICATION_JSON_UTF8)
                 .accept(MediaType.APPLICATION_JSON_UTF8)
                 .content(TestsHelper.IS_USED_TRUE_JSON))
@@ -121,7 +121,7 @@ public class CreateShipTest extends AbstractTest {
         expected.isUsed = false;
         expected.rating = 12.8;
 
-        ResultActions resultActions = mockMvc.perform(post("/rest/ships/")
+        ResultActions resultActions = perform(post("/rest/ships/")
                 .contentType(MediaType.APPLICATION_JSON_UTF8)
                 .accept(MediaType.APPLICATION_JSON_UTF8)
                 .content(TestsHelper.IS_USED_FALSE_JSON))
@@ -0,0 +1,111 @@
+package com.space.controller;
+
+import com.space.cache.FleetVersion;
+import com.space.service.ShipChangeListener;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.List;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.util.AssertionErrors.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class ETagTest extends AbstractTest {
+
+    private FleetVersion fleetVersion;
+    private List<ShipChangeListener> changeListeners;
+
+    @Autowired
+    public void setFleetVersion(FleetVersion fleetVersion) {
+        this.fleetVersion = fleetVersion;
+    }
+
+    @Autowired
+    public void setChangeListeners(List<ShipChangeListener> changeListeners) {
+        this.changeListeners = changeListeners;
+    }
+
+    // test.sql rewrites the table without the service noticing, tags handed out by a previous test are stale
+    @Before
+    @Override
+    public void setup() {
+        super.setup();
+        fleetVersion.touch();
+    }
+
+    //test1
+    @Test
+    public void getShipWithMatchingETag() throws Exception {
+        perform(get("/rest/ships/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1-0\""));
+
+        MvcResult result = perform(get("/rest/ships/1")
+                .header(HttpHeaders.IF_NONE_MATCH, "\"1-0\""))
+                .andExpect(status().isNotModified())
+                .andReturn();
+        assertEquals("Ответ 304 не должен содержать тело.", 0, result.getResponse().getContentAsByteArray().length);
+    }
+
+    //test2
+    @Test
+    public void getAllNotModifiedUntilEdit() throws Exception {
+        String etag = perform(get("/rest/ships?pageSize=5"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        perform(get("/rest/ships?pageSize=5")
+                .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+        perform(get("/rest/ships/count")
+                .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        perform(post("/rest/ships/3")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .content("{\"name\": \"Voyager\"}"))
+                .andExpect(status().isOk());
+
+        String newEtag = perform(get("/rest/ships?pageSize=5")
+                .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertTrue("ETag списка не меняется после редактирования корабля.", !etag.equals(newEtag));
+    }
+
+    //test3
+    @Test
+    public void editShipWithIfMatch() throws Exception {
+        perform(post("/rest/ships/1")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .header(HttpHeaders.IF_MATCH, "\"1-0\"")
+                .content("{\"name\": \"Voyager\"}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1-1\""));
+
+        perform(post("/rest/ships/1")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .header(HttpHeaders.IF_MATCH, "\"1-0\"")
+                .content("{\"name\": \"Enterprise\"}"))
+                .andExpect(status().isPreconditionFailed());
+
+        perform(get("/rest/ships/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1-1\""));
+    }
+
+    //test4
+    @Test
+    public void fleetVersionIsTheLastChangeListener() {
+        assertTrue("Версия флота меняется раньше, чем остальные слушатели применят изменение.",
+                changeListeners.get(changeListeners.size() - 1) == fleetVersion);
+    }
+}
@@ -0,0 +1,89 @@
+package com.space.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.space.controller.utils.ShipInfoTest;
+import com.space.controller.utils.TestsHelper;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class ExportShipsTest extends AbstractTest {
+
+    private TestsHelper testsHelper = new TestsHelper();
+    private ObjectMapper mapper = new ObjectMapper();
+
+    //test1
+    @Test
+    public void exportWithoutFiltersReturnAllShips() throws Exception {
+        MvcResult result = perform(get("/rest/ships/export"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        List<ShipInfoTest> actual = new ArrayList<>();
+        for (String line : result.getResponse().getContentAsString().split("\n"))
+            actual.add(mapper.readValue(line, ShipInfoTest.class));
+
+        assertEquals("Возвращается не правильный результат при запросе GET /rest/ships/export.", testsHelper.getAllShips(), actual);
+    }
+
+    //test2
+    @Test
+    public void exportWithFiltersPlanetOrderSpeed() throws Exception {
+        MvcResult result = perform(get("/rest/ships/export?planet=ur&order=SPEED"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        List<ShipInfoTest> actual = new ArrayList<>();
+        for (String line : result.getResponse().getContentAsString().split("\n"))
+            actual.add(mapper.readValue(line, ShipInfoTest.class));
+        List<ShipInfoTest> expected = testsHelper.getShipInfosByOrder(ShipOrder.SPEED,
+                testsHelper.getShipInfosByPlanet("ur", testsHelper.getAllShips()));
+
+        assertEquals("Возвращается не правильный результат при запросе GET /rest/ships/export с параметрами planet и order.", expected, actual);
+    }
+
+    //test3
+    @Test
+    public void exportCsvWithFilterName() throws Exception {
+        MvcResult result = perform(get("/rest/ships/export?format=csv&name=Orion"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        String expected = "id,name,planet,shipType,prodDate,isUsed,speed,crewSize,rating\n"
+                + "1,Orion III,Mars,MERCHANT," + testsHelper.getShipInfosById(1).prodDate + ",true,0.82,617,1.31\n";
+        assertEquals("Возвращается не правильный результат при запросе GET /rest/ships/export в формате csv.", expected,
+                result.getResponse().getContentAsString());
+    }
+
+    //test4
+    @Test
+    public void exportUnknownFormat() throws Exception {
+        perform(get("/rest/ships/export?format=xml"))
+                .andExpect(status().isBadRequest());
+    }
+
+    //test5
+    @Test
+    public void exportCsvQuotesCarriageReturn() throws Exception {
+        perform(post("/rest/ships/1")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .content("{\"name\": \"Orion\\rIII\"}"))
+                .andExpect(status().isOk());
+        MvcResult result = perform(get("/rest/ships/export?format=csv&name=Orion"))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        String expected = "id,name,planet,shipType,prodDate,isUsed,speed,crewSize,rating\n"
+                + "1,\"Orion\rIII\",Mars,MERCHANT," + testsHelper.getShipInfosById(1).prodDate + ",true,0.82,617,1.31\n";
+        assertEquals("Значение с символом \\r должно заключаться в кавычки в формате csv.", expected,
+                result.getResponse().getContentAsString());
+    }
+}
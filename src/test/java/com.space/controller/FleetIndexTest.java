@@ -0,0 +1,174 @@
+package com.space.controller;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.space.controller.utils.ShipInfoTest;
+import com.space.controller.utils.TestsHelper;
+import com.space.index.FleetIndex;
+import com.space.model.Ship;
+import com.space.model.ShipType;
+import com.space.repository.ShipRepository;
+import com.space.specification.ShipFilter;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@TestPropertySource(properties = {"ship.index.enabled=true", "ship.index.ignore-case=false"})
+public class FleetIndexTest extends AbstractTest {
+
+    private TestsHelper testsHelper = new TestsHelper();
+    private ObjectMapper mapper = new ObjectMapper();
+    private TypeReference<List<ShipInfoTest>> typeReference = new TypeReference<List<ShipInfoTest>>() {
+    };
+
+    private FleetIndex fleetIndex;
+    private ShipRepository shipRepository;
+
+    @Autowired
+    public void setFleetIndex(FleetIndex fleetIndex) {
+        this.fleetIndex = fleetIndex;
+    }
+
+    @Autowired
+    public void setShipRepository(ShipRepository shipRepository) {
+        this.shipRepository = shipRepository;
+    }
+
+    @Before
+    @Override
+    public void setup() {
+        super.setup();
+        fleetIndex.rebuild();
+    }
+
+    //test1
+    @Test
+    public void getAllWithFiltersShipTypeAfterBeforeOrderSpeed() throws Exception {
+        List<ShipInfoTest> actual = getShips("/rest/ships?shipType=TRANSPORT&after=32503672800000&before=32850741600000&order=SPEED&pageSize=10");
+        List<ShipInfoTest> expected = testsHelper.getShipInfosByPage(0, 10,
+                testsHelper.getShipInfosByOrder(ShipOrder.SPEED,
+                        testsHelper.getShipInfosByShipType(ShipType.TRANSPORT,
+                                testsHelper.getShipInfosByAfter(32503672800000L,
+                                        testsHelper.getShipInfosByBefore(32850741600000L,
+                                                testsHelper.getAllShips())))));
+
+        assertEquals("Возвращается не правильный результат при запросе GET /rest/ships с включенным индексом.", expected, actual);
+    }
+
+    //test2
+    @Test
+    public void getAllWithFiltersPlanetIsUsedOrderRatingSecondPage() throws Exception {
+        List<ShipInfoTest> actual = getShips("/rest/ships?planet=e&isUsed=false&minCrewSize=20&order=RATING&pageNumber=1&pageSize=4");
+        List<ShipInfoTest> expected = testsHelper.getShipInfosByPage(1, 4,
+                testsHelper.getShipInfosByOrder(ShipOrder.RATING,
+                        testsHelper.getShipInfosByPlanet("e",
+                                testsHelper.getShipInfosByIsUsed(false,
+                                        testsHelper.getShipInfosByMinCrewSize(20,
+                                                testsHelper.getAllShips())))));
+
+        assertEquals("Возвращается не правильный результат при запросе GET /rest/ships с включенным индексом и параметром pageNumber.", expected, actual);
+    }
+
+    //test3
+    @Test
+    public void getCountWithFilters() throws Exception {
+        MvcResult result = perform(get("/rest/ships/count?name=a&minSpeed=0.3&maxRating=2.5")
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk())
+                .andReturn();
+        int expected = testsHelper.getShipInfosByName("a",
+                testsHelper.getShipInfosByMinSpeed(0.3,
+                        testsHelper.getShipInfosByMaxRating(2.5,
+                                testsHelper.getAllShips()))).size();
+
+        assertEquals("Возвращается не правильный результат при запросе GET /rest/ships/count с включенным индексом.",
+                expected, Integer.parseInt(result.getResponse().getContentAsString()));
+    }
+
+    //test4
+    @Test
+    public void getAllAfterEditAndDelete() throws Exception {
+        perform(post("/rest/ships/1")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .content("{\"name\": \"Voyager\"}"))
+                .andExpect(status().isOk());
+        perform(delete("/rest/ships/2"))
+                .andExpect(status().isOk());
+
+        List<ShipInfoTest> renamed = getShips("/rest/ships?name=Voyager");
+        assertEquals("Индекс не учитывает редактирование корабля.", 1, renamed.size());
+        assertEquals("Индекс не учитывает редактирование корабля.", 1L, renamed.get(0).id);
+
+        MvcResult result = perform(get("/rest/ships/count"))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertEquals("Индекс не учитывает удаление корабля.", testsHelper.getAllShips().size() - 1,
+                Integer.parseInt(result.getResponse().getContentAsString()));
+    }
+
+    //test5
+    @Test
+    public void getAllAfterDeletingMostShips() throws Exception {
+        List<ShipInfoTest> expected = new ArrayList<>();
+        for (ShipInfoTest ship : testsHelper.getAllShips()) {
+            if (ship.id % 4 == 0)
+                expected.add(ship);
+            else
+                perform(delete("/rest/ships/" + ship.id))
+                        .andExpect(status().isOk());
+        }
+
+        assertEquals("Индекс возвращает не правильный результат после удаления большей части кораблей.",
+                testsHelper.getShipInfosByOrder(ShipOrder.SPEED, expected), getShips("/rest/ships?order=SPEED&pageSize=40"));
+        assertEquals("Индекс возвращает не правильный результат после удаления большей части кораблей.",
+                testsHelper.getShipInfosByOrder(ShipOrder.ID, expected), getShips("/rest/ships?pageSize=40"));
+    }
+
+    //test6
+    @Test
+    public void staleChangesAreDropped() {
+        Ship ship = shipRepository.findById(1L).get();
+        Ship newer = renamed(ship, "Fresh copy", ship.getVersion() + 2);
+        Ship older = renamed(ship, "Stale copy", ship.getVersion() + 1);
+
+        fleetIndex.shipUpdated(ship, newer);
+        fleetIndex.shipUpdated(ship, older);
+        assertEquals("Индекс должен сохранить более новое изменение корабля.", 1L, fleetIndex.count(byName("Fresh copy")));
+        assertEquals("Индекс не должен применять устаревшее изменение корабля.", 0L, fleetIndex.count(byName("Stale copy")));
+
+        fleetIndex.shipDeleted(newer);
+        fleetIndex.shipUpdated(ship, older);
+        assertEquals("Индекс не должен возвращать удаленный корабль после запоздалого изменения.", 0L, fleetIndex.count(byName("Stale copy")));
+    }
+
+    private static Ship renamed(Ship ship, String name, long version) {
+        Ship renamed = new Ship(ship);
+        renamed.setName(name);
+        renamed.setVersion(version);
+        return renamed;
+    }
+
+    private static ShipFilter byName(String name) {
+        return new ShipFilter(name, null, null, null, null, null, null, null, null, null, null, null);
+    }
+
+    private List<ShipInfoTest> getShips(String url) throws Exception {
+        MvcResult result = perform(get(url)
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk())
+                .andReturn();
+        return mapper.readValue(result.getResponse().getContentAsString(), typeReference);
+    }
+}
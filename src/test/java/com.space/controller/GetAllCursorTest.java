@@ -0,0 +1,90 @@
+package com.space.controller;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.space.controller.utils.ShipInfoTest;
+import com.space.controller.utils.TestsHelper;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class GetAllCursorTest extends AbstractTest {
+
+    private TestsHelper testsHelper = new TestsHelper();
+    private ObjectMapper mapper = new ObjectMapper();
+    private TypeReference<List<ShipInfoTest>> typeReference = new TypeReference<List<ShipInfoTest>>() {
+    };
+
+    //test1
+    @Test
+    public void getAllWithCursorOrderIdReturnAllShips() throws Exception {
+        List<ShipInfoTest> actual = readAllPages("/rest/ships?pageSize=7", ShipOrder.ID);
+        List<ShipInfoTest> expected = testsHelper.getAllShips();
+
+        assertEquals("Возвращается не правильный результат при постраничном обходе GET /rest/ships по курсору.", expected, actual);
+    }
+
+    //test2
+    @Test
+    public void getAllWithCursorOrderRatingAndFilter() throws Exception {
+        List<ShipInfoTest> actual = readAllPages("/rest/ships?isUsed=false&pageSize=4", ShipOrder.RATING);
+        List<ShipInfoTest> expected = testsHelper.getShipInfosByOrder(ShipOrder.RATING,
+                testsHelper.getShipInfosByIsUsed(false, testsHelper.getAllShips()));
+
+        assertEquals("Возвращается не правильный результат при постраничном обходе GET /rest/ships по курсору с параметрами isUsed и order.", expected, actual);
+    }
+
+    //test3
+    @Test
+    public void getAllWithCursorOrderDate() throws Exception {
+        List<ShipInfoTest> actual = readAllPages("/rest/ships?pageSize=5", ShipOrder.DATE);
+        List<ShipInfoTest> expected = testsHelper.getAllShips();
+        expected.sort(Comparator.comparing((ShipInfoTest ship) -> ship.prodDate).thenComparing(ship -> ship.id));
+
+        assertEquals("Возвращается не правильный результат при постраничном обходе GET /rest/ships по курсору с параметром order.", expected, actual);
+    }
+
+    //test4
+    @Test
+    public void getAllWithCursorOfAnotherOrder() throws Exception {
+        MvcResult result = perform(get("/rest/ships?cursor=&pageSize=3&order=SPEED")
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk())
+                .andReturn();
+        String cursor = result.getResponse().getHeader("X-Next-Cursor");
+
+        perform(get("/rest/ships?pageSize=3&order=RATING&cursor=" + cursor)
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isBadRequest());
+    }
+
+    //test5
+    @Test
+    public void getAllWithIncorrectCursor() throws Exception {
+        perform(get("/rest/ships?cursor=test")
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isBadRequest());
+    }
+
+    private List<ShipInfoTest> readAllPages(String url, ShipOrder order) throws Exception {
+        List<ShipInfoTest> ships = new ArrayList<>();
+        String cursor = "";
+        while (cursor != null) {
+            MvcResult result = perform(get(url + "&order=" + order + "&cursor=" + cursor)
+                    .accept(MediaType.APPLICATION_JSON_UTF8))
+                    .andExpect(status().isOk())
+                    .andReturn();
+            ships.addAll(mapper.readValue(result.getResponse().getContentAsString(), typeReference));
+            cursor = result.getResponse().getHeader("X-Next-Cursor");
+        }
+        return ships;
+    }
+}
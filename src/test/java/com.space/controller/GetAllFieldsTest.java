@@ -0,0 +1,101 @@
+package com.space.controller;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.space.controller.utils.ShipInfoTest;
+import com.space.controller.utils.TestsHelper;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class GetAllFieldsTest extends AbstractTest {
+
+    private TestsHelper testsHelper = new TestsHelper();
+    private ObjectMapper mapper = new ObjectMapper();
+    private TypeReference<List<LinkedHashMap<String, Object>>> typeReference = new TypeReference<List<LinkedHashMap<String, Object>>>() {
+    };
+
+    //test1
+    @Test
+    public void getAllWithFieldsReturnsOnlyThoseFields() throws Exception {
+        MvcResult result = perform(get("/rest/ships?fields=name,rating,isUsed&planet=e&order=RATING&pageNumber=1&pageSize=4")
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk())
+                .andReturn();
+        List<LinkedHashMap<String, Object>> actual = mapper.readValue(result.getResponse().getContentAsString(), typeReference);
+        List<Map<String, Object>> expected = testsHelper.getShipInfosByPage(1, 4,
+                testsHelper.getShipInfosByOrder(ShipOrder.RATING,
+                        testsHelper.getShipInfosByPlanet("e",
+                                testsHelper.getAllShips()))).stream()
+                .map(ship -> row(ship, "name", "rating", "isUsed"))
+                .collect(Collectors.toList());
+
+        assertEquals("Возвращается не правильный результат при запросе GET /rest/ships с параметром fields.", expected, actual);
+        for (Map<String, Object> ship : actual)
+            assertEquals("Возвращаются лишние поля при запросе GET /rest/ships с параметром fields.",
+                    Arrays.asList("name", "rating", "isUsed"), new ArrayList<>(ship.keySet()));
+    }
+
+    //test2
+    @Test
+    public void getAllWithFieldsAndCursor() throws Exception {
+        List<Map<String, Object>> actual = new ArrayList<>();
+        String cursor = "";
+        while (cursor != null) {
+            MvcResult result = perform(get("/rest/ships?fields=name,prodDate&order=DATE&pageSize=6&cursor={cursor}", cursor)
+                    .accept(MediaType.APPLICATION_JSON_UTF8))
+                    .andExpect(status().isOk())
+                    .andReturn();
+            actual.addAll(mapper.readValue(result.getResponse().getContentAsString(), typeReference));
+            cursor = result.getResponse().getHeader("X-Next-Cursor");
+        }
+        List<ShipInfoTest> ships = testsHelper.getAllShips();
+        ships.sort((first, second) -> first.prodDate.equals(second.prodDate)
+                ? first.id.compareTo(second.id) : first.prodDate.compareTo(second.prodDate));
+        List<Map<String, Object>> expected = ships.stream()
+                .map(ship -> row(ship, "name", "prodDate"))
+                .collect(Collectors.toList());
+
+        assertEquals("Возвращается не правильный результат при постраничном обходе GET /rest/ships по курсору с параметром fields.", expected, actual);
+    }
+
+    //test3
+    @Test
+    public void getAllWithUnknownField() throws Exception {
+        perform(get("/rest/ships?fields=name,password")
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isBadRequest());
+    }
+
+    private static Map<String, Object> row(ShipInfoTest ship, String... fields) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        for (String field : fields) {
+            switch (field) {
+                case "name":
+                    row.put(field, ship.name);
+                    break;
+                case "rating":
+                    row.put(field, ship.rating);
+                    break;
+                case "isUsed":
+                    row.put(field, ship.isUsed);
+                    break;
+                case "prodDate":
+                    row.put(field, ship.prodDate);
+                    break;
+            }
+        }
+        return row;
+    }
+}
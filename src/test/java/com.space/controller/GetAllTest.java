@@ -26,7 +26,7 @@ public class GetAllTest extends AbstractTest {
     //test1
     @Test
     public void getAllWithoutFiltersReturnAllShips() throws Exception {
-        ResultActions resultActions = mockMvc.perform(get("/rest/ships")
+        ResultActions resultActions = perform(get("/rest/ships")
                 .accept(MediaType.APPLICATION_JSON_UTF8))
                 .andExpect(status().isOk());
 
@@ -42,7 +42,7 @@ public class GetAllTest extends AbstractTest {
     //test2
     @Test
     public void getAllWithFiltersNamePageNumber() throws Exception {
-        ResultActions resultActions = mockMvc.perform(get("/rest/ships?name=ra&pageNumber=1")
+        ResultActions resultActions = perform(get("/rest/ships?name=ra&pageNumber=1")
                 .accept(MediaType.APPLICATION_JSON_UTF8))
                 .andExpect(status().isOk());
 
@@ -59,7 +59,7 @@ public class GetAllTest extends AbstractTest {
     //test3
     @Test
     public void getAllWithFiltersPlanetPageSize() throws Exception {
-        ResultActions resultActions = mockMvc.perform(get("/rest/ships?planet=ur&pageSize=4")
+        ResultActions resultActions = perform(get("/rest/ships?planet=ur&pageSize=4")
                 .accept(MediaType.APPLICATION_JSON_UTF8))
                 .andExpect(status().isOk());
 
@@ -78,7 +78,7 @@ public class GetAllTest extends AbstractTest {
     public void getAllWithFiltersShipTypeAfterBefore() throws Exception {
         //after 00:00 01.01.3000
         //before 00:00 01.01.3011
-        ResultActions resultActions = mockMvc.perform(get("/rest/ships?shipType=MILITARY&after=32503672800000&before=32850741600000")
+        ResultActions resultActions = perform(get("/rest/ships?shipType=MILITARY&after=32503672800000&before=32850741600000")
                 .accept(MediaType.APPLICATION_JSON_UTF8))
                 .andExpect(status().isOk());
 
@@ -99,7 +99,7 @@ public class GetAllTest extends AbstractTest {
     //test5
     @Test
     public void getAllWithFiltersShipTypeMinSpeedMaxSpeed() throws Exception {
-        ResultActions resultActions = mockMvc.perform(get("/rest/ships?shipType=TRANSPORT&minSpeed=0.3&maxSpeed=0.6")
+        ResultActions resultActions = perform(get("/rest/ships?shipType=TRANSPORT&minSpeed=0.3&maxSpeed=0.6")
                 .accept(MediaType.APPLICATION_JSON_UTF8))
                 .andExpect(status().isOk());
 
@@ -119,7 +119,7 @@ public class GetAllTest extends AbstractTest {
     //test6
     @Test
     public void getAllWithFiltersShipTypeMinCrewSizeMaxCrewSize() throws Exception {
-        ResultActions resultActions = mockMvc.perform(get("/rest/ships?shipType=MERCHANT&minCrewSize=10&maxCrewSize=1000")
+        ResultActions resultActions = perform(get("/rest/ships?shipType=MERCHANT&minCrewSize=10&maxCrewSize=1000")
                 .accept(MediaType.APPLICATION_JSON_UTF8))
                 .andExpect(status().isOk());
 
@@ -139,7 +139,7 @@ public class GetAllTest extends AbstractTest {
     //test7
     @Test
     public void getAllWithFiltersIsUsedMinMaxRating() throws Exception {
-        ResultActions resultActions = mockMvc.perform(get("/rest/ships?isUsed=true&minRating=2&maxRating=4")
+        ResultActions resultActions = perform(get("/rest/ships?isUsed=true&minRating=2&maxRating=4")
                 .accept(MediaType.APPLICATION_JSON_UTF8))
                 .andExpect(status().isOk());
 
@@ -159,7 +159,7 @@ public class GetAllTest extends AbstractTest {
     //test8
     @Test
     public void getAllWithFiltersIsUsedMaxSpeedMaxRating() throws Exception {
-        ResultActions resultActions = mockMvc.perform(get("/rest/ships?isUsed=false&maxSpeed=0.6&maxRating=7")
+        ResultActions resultActions = perform(get("/rest/ships?isUsed=false&maxSpeed=0.6&maxRating=7")
                 .accept(MediaType.APPLICATION_JSON_UTF8))
                 .andExpect(status().isOk());
 
@@ -179,7 +179,7 @@ public class GetAllTest extends AbstractTest {
     //test9
     @Test
     public void getAllWithFiltersNameOrderSpeed() throws Exception {
-        ResultActions resultActions = mockMvc.perform(get("/rest/ships?name=ca&order=SPEED")
+        ResultActions resultActions = perform(get("/rest/ships?name=ca&order=SPEED")
                 .accept(MediaType.APPLICATION_JSON_UTF8))
                 .andExpect(status().isOk());
 
@@ -200,7 +200,7 @@ public class GetAllTest extends AbstractTest {
     public void getAllWithFiltersAfterBeforeMinCrewMaxCrew() throws Exception {
         //after 00:00 01.01.2996
         //before 00:00 01.01.3009
-        ResultActions resultActions = mockMvc.perform(get("/rest/ships?after=32377442400000&before=32787669600000&minCrewSize=20&maxCrewSize=1500&pageNumber=1")
+        ResultActions resultActions = perform(get("/rest/ships?after=32377442400000&before=32787669600000&minCrewSize=20&maxCrewSize=1500&pageNumber=1")
                 .accept(MediaType.APPLICATION_JSON_UTF8))
                 .andExpect(status().isOk());
 
@@ -0,0 +1,65 @@
+package com.space.controller;
+
+import org.junit.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.springframework.test.util.AssertionErrors.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class MetricsTest extends AbstractTest {
+
+    //test1
+    @Test
+    public void getMetricsAfterRequests() throws Exception {
+        perform(get("/rest/ships/1")
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk());
+        perform(get("/rest/ships?planet=Earth&minSpeed=0.5")
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk());
+
+        String metrics = getMetrics();
+
+        assertTrue("Нет таймера запросов GET /rest/ships/{id}.",
+                metrics.contains("http_server_requests_seconds_count{method=\"GET\",outcome=\"SUCCESS\",uri=\"/rest/ships/{id}\",}"));
+        assertTrue("Нет перцентиля p999 у таймера запросов.",
+                metrics.contains("http_server_requests_seconds{method=\"GET\",outcome=\"SUCCESS\",uri=\"/rest/ships\",quantile=\"0.999\",}"));
+        assertTrue("Нет таймера запросов к базе по набору фильтров.",
+                metrics.contains("ship_query_seconds_count{query=\"select\",shape=\"planet+minSpeed\",}"));
+        assertTrue("Нет статистики Hibernate.", metrics.contains("hibernate_query_executions_total"));
+        assertTrue("Нет метрик пула соединений.", metrics.contains("db_pool_connections{state=\"active\",}"));
+    }
+
+    //test2
+    @Test
+    public void getMetricsAfterNotFound() throws Exception {
+        perform(get("/rest/ships/410")
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isNotFound());
+
+        assertTrue("Нет таймера запросов с ответом 4xx.",
+                getMetrics().contains("http_server_requests_seconds_count{method=\"GET\",outcome=\"CLIENT_ERROR\",uri=\"/rest/ships/{id}\",}"));
+    }
+
+    //test3
+    @Test
+    public void getMetricsAfterSynchronousRequest() throws Exception {
+        perform(delete("/rest/ships/1"))
+                .andExpect(status().isOk());
+
+        assertTrue("Нет таймера синхронных запросов DELETE /rest/ships/{id}.",
+                getMetrics().contains("http_server_requests_seconds_count{method=\"DELETE\",outcome=\"SUCCESS\",uri=\"/rest/ships/{id}\",}"));
+    }
+
+    private String getMetrics() throws Exception {
+        MvcResult result = perform(get("/metrics"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.TEXT_PLAIN))
+                .andReturn();
+        return result.getResponse().getContentAsString();
+    }
+}
@@ -0,0 +1,135 @@
+package com.space.controller;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.space.controller.utils.ShipInfoTest;
+import com.space.controller.utils.TestsHelper;
+import com.space.index.NgramIndex;
+import com.space.model.Ship;
+import com.space.specification.ShipFilter;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@TestPropertySource(properties = {"ship.search.enabled=true", "ship.index.ignore-case=false"})
+public class NgramIndexTest extends AbstractTest {
+
+    private TestsHelper testsHelper = new TestsHelper();
+    private ObjectMapper mapper = new ObjectMapper();
+    private TypeReference<List<ShipInfoTest>> typeReference = new TypeReference<List<ShipInfoTest>>() {
+    };
+
+    private NgramIndex ngramIndex;
+
+    @Autowired
+    public void setNgramIndex(NgramIndex ngramIndex) {
+        this.ngramIndex = ngramIndex;
+    }
+
+    @Before
+    @Override
+    public void setup() {
+        super.setup();
+        ngramIndex.rebuild();
+    }
+
+    //test1
+    @Test
+    public void getAllWithFiltersNamePlanet() throws Exception {
+        List<ShipInfoTest> actual = getShips("/rest/ships?name=er&planet=ur&order=RATING&pageSize=20");
+        List<ShipInfoTest> expected = testsHelper.getShipInfosByPage(0, 20,
+                testsHelper.getShipInfosByOrder(ShipOrder.RATING,
+                        testsHelper.getShipInfosByName("er",
+                                testsHelper.getShipInfosByPlanet("ur",
+                                        testsHelper.getAllShips()))));
+
+        assertEquals("Возвращается не правильный результат при запросе GET /rest/ships с параметрами name и planet.", expected, actual);
+    }
+
+    //test2
+    @Test
+    public void getCountWithFilterNameShorterThanGram() throws Exception {
+        MvcResult result = perform(get("/rest/ships/count?name=a")
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk())
+                .andReturn();
+        int expected = testsHelper.getShipInfosByName("a", testsHelper.getAllShips()).size();
+
+        assertEquals("Возвращается не правильный результат при запросе GET /rest/ships/count с параметром name.",
+                expected, Integer.parseInt(result.getResponse().getContentAsString()));
+    }
+
+    //test3
+    @Test
+    public void getAllWithFilterNameContainingWildcards() throws Exception {
+        List<ShipInfoTest> percent = getShips("/rest/ships?name={name}", "Or%t");
+        List<ShipInfoTest> underscore = getShips("/rest/ships?name=E_X");
+
+        assertEquals("Возвращается не правильный результат при запросе GET /rest/ships с символом % в параметре name.",
+                Collections.singletonList(testsHelper.getShipInfosById(10)), percent);
+        assertEquals("Возвращается не правильный результат при запросе GET /rest/ships с символом _ в параметре name.",
+                Collections.singletonList(testsHelper.getShipInfosById(14)), underscore);
+    }
+
+    //test4
+    @Test
+    public void getAllAfterEditAndDelete() throws Exception {
+        perform(post("/rest/ships/1")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .content("{\"name\": \"Voyager\"}"))
+                .andExpect(status().isOk());
+        perform(delete("/rest/ships/2"))
+                .andExpect(status().isOk());
+
+        assertEquals("Индекс не учитывает редактирование корабля.", 1, getShips("/rest/ships?name=oyag").size());
+        assertEquals("Индекс не учитывает редактирование корабля.", 0, getShips("/rest/ships?name=Orion").size());
+        assertEquals("Индекс не учитывает удаление корабля.", 0, getShips("/rest/ships?name=Daedalus").size());
+    }
+
+    //test5
+    @Test
+    public void candidatesKeepCharactersFoldingCannotMatch() {
+        NgramIndex folding = new NgramIndex(true, true, 100);
+        folding.shipCreated(ship(41L, "Straße", "Mars"));
+        folding.shipCreated(ship(42L, "Strasse", "Mars"));
+        folding.shipCreated(ship(43L, "Orion", "Mars"));
+
+        assertEquals("Кандидаты должны включать значения с символами, которые свёртка не сравнивает точно.",
+                Arrays.asList(41L, 42L), folding.candidates(filterByName("STRASSE")));
+        assertEquals("Символ, который свёртка не сравнивает точно, должен считаться шаблоном в фильтре.",
+                Arrays.asList(41L, 42L), folding.candidates(filterByName("straß")));
+    }
+
+    private static Ship ship(Long id, String name, String planet) {
+        Ship ship = new Ship();
+        ship.setId(id);
+        ship.setName(name);
+        ship.setPlanet(planet);
+        return ship;
+    }
+
+    private static ShipFilter filterByName(String name) {
+        return new ShipFilter(name, null, null, null, null, null, null, null, null, null, null, null);
+    }
+
+    private List<ShipInfoTest> getShips(String url, Object... uriVars) throws Exception {
+        MvcResult result = perform(get(url, uriVars)
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk())
+                .andReturn();
+        return mapper.readValue(result.getResponse().getContentAsString(), typeReference);
+    }
+}
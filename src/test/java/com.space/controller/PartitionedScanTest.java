@@ -0,0 +1,102 @@
+package com.space.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.space.controller.utils.ShipInfoTest;
+import com.space.controller.utils.TestsHelper;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Queues of two ships keep the partitions waiting for the merge
+@TestPropertySource(properties = {"ship.scan.partitions=3", "ship.scan.queue-size=2"})
+public class PartitionedScanTest extends AbstractTest {
+
+    private static final int CONCURRENT_EXPORTS = 8;
+
+    private TestsHelper testsHelper = new TestsHelper();
+    private ObjectMapper mapper = new ObjectMapper();
+
+    //test1
+    @Test
+    public void exportWithoutFiltersReturnAllShips() throws Exception {
+        assertEquals("Возвращается не правильный результат при запросе GET /rest/ships/export по частям.",
+                testsHelper.getAllShips(), export("/rest/ships/export"));
+    }
+
+    //test2
+    @Test
+    public void exportOrderSpeedMerged() throws Exception {
+        List<ShipInfoTest> expected = testsHelper.getShipInfosByOrder(ShipOrder.SPEED, testsHelper.getAllShips());
+
+        assertEquals("Возвращается не правильный результат при запросе GET /rest/ships/export по частям с параметром order.",
+                expected, export("/rest/ships/export?order=SPEED"));
+    }
+
+    //test3
+    @Test
+    public void exportWithFiltersIsUsedOrderRating() throws Exception {
+        List<ShipInfoTest> expected = testsHelper.getShipInfosByOrder(ShipOrder.RATING,
+                testsHelper.getShipInfosByIsUsed(false, testsHelper.getAllShips()));
+
+        assertEquals("Возвращается не правильный результат при запросе GET /rest/ships/export по частям с параметрами isUsed и order.",
+                expected, export("/rest/ships/export?isUsed=false&order=RATING"));
+    }
+
+    //test4
+    @Test
+    public void getCountSummedOverPartitions() throws Exception {
+        assertEquals("Возвращается не правильный результат при запросе GET /rest/ships/count по частям.",
+                testsHelper.getAllShips().size(), getCount("/rest/ships/count"));
+        assertEquals("Возвращается не правильный результат при запросе GET /rest/ships/count по частям с параметром isUsed.",
+                testsHelper.getShipInfosByIsUsed(true, testsHelper.getAllShips()).size(), getCount("/rest/ships/count?isUsed=true"));
+    }
+
+    //test5
+    @Test
+    public void concurrentExportsAllFinish() throws Exception {
+        List<ShipInfoTest> expected = testsHelper.getShipInfosByOrder(ShipOrder.SPEED, testsHelper.getAllShips());
+        ExecutorService clients = Executors.newFixedThreadPool(CONCURRENT_EXPORTS);
+        try {
+            List<Future<List<ShipInfoTest>>> exports = new ArrayList<>();
+            for (int i = 0; i < CONCURRENT_EXPORTS; i++)
+                exports.add(clients.submit(() -> export("/rest/ships/export?order=SPEED")));
+
+            for (Future<List<ShipInfoTest>> export : exports)
+                assertEquals("Одновременные запросы GET /rest/ships/export по частям не должны ждать друг друга вечно.",
+                        expected, export.get(10, TimeUnit.SECONDS));
+        } finally {
+            clients.shutdownNow();
+        }
+    }
+
+    private List<ShipInfoTest> export(String url) throws Exception {
+        MvcResult result = perform(get(url))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        List<ShipInfoTest> ships = new ArrayList<>();
+        for (String line : result.getResponse().getContentAsString().split("\n"))
+            ships.add(mapper.readValue(line, ShipInfoTest.class));
+        return ships;
+    }
+
+    private int getCount(String url) throws Exception {
+        MvcResult result = perform(get(url)
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk())
+                .andReturn();
+        return Integer.parseInt(result.getResponse().getContentAsString());
+    }
+}
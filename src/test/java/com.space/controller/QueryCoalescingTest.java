@@ -0,0 +1,98 @@
+package com.space.controller;
+
+import com.space.controller.utils.TestsHelper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@TestPropertySource(properties = {"ship.coalescing.linger-ms=10000", "ship.query-cache.enabled=false"})
+public class QueryCoalescingTest extends AbstractTest {
+
+    private TestsHelper testsHelper = new TestsHelper();
+
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    public void setMeterRegistry(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    //test1
+    @Test
+    public void getCountSharedWithinLinger() throws Exception {
+        double shared = sharedCount();
+
+        assertEquals("Возвращается не правильный результат при запросе GET /rest/ships/count.", testsHelper.getAllShips().size(), getCount());
+        assertEquals("Возвращается не правильный результат при повторном запросе GET /rest/ships/count.", testsHelper.getAllShips().size(), getCount());
+        assertEquals("Повторный запрос GET /rest/ships/count должен получить результат первого.", shared + 1, sharedCount());
+    }
+
+    //test2
+    @Test
+    public void getCountAfterDeleteNotShared() throws Exception {
+        getCount();
+        perform(delete("/rest/ships/1"))
+                .andExpect(status().isOk());
+
+        assertEquals("Запрос GET /rest/ships/count после удаления не должен получить прежний результат.",
+                testsHelper.getAllShips().size() - 1, getCount());
+    }
+
+    //test3
+    @Test
+    public void concurrentIdenticalQueriesRunOnce() throws Exception {
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<Integer> first = CompletableFuture.supplyAsync(() -> queryCoalescer.execute("test", "key", () -> {
+            executions.incrementAndGet();
+            started.countDown();
+            await(release);
+            return 42;
+        }));
+        started.await();
+        CompletableFuture<Integer> second = CompletableFuture.supplyAsync(() -> queryCoalescer.execute("test", "key", executions::incrementAndGet));
+        Thread.sleep(100);
+        release.countDown();
+
+        assertEquals("Первый запрос получил не свой результат.", 42, first.get(5, TimeUnit.SECONDS));
+        assertEquals("Одновременный одинаковый запрос должен получить результат первого.", 42, second.get(5, TimeUnit.SECONDS));
+        assertEquals("Одинаковые одновременные запросы должны выполниться один раз.", 1, executions.get());
+    }
+
+    private int getCount() throws Exception {
+        MvcResult result = perform(get("/rest/ships/count")
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk())
+                .andReturn();
+        return Integer.parseInt(result.getResponse().getContentAsString());
+    }
+
+    private double sharedCount() {
+        return meterRegistry.find("ship.query.coalescing").tags("query", "count", "role", "shared").counters().stream()
+                .mapToDouble(counter -> counter.count())
+                .sum();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.space.controller;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.space.controller.utils.ShipInfoTest;
+import com.space.controller.utils.TestsHelper;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Calendar;
+import java.util.List;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.util.AssertionErrors.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@TestPropertySource(properties = {"ship.rating-job.chunk-size=4", "ship.rating-job.max-rows-per-second=200",
+        "ship.rating-job.parallelism=2"})
+public class RatingJobTest extends AbstractTest {
+
+    private ObjectMapper mapper = new ObjectMapper();
+    private TypeReference<List<ShipInfoTest>> typeReference = new TypeReference<List<ShipInfoTest>>() {
+    };
+
+    //test1
+    @Test
+    public void recomputeRatingsForNewYear() throws Exception {
+        mockMvc.perform(post("/rest/admin/rating-job?currentYear=3029"))
+                .andExpect(status().isAccepted());
+        JsonNode status = awaitState("DONE");
+
+        MvcResult result = perform(get("/rest/ships?pageSize=100")
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk())
+                .andReturn();
+        List<ShipInfoTest> ships = mapper.readValue(result.getResponse().getContentAsString(), typeReference);
+
+        assertEquals("Задача пересчета обработала не все корабли.", (long) ships.size(), status.get("processed").asLong());
+        assertEquals("Задача пересчета обработала не все корабли.", status.get("total").asLong(), status.get("processed").asLong());
+        for (ShipInfoTest ship : ships)
+            assertEquals("Рейтинг корабля " + ship.id + " не пересчитан для нового года.", rating(ship, 3029), ship.rating);
+    }
+
+    //test2
+    @Test
+    public void pauseAndResume() throws Exception {
+        mockMvc.perform(post("/rest/admin/rating-job?currentYear=3039"))
+                .andExpect(status().isAccepted());
+        mockMvc.perform(post("/rest/admin/rating-job/pause"))
+                .andExpect(status().isOk());
+
+        JsonNode paused = awaitState("PAUSED");
+        assertTrue("Задача пересчета не остановилась по запросу.",
+                paused.get("processed").asLong() < paused.get("total").asLong());
+
+        mockMvc.perform(post("/rest/admin/rating-job/resume"))
+                .andExpect(status().isAccepted());
+        JsonNode done = awaitState("DONE");
+        assertEquals("Задача пересчета после возобновления обработала не все корабли.",
+                done.get("total").asLong(), done.get("processed").asLong());
+
+        MvcResult result = perform(get("/rest/ships/1")
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk())
+                .andReturn();
+        ShipInfoTest ship = mapper.readValue(result.getResponse().getContentAsString(), ShipInfoTest.class);
+        assertEquals("Рейтинг корабля не пересчитан после возобновления.", rating(ship, 3039), ship.rating);
+    }
+
+    //test3
+    @Test
+    public void startWhileRunningAndWithPastYear() throws Exception {
+        mockMvc.perform(post("/rest/admin/rating-job?currentYear=3010"))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(post("/rest/admin/rating-job?currentYear=3020"))
+                .andExpect(status().isAccepted());
+        mockMvc.perform(post("/rest/admin/rating-job?currentYear=3021"))
+                .andExpect(status().isConflict());
+        awaitState("DONE");
+    }
+
+    //test4
+    @Test
+    public void prodDateIsBoundByCurrentYear() throws Exception {
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(3025, Calendar.JUNE, 1);
+        String json = TestsHelper.NORMAL_JSON.replace("32998274577071", Long.toString(calendar.getTimeInMillis()));
+
+        mockMvc.perform(post("/rest/admin/rating-job?currentYear=3020"))
+                .andExpect(status().isAccepted());
+        awaitState("DONE");
+        mockMvc.perform(post("/rest/ships")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .content(json))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(post("/rest/admin/rating-job?currentYear=3029"))
+                .andExpect(status().isAccepted());
+        awaitState("DONE");
+        mockMvc.perform(post("/rest/ships")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .content(json))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(post("/rest/admin/rating-job?currentYear=3024"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private JsonNode awaitState(String state) throws Exception {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (true) {
+            MvcResult result = mockMvc.perform(get("/rest/admin/rating-job"))
+                    .andExpect(status().isOk())
+                    .andReturn();
+            JsonNode status = mapper.readTree(result.getResponse().getContentAsString());
+            if (status.get("state").asText().equals(state))
+                return status;
+            assertTrue("Задача пересчета не перешла в состояние " + state + ": " + status, System.currentTimeMillis() < deadline);
+            Thread.sleep(20);
+        }
+    }
+
+    private static Double rating(ShipInfoTest ship, int currentYear) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(ship.prodDate);
+        double rating = 80 * ship.speed * (ship.isUsed ? 0.5 : 1) / (currentYear - calendar.get(Calendar.YEAR) + 1);
+        return BigDecimal.valueOf(rating).setScale(2, RoundingMode.HALF_UP).doubleValue();
+    }
+}
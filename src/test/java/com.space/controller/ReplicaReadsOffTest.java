@@ -0,0 +1,51 @@
+package com.space.controller;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.space.controller.utils.ShipInfoTest;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.List;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.util.AssertionErrors.assertNotNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// With db.replica.serve-reads off the listings stay on the primary, cached and tagged; exports still use the replica
+@TestPropertySource(properties = {"db.replica.embedded-count=1", "db.replica.lag-query=", "db.replica.serve-reads=false"})
+public class ReplicaReadsOffTest extends AbstractTest {
+
+    private ObjectMapper mapper = new ObjectMapper();
+    private TypeReference<List<ShipInfoTest>> typeReference = new TypeReference<List<ShipInfoTest>>() {
+    };
+
+    //test1
+    @Test
+    public void getAllAndCountReadFromPrimaryWithETag() throws Exception {
+        perform(post("/rest/ships/1")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .content("{\"name\": \"Voyager\"}"))
+                .andExpect(status().isOk());
+
+        MvcResult result = perform(get("/rest/ships?name=Voyager")
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertEquals("Запрос GET /rest/ships должен читать из основной базы, если чтение из реплик выключено.",
+                1, mapper.readValue(result.getResponse().getContentAsString(), typeReference).size());
+        assertNotNull("Ответ, прочитанный из основной базы, должен содержать ETag флота.",
+                result.getResponse().getHeader(HttpHeaders.ETAG));
+
+        result = perform(get("/rest/ships/count?name=Orion"))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertEquals("Запрос GET /rest/ships/count должен читать из основной базы, если чтение из реплик выключено.",
+                "0", result.getResponse().getContentAsString());
+    }
+}
@@ -0,0 +1,137 @@
+package com.space.controller;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.space.controller.utils.ShipInfoTest;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import javax.servlet.http.Cookie;
+import java.util.List;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.util.AssertionErrors.assertNotNull;
+import static org.springframework.test.util.AssertionErrors.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// The embedded replica keeps the data it was seeded with, a write is only visible on the primary
+@TestPropertySource(properties = {"db.replica.embedded-count=1", "db.replica.lag-query="})
+public class ReplicaRoutingTest extends AbstractTest {
+
+    private ObjectMapper mapper = new ObjectMapper();
+    private TypeReference<List<ShipInfoTest>> typeReference = new TypeReference<List<ShipInfoTest>>() {
+    };
+
+    //test1
+    @Test
+    public void exportReadsFromReplica() throws Exception {
+        editName();
+
+        assertEquals("Запрос GET /rest/ships/export без записи клиента должен читать из реплики.",
+                0, exportShips(get("/rest/ships/export?name=Voyager")));
+        assertEquals("Запрос GET /rest/ships/export без записи клиента должен читать из реплики.",
+                1, exportShips(get("/rest/ships/export?name=Orion")));
+    }
+
+    //test2
+    @Test
+    public void exportAfterOwnWriteReadsFromPrimary() throws Exception {
+        Cookie cookie = editName();
+
+        assertNotNull("Запрос POST /rest/ships/{id} должен выставлять cookie " + ReadYourWritesInterceptor.COOKIE + ".", cookie);
+        assertEquals("Запрос GET /rest/ships/export после записи клиента должен читать из основной базы.",
+                1, exportShips(get("/rest/ships/export?name=Voyager").cookie(cookie)));
+    }
+
+    //test3
+    @Test
+    public void getShipMissReadsFromReplica() throws Exception {
+        Cookie cookie = editName();
+
+        assertEquals("Промах кэша кораблей без записи клиента должен читать из реплики.",
+                "Orion III", getShip(get("/rest/ships/1")).name);
+        assertEquals("Чтение из реплики не должно попадать в кэш кораблей.",
+                "Voyager", getShip(get("/rest/ships/1").cookie(cookie)).name);
+    }
+
+    //test4
+    @Test
+    public void getAllAndCountReadFromReplicaWithoutETag() throws Exception {
+        editName();
+
+        MvcResult result = perform(get("/rest/ships?name=Voyager")
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertEquals("Запрос GET /rest/ships без записи клиента должен читать из реплики.",
+                0, mapper.readValue(result.getResponse().getContentAsString(), typeReference).size());
+        assertTrue("Ответ, прочитанный из реплики, не должен содержать ETag флота.",
+                result.getResponse().getHeader(HttpHeaders.ETAG) == null);
+
+        result = perform(get("/rest/ships/count?name=Orion"))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertEquals("Запрос GET /rest/ships/count без записи клиента должен читать из реплики.",
+                "1", result.getResponse().getContentAsString());
+        assertTrue("Ответ, прочитанный из реплики, не должен содержать ETag флота.",
+                result.getResponse().getHeader(HttpHeaders.ETAG) == null);
+    }
+
+    //test5
+    @Test
+    public void getAllAfterOwnWriteReadsFromPrimaryWithETag() throws Exception {
+        Cookie cookie = editName();
+
+        MvcResult result = perform(get("/rest/ships?name=Voyager").cookie(cookie)
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertEquals("Запрос GET /rest/ships после записи клиента должен читать из основной базы.",
+                1, mapper.readValue(result.getResponse().getContentAsString(), typeReference).size());
+        assertNotNull("Ответ, прочитанный из основной базы, должен содержать ETag флота.",
+                result.getResponse().getHeader(HttpHeaders.ETAG));
+    }
+
+    //test6
+    @Test
+    public void replicaResultIsNotCached() throws Exception {
+        Cookie cookie = editName();
+        perform(get("/rest/ships/count?name=Voyager")).andExpect(status().isOk());
+
+        MvcResult result = perform(get("/rest/ships/count?name=Voyager").cookie(cookie))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertEquals("Результат, прочитанный из реплики, не должен попадать в кэш запросов.",
+                "1", result.getResponse().getContentAsString());
+    }
+
+    private Cookie editName() throws Exception {
+        MvcResult result = perform(post("/rest/ships/1")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .content("{\"name\": \"Voyager\"}"))
+                .andExpect(status().isOk())
+                .andReturn();
+        return result.getResponse().getCookie(ReadYourWritesInterceptor.COOKIE);
+    }
+
+    private int exportShips(MockHttpServletRequestBuilder request) throws Exception {
+        String content = perform(request)
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return content.isEmpty() ? 0 : content.split("\n").length;
+    }
+
+    private ShipInfoTest getShip(MockHttpServletRequestBuilder request) throws Exception {
+        MvcResult result = perform(request
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk())
+                .andReturn();
+        return mapper.readValue(result.getResponse().getContentAsString(), ShipInfoTest.class);
+    }
+}
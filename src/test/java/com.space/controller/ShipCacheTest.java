@@ -0,0 +1,65 @@
+package com.space.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.space.controller.utils.ShipInfoTest;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.ResultActions;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class ShipCacheTest extends AbstractTest {
+
+    private ObjectMapper mapper = new ObjectMapper();
+
+    //test1
+    @Test
+    public void getShipAfterEditReturnsEditedShip() throws Exception {
+        getShip(5);
+
+        perform(post("/rest/ships/5")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .accept(MediaType.APPLICATION_JSON_UTF8)
+                .content("{\"name\": \"Excalibur II\"}"))
+                .andExpect(status().isOk());
+
+        assertEquals("Вернулся устаревший объект при запросе GET /rest/ships/{id} после редактирования.",
+                "Excalibur II", getShip(5).name);
+    }
+
+    //test2
+    @Test
+    public void getShipAfterDeleteReturnsNotFound() throws Exception {
+        getShip(7);
+
+        perform(delete("/rest/ships/7")
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk());
+
+        perform(get("/rest/ships/7")
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isNotFound());
+    }
+
+    //test3
+    @Test
+    public void repeatedGetShipIsCacheHit() throws Exception {
+        long hits = shipCache.stats().hitCount();
+
+        getShip(9);
+        getShip(9);
+
+        assertEquals("Повторный запрос GET /rest/ships/{id} не попал в кэш.", hits + 1, shipCache.stats().hitCount());
+    }
+
+    private ShipInfoTest getShip(long id) throws Exception {
+        ResultActions resultActions = perform(get("/rest/ships/" + id)
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk());
+        return mapper.readValue(resultActions.andReturn().getResponse().getContentAsString(), ShipInfoTest.class);
+    }
+}
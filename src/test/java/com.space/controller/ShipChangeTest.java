@@ -0,0 +1,197 @@
+package com.space.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.space.model.Ship;
+import com.space.model.ShipChange;
+import com.space.service.ShipChangeFeed;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.util.AssertionErrors.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class ShipChangeTest extends AbstractTest {
+
+    private static final int CONCURRENT_WRITES = 20;
+
+    private ObjectMapper mapper = new ObjectMapper();
+
+    private ShipChangeFeed changeFeed;
+    private CompressionFilter compressionFilter;
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    public void setChangeFeed(ShipChangeFeed changeFeed) {
+        this.changeFeed = changeFeed;
+    }
+
+    @Autowired
+    public void setObjectMapper(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Autowired
+    public void setCompressionFilter(CompressionFilter compressionFilter) {
+        this.compressionFilter = compressionFilter;
+    }
+
+    //test1
+    @Test
+    public void pollReturnsChangesSince() throws Exception {
+        long since = changeFeed.lastSequence();
+        editName(1);
+
+        MvcResult result = perform(get("/rest/ships/changes?since=" + since)
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk())
+                .andReturn();
+        JsonNode changes = mapper.readTree(result.getResponse().getContentAsString());
+
+        assertEquals("Запрос GET /rest/ships/changes должен вернуть одно изменение.", 1, changes.size());
+        assertEquals("Изменение должно иметь следующий номер.", since + 1, changes.get(0).get("sequence").asLong());
+        assertEquals("Изменение должно иметь тип UPDATED.", "UPDATED", changes.get(0).get("type").asText());
+        assertEquals("Изменение должно содержать корабль после редактирования.", "Voyager", changes.get(0).get("ship").get("name").asText());
+    }
+
+    //test2
+    @Test
+    public void pollWaitsForNextChange() throws Exception {
+        long since = changeFeed.lastSequence();
+        MvcResult result = mockMvc.perform(get("/rest/ships/changes?since=" + since)
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        perform(delete("/rest/ships/2"))
+                .andExpect(status().isOk());
+
+        MvcResult dispatched = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn();
+        JsonNode changes = mapper.readTree(dispatched.getResponse().getContentAsString());
+
+        assertEquals("Ожидающий запрос GET /rest/ships/changes должен вернуть удаление.", 1, changes.size());
+        assertEquals("Изменение должно иметь тип DELETED.", "DELETED", changes.get(0).get("type").asText());
+        assertEquals("Изменение должно содержать id удаленного корабля.", 2L, changes.get(0).get("id").asLong());
+    }
+
+    //test3
+    @Test
+    public void streamResumesAfterLastEventId() throws Exception {
+        long since = changeFeed.lastSequence();
+        editName(3);
+
+        MockMvc compressingMockMvc = MockMvcBuilders.webAppContextSetup(context).addFilters(compressionFilter).build();
+        MvcResult result = compressingMockMvc.perform(get("/rest/ships/changes")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .header("Last-Event-ID", since)
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String expected = "id:" + (since + 1);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!result.getResponse().getContentAsString().contains(expected) && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+
+        String content = result.getResponse().getContentAsString();
+        assertTrue("Поток GET /rest/ships/changes должен продолжиться после Last-Event-ID.", content.contains(expected));
+        assertTrue("Событие должно называться по типу изменения.", content.contains("event:UPDATED"));
+        assertEquals("Поток событий не должен сжиматься.", null, result.getResponse().getHeader(HttpHeaders.CONTENT_ENCODING));
+    }
+
+    //test4
+    @Test
+    public void pollUnknownSequenceIsGone() throws Exception {
+        perform(get("/rest/ships/changes?since=" + (changeFeed.lastSequence() + 1000))
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isGone());
+    }
+
+    //test5
+    @Test
+    public void replaySkipsTornLastLine() throws Exception {
+        Path log = Files.createTempFile("ship-changes", ".ndjson");
+        Ship ship = new Ship();
+        ship.setId(1L);
+        ship.setName("Voyager");
+        try {
+            ShipChangeFeed feed = new ShipChangeFeed(16, log.toString(), objectMapper);
+            feed.record(ShipChange.Type.UPDATED, ship);
+            feed.record(ShipChange.Type.UPDATED, ship);
+            feed.destroy();
+            Files.write(log, "{\"sequence\":3,\"ty".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+            feed = new ShipChangeFeed(16, log.toString(), objectMapper);
+            assertEquals("Оборванная последняя строка журнала изменений не должна учитываться.", 2L, feed.lastSequence());
+            feed.record(ShipChange.Type.DELETED, ship);
+            feed.destroy();
+
+            feed = new ShipChangeFeed(16, log.toString(), objectMapper);
+            assertEquals("Изменение после оборванной строки журнала должно читаться.", 3L, feed.lastSequence());
+            assertEquals("Изменение после оборванной строки журнала должно читаться.",
+                    ShipChange.Type.DELETED, feed.since(2, 10).get(0).getType());
+            feed.destroy();
+        } finally {
+            Files.delete(log);
+        }
+    }
+
+    //test6
+    @Test
+    public void concurrentDeleteAndEditFinish() throws Exception {
+        long since = changeFeed.lastSequence();
+        ExecutorService writers = Executors.newFixedThreadPool(2);
+        try {
+            for (long id = 1; id <= CONCURRENT_WRITES; id++) {
+                long shipId = id;
+                Future<Integer> edit = writers.submit(() -> perform(post("/rest/ships/" + shipId)
+                        .contentType(MediaType.APPLICATION_JSON_UTF8)
+                        .content("{\"name\": \"Voyager\"}"))
+                        .andReturn().getResponse().getStatus());
+                Future<Integer> deletion = writers.submit(() -> perform(delete("/rest/ships/" + shipId))
+                        .andReturn().getResponse().getStatus());
+
+                assertEquals("Удаление корабля, редактируемого одновременно, должно пройти.", 200, deletion.get(10, TimeUnit.SECONDS));
+                int status = edit.get(10, TimeUnit.SECONDS);
+                assertTrue("Редактирование корабля, удаляемого одновременно, должно пройти или сообщить о конфликте.",
+                        status == 200 || status == 404 || status == 409);
+            }
+        } finally {
+            writers.shutdownNow();
+        }
+
+        long deleted = changeFeed.since(since, 1000).stream()
+                .filter(change -> change.getType() == ShipChange.Type.DELETED)
+                .count();
+        assertEquals("Каждое удаление должно попасть в ленту изменений.", (long) CONCURRENT_WRITES, deleted);
+    }
+
+    private void editName(long id) throws Exception {
+        perform(post("/rest/ships/" + id)
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .content("{\"name\": \"Voyager\"}"))
+                .andExpect(status().isOk());
+    }
+}
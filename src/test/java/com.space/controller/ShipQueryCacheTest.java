@@ -0,0 +1,110 @@
+package com.space.controller;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.space.controller.utils.ShipInfoTest;
+import com.space.controller.utils.TestsHelper;
+import com.space.model.Ship;
+import com.space.specification.ShipFilter;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.List;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.util.AssertionErrors.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class ShipQueryCacheTest extends AbstractTest {
+
+    private TestsHelper testsHelper = new TestsHelper();
+    private ObjectMapper mapper = new ObjectMapper();
+    private TypeReference<List<ShipInfoTest>> typeReference = new TypeReference<List<ShipInfoTest>>() {
+    };
+
+    //test1
+    @Test
+    public void getCountCached() throws Exception {
+        long hits = queryCache.stats().hitCount();
+        int expected = testsHelper.getShipInfosByPlanet("Mars", testsHelper.getAllShips()).size();
+
+        assertEquals("Возвращается не правильный результат при запросе GET /rest/ships/count с параметром planet.", expected, getCount("Mars"));
+        assertEquals("Возвращается не правильный результат при повторном запросе GET /rest/ships/count.", expected, getCount("Mars"));
+        assertEquals("Повторный запрос GET /rest/ships/count должен быть взят из кэша.", hits + 1, queryCache.stats().hitCount());
+    }
+
+    //test2
+    @Test
+    public void getAllAfterEditOfOtherShipCached() throws Exception {
+        List<ShipInfoTest> before = getShips("/rest/ships?planet=Mars");
+        edit(2, "{\"name\": \"Voyager\"}");
+        long hits = queryCache.stats().hitCount();
+
+        assertEquals("Изменение корабля вне фильтра не должно менять результат.", before, getShips("/rest/ships?planet=Mars"));
+        assertEquals("Изменение корабля вне фильтра не должно вытеснять результат из кэша.", hits + 1, queryCache.stats().hitCount());
+    }
+
+    //test3
+    @Test
+    public void getAllAfterEditOfMatchingShip() throws Exception {
+        getShips("/rest/ships?planet=Mars");
+        edit(1, "{\"name\": \"Voyager\"}");
+
+        List<ShipInfoTest> actual = getShips("/rest/ships?planet=Mars");
+        assertEquals("Кэш не учитывает редактирование корабля из фильтра.", "Voyager", actual.get(0).name);
+    }
+
+    //test4
+    @Test
+    public void getCountAfterEditIntoFilter() throws Exception {
+        int before = getCount("Mars");
+        edit(2, "{\"planet\": \"Mars\"}");
+
+        assertEquals("Кэш не учитывает корабль, попавший под фильтр после редактирования.", before + 1, getCount("Mars"));
+    }
+
+    //test5
+    @Test
+    public void filterMatchesIgnoringAccents() {
+        Ship ship = new Ship();
+        ship.setName("Éclair");
+        ship.setPlanet("Ørsted");
+        ship.setRating(1.5);
+
+        assertTrue("Изменение корабля с диакритикой в имени должно вытеснять результат фильтра без неё.",
+                filter("ECLA", null).matches(ship));
+        assertTrue("Изменение корабля с неразложимой буквой должно вытеснять результат фильтра.",
+                filter(null, "orst").matches(ship));
+        assertTrue("Изменение корабля вне фильтра не должно вытеснять результат.", !filter("clam", null).matches(ship));
+    }
+
+    private ShipFilter filter(String name, String planet) {
+        return new ShipFilter(name, planet, null, null, null, null, null, null, null, null, null, null);
+    }
+
+    private void edit(long id, String content) throws Exception {
+        perform(post("/rest/ships/" + id)
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .content(content))
+                .andExpect(status().isOk());
+    }
+
+    private int getCount(String planet) throws Exception {
+        MvcResult result = perform(get("/rest/ships/count?planet=" + planet)
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk())
+                .andReturn();
+        return Integer.parseInt(result.getResponse().getContentAsString());
+    }
+
+    private List<ShipInfoTest> getShips(String url) throws Exception {
+        MvcResult result = perform(get(url)
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk())
+                .andReturn();
+        return mapper.readValue(result.getResponse().getContentAsString(), typeReference);
+    }
+}
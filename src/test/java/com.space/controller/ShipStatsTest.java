@@ -0,0 +1,170 @@
+package com.space.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.space.controller.utils.ShipInfoTest;
+import com.space.controller.utils.TestsHelper;
+import com.space.model.Ship;
+import com.space.model.ShipGroupStats;
+import com.space.model.ShipType;
+import com.space.repository.ShipRepository;
+import com.space.stats.FleetStatistics;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.Calendar;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Collectors;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.util.AssertionErrors.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class ShipStatsTest extends AbstractTest {
+
+    private static final int YEAR_BUCKET = 10;
+
+    private TestsHelper testsHelper = new TestsHelper();
+    private ObjectMapper mapper = new ObjectMapper();
+
+    private FleetStatistics fleetStatistics;
+    private ShipRepository shipRepository;
+
+    @Autowired
+    public void setFleetStatistics(FleetStatistics fleetStatistics) {
+        this.fleetStatistics = fleetStatistics;
+    }
+
+    @Autowired
+    public void setShipRepository(ShipRepository shipRepository) {
+        this.shipRepository = shipRepository;
+    }
+
+    @Before
+    @Override
+    public void setup() {
+        super.setup();
+        fleetStatistics.rebuild();
+    }
+
+    //test1
+    @Test
+    public void getStatsWithoutFilters() throws Exception {
+        assertStats("GET /rest/ships/stats", testsHelper.getAllShips(), getStats("/rest/ships/stats"));
+    }
+
+    //test2
+    @Test
+    public void getStatsWithFilters() throws Exception {
+        List<ShipInfoTest> expected = testsHelper.getShipInfosByPlanet("e",
+                testsHelper.getShipInfosByMinSpeed(0.3,
+                        testsHelper.getAllShips()));
+
+        assertStats("GET /rest/ships/stats с параметрами planet и minSpeed", expected,
+                getStats("/rest/ships/stats?planet=e&minSpeed=0.3"));
+    }
+
+    //test3
+    @Test
+    public void getStatsAfterCreateEditAndDelete() throws Exception {
+        perform(post("/rest/ships/")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .content("{\"name\": \"Voyager\", \"planet\": \"Earth\", \"shipType\": \"MERCHANT\", \"prodDate\": 32503672800000, " +
+                        "\"isUsed\": true, \"speed\": 0.99, \"crewSize\": 9999}"))
+                .andExpect(status().isOk());
+        perform(post("/rest/ships/1")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .content("{\"planet\": \"Earth\", \"speed\": 0.01}"))
+                .andExpect(status().isOk());
+        perform(delete("/rest/ships/2"))
+                .andExpect(status().isOk());
+
+        JsonNode incremental = getStats("/rest/ships/stats");
+        fleetStatistics.rebuild();
+        JsonNode rebuilt = getStats("/rest/ships/stats");
+
+        assertEquals("Статистика не учитывает изменения кораблей.", rebuilt.toString(), incremental.toString());
+        assertEquals("Статистика не учитывает создание корабля.", 9999, incremental.at("/total/crewSize/max").asInt());
+        assertEquals("Статистика не учитывает редактирование корабля.", 0.01, incremental.at("/planets/Earth/speed/min").asDouble());
+        assertEquals("Статистика не учитывает удаление корабля.", testsHelper.getAllShips().size(), incremental.at("/total/count").asInt());
+    }
+
+    //test4
+    @Test
+    public void staleChangesAreDropped() {
+        Ship ship = shipRepository.findById(1L).get();
+        Ship newer = withSpeed(ship, 0.01, ship.getVersion() + 2);
+        Ship older = withSpeed(ship, 0.99, ship.getVersion() + 1);
+
+        fleetStatistics.shipUpdated(ship, newer);
+        fleetStatistics.shipUpdated(ship, older);
+        ShipGroupStats total = fleetStatistics.snapshot().getTotal();
+        assertEquals("Статистика должна сохранить более новое изменение корабля.", 0.01, total.getSpeed().getMin());
+        assertTrue("Статистика не должна применять устаревшее изменение корабля.", total.getSpeed().getMax() < 0.99);
+
+        fleetStatistics.shipDeleted(newer);
+        fleetStatistics.shipUpdated(ship, older);
+        assertEquals("Статистика не должна учитывать удаленный корабль после запоздалого изменения.",
+                (long) testsHelper.getAllShips().size() - 1, fleetStatistics.snapshot().getTotal().getCount());
+    }
+
+    private static Ship withSpeed(Ship ship, double speed, long version) {
+        Ship changed = new Ship(ship);
+        changed.setSpeed(speed);
+        changed.setVersion(version);
+        return changed;
+    }
+
+    private JsonNode getStats(String url) throws Exception {
+        MvcResult result = perform(get(url)
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk())
+                .andReturn();
+        return mapper.readTree(result.getResponse().getContentAsString());
+    }
+
+    private void assertStats(String request, List<ShipInfoTest> ships, JsonNode stats) {
+        assertGroup(request, ships, stats.get("total"));
+        assertEquals("Неверное число групп по planet при запросе " + request + ".",
+                ships.stream().map(ship -> ship.planet).distinct().count(), (long) stats.get("planets").size());
+        for (String planet : ships.stream().map(ship -> ship.planet).collect(Collectors.toSet()))
+            assertGroup(request, ships.stream().filter(ship -> ship.planet.equals(planet)).collect(Collectors.toList()),
+                    stats.get("planets").get(planet));
+        for (ShipType shipType : ships.stream().map(ship -> ship.shipType).collect(Collectors.toSet()))
+            assertGroup(request, ships.stream().filter(ship -> ship.shipType == shipType).collect(Collectors.toList()),
+                    stats.get("shipTypes").get(shipType.name()));
+        for (int bucket : ships.stream().map(ShipStatsTest::bucketOf).collect(Collectors.toSet()))
+            assertGroup(request, ships.stream().filter(ship -> bucketOf(ship) == bucket).collect(Collectors.toList()),
+                    stats.get("years").get(String.valueOf(bucket)));
+    }
+
+    private void assertGroup(String request, List<ShipInfoTest> ships, JsonNode group) {
+        String message = "Возвращается не правильная статистика при запросе " + request + ".";
+        assertTrue(message, group != null);
+        assertEquals(message, (long) ships.size(), group.get("count").asLong());
+        assertEquals(message, ships.stream().filter(ship -> ship.isUsed).count(), group.get("usedCount").asLong());
+        assertEquals(message, ships.stream().filter(ship -> !ship.isUsed).count(), group.get("newCount").asLong());
+        assertMetric(message, ships, ship -> ship.speed, group.get("speed"));
+        assertMetric(message, ships, ship -> ship.rating, group.get("rating"));
+        assertMetric(message, ships, ship -> ship.crewSize, group.get("crewSize"));
+    }
+
+    private void assertMetric(String message, List<ShipInfoTest> ships, ToDoubleFunction<ShipInfoTest> metric, JsonNode stats) {
+        assertEquals(message, ships.stream().mapToDouble(metric).min().getAsDouble(), stats.get("min").asDouble());
+        assertEquals(message, ships.stream().mapToDouble(metric).max().getAsDouble(), stats.get("max").asDouble());
+        assertTrue(message, Math.abs(ships.stream().mapToDouble(metric).average().getAsDouble() - stats.get("avg").asDouble()) < 1e-9);
+    }
+
+    private static int bucketOf(ShipInfoTest ship) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(ship.prodDate);
+        return calendar.get(Calendar.YEAR) / YEAR_BUCKET * YEAR_BUCKET;
+    }
+}
@@ -0,0 +1,106 @@
+package com.space.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+import static org.springframework.test.util.AssertionErrors.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@TestPropertySource(properties = {"ship.slow-query.threshold-ms=0", "ship.slow-query.capacity=4", "ship.slow-query.explain=true"})
+public class SlowQueryTest extends AbstractTest {
+
+    private ObjectMapper mapper = new ObjectMapper();
+
+    @Before
+    @Override
+    public void setup() {
+        super.setup();
+        try {
+            mockMvc.perform(delete("/rest/admin/slow-queries"))
+                    .andExpect(status().isOk());
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    //test1
+    @Test
+    public void getSlowQueryOfFilteredPage() throws Exception {
+        perform(get("/rest/ships?planet=Earth&minSpeed=0.5&order=SPEED&pageSize=5")
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk());
+
+        JsonNode entries = getSlowQueries();
+        assertEquals("Запрос не попал в журнал медленных запросов.", 1, entries.size());
+
+        JsonNode entry = entries.get(0);
+        assertEquals("Неверный вид запроса в журнале.", "select", entry.get("query").asText());
+        assertEquals("Неверный набор фильтров в журнале.", "planet+minSpeed", entry.get("shape").asText());
+        assertEquals("Не сохранен параметр planet.", "Earth", entry.get("parameters").get("planet").asText());
+        assertEquals("Не сохранен параметр order.", "SPEED", entry.get("parameters").get("order").asText());
+        assertEquals("Не сохранено значение параметра запроса.", "%Earth%", entry.get("binds").get(0).asText());
+        assertTrue("Не сохранен SQL запроса.", entry.get("sql").asText().toLowerCase().contains("select"));
+        assertTrue("Не сохранен план запроса.", entry.get("plan").size() > 0 && !entry.get("plan").get(0).has("error"));
+        assertTrue("Не сохранено время выполнения.", entry.get("elapsedMillis").asDouble() > 0);
+    }
+
+    //test2
+    @Test
+    public void getSlowQueriesNewestFirstWithinCapacity() throws Exception {
+        for (int i = 1; i <= 6; i++)
+            perform(get("/rest/ships/count?minCrewSize=" + i)
+                    .accept(MediaType.APPLICATION_JSON_UTF8))
+                    .andExpect(status().isOk());
+
+        JsonNode entries = getSlowQueries();
+        assertEquals("Журнал медленных запросов хранит больше записей, чем задано.", 4, entries.size());
+        assertEquals("Журнал медленных запросов должен начинаться с последнего запроса.",
+                6, entries.get(0).get("parameters").get("minCrewSize").asInt());
+        assertEquals("Неверное число строк для запроса количества.", 1, entries.get(0).get("rows").asInt());
+    }
+
+    //test3
+    @Test
+    public void getSlowQueryOfFilteredStats() throws Exception {
+        perform(get("/rest/ships/stats?planet=Earth")
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk());
+
+        JsonNode entries = getSlowQueries();
+        assertEquals("Запрос статистики не попал в журнал медленных запросов.", 1, entries.size());
+
+        JsonNode entry = entries.get(0);
+        assertEquals("Неверный вид запроса в журнале.", "stats", entry.get("query").asText());
+        assertEquals("Неверный набор фильтров в журнале.", "specification", entry.get("shape").asText());
+        assertTrue("Не сохранен SQL запроса.", entry.get("sql").asText().toLowerCase().contains("group by"));
+    }
+
+    //test4
+    @Test
+    public void getSlowQueryOfLaterPageKeepsFilterBinds() throws Exception {
+        perform(get("/rest/ships?planet=Earth&pageNumber=1&pageSize=2")
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk());
+
+        JsonNode entry = getSlowQueries().get(0);
+        assertEquals("В журнал должны попадать только значения фильтров.", 1, entry.get("binds").size());
+        assertTrue("Не сохранен SQL запроса со смещением.", entry.get("sql").asText().toLowerCase().contains("limit ?, ?"));
+        assertTrue("Не сохранен план запроса со смещением.", entry.get("plan").size() > 0 && !entry.get("plan").get(0).has("error"));
+    }
+
+    private JsonNode getSlowQueries() throws Exception {
+        MvcResult result = mockMvc.perform(get("/rest/admin/slow-queries")
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk())
+                .andReturn();
+        return mapper.readTree(result.getResponse().getContentAsString());
+    }
+}
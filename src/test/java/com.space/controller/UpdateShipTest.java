@@ -21,7 +21,7 @@ public class UpdateShipTest extends AbstractTest {
     //test1
     @Test
     public void updateShipIdZeroTest() throws Exception {
-        mockMvc.perform(post("/rest/ships/0")
+        perform(post("/rest/ships/0")
                 .contentType(MediaType.APPLICATION_JSON_UTF8)
                 .accept(MediaType.APPLICATION_JSON_UTF8)
                 .content(TestsHelper.NORMAL_JSON))
@@ -31,7 +31,7 @@ public class UpdateShipTest extends AbstractTest {
     //test2
     @Test
     public void updateShipNotExistTest() throws Exception {
-        mockMvc.perform(post("/rest/ships/415")
+        perform(post("/rest/ships/415")
                 .contentType(MediaType.APPLICATION_JSON_UTF8)
                 .accept(MediaType.APPLICATION_JSON_UTF8)
                 .content(TestsHelper.NORMAL_JSON))
@@ -43,7 +43,7 @@ public class UpdateShipTest extends AbstractTest {
     public void updateShipInvalidNameTest() throws Exception {
         ShipInfoTest shipInfoTest = testsHelper.getShipInfosById(1);
 
-        mockMvc.perform(post("/rest/ships/" + shipInfoTest.id)
+        perform(post("/rest/ships/" + shipInfoTest.id)
                 .contentType(MediaType.APPLICATION_JSON_UTF8)
                 .accept(MediaType.APPLICATION_JSON_UTF8)
                 .content(TestsHelper.EMPTY_NAME_JSON))
@@ -55,7 +55,7 @@ public class UpdateShipTest extends AbstractTest {
     public void updateShipInvalidProdDateTest() throws Exception {
         ShipInfoTest shipInfoTest = testsHelper.getShipInfosById(1);
 
-        mockMvc.perform(post("/rest/ships/" + shipInfoTest.id)
+        perform(post("/rest/ships/" + shipInfoTest.id)
                 .contentType(MediaType.APPLICATION_JSON_UTF8)
                 .accept(MediaType.APPLICATION_JSON_UTF8)
                 .content(TestsHelper.NEGATIVE_PROD_DATE_JSON))
@@ -67,7 +67,7 @@ public class UpdateShipTest extends AbstractTest {
     public void updateShipInvalidCrewSizeTest() throws Exception {
         ShipInfoTest shipInfoTest = testsHelper.getShipInfosById(1);
 
-        mockMvc.perform(post("/rest/ships/" + shipInfoTest.id)
+        perform(post("/rest/ships/" + shipInfoTest.id)
                 .contentType(MediaType.APPLICATION_JSON_UTF8)
                 .accept(MediaType.APPLICATION_JSON_UTF8)
                 .content(TestsHelper.TOO_BIG_CREW_SIZE_JSON))
@@ -79,7 +79,7 @@ public class UpdateShipTest extends AbstractTest {
     public void updateShipInvalidCrewSizeTest2() throws Exception {
         ShipInfoTest shipInfoTest = testsHelper.getShipInfosById(1);
 
-        mockMvc.perform(post("/rest/ships/" + shipInfoTest.id)
+        perform(post("/rest/ships/" + shipInfoTest.id)
                 .contentType(MediaType.APPLICATION_JSON_UTF8)
                 .accept(MediaType.APPLICATION_JSON_UTF8)
                 .content(TestsHelper.NEGATIVE_CREW_SIZE_JSON))
@@ -92,7 +92,7 @@ public class UpdateShipTest extends AbstractTest {
         ShipInfoTest expected = mapper.readValue(String.format(TestsHelper.NORMAL_JSON_WITH_ID, 5), ShipInfoTest.class);
         expected.rating = 12.8;
 
-        ResultActions resultActions = mockMvc.perform(post("/rest/ships/5")
+        ResultActions resultActions = perform(post("/rest/ships/5")
                 .contentType(MediaType.APPLICATION_JSON_UTF8)
                 .accept(MediaType.APPLICATION_JSON_UTF8)
                 .content(String.format(TestsHelper.NORMAL_JSON_WITH_ID, 8L)))
@@ -110,7 +110,7 @@ public class UpdateShipTest extends AbstractTest {
     public void updateShipEmptyBodyTest() throws Exception {
         ShipInfoTest expected = testsHelper.getShipInfosById(17);
 
-        ResultActions resultActions = mockMvc.perform(post("/rest/ships/17")
+        ResultActions resultActions = perform(post("/rest/ships/17")
                 .contentType(MediaType.APPLICATION_JSON_UTF8)
                 .accept(MediaType.APPLICATION_JSON_UTF8)
                 .content("{}"))
@@ -128,7 +128,7 @@ public class UpdateShipTest extends AbstractTest {
         ShipInfoTest expected = mapper.readValue(String.format(TestsHelper.NORMAL_JSON_WITH_ID, 23), ShipInfoTest.class);
         expected.rating = 12.8;
 
-        ResultActions resultActions = mockMvc.perform(post("/rest/ships/23")
+        ResultActions resultActions = perform(post("/rest/ships/23")
                 .contentType(MediaType.APPLICATION_JSON_UTF8)
                 .accept(MediaType.APPLICATION_JSON_UTF8)
                 .content(String.format(TestsHelper.NORMAL_JSON_WITH_RATING, "9")))
@@ -153,7 +153,7 @@ public class UpdateShipTest extends AbstractTest {
         ShipInfoTest expected = new ShipInfoTest(shipInfoTest.id, newName, shipInfoTest.planet, shipInfoTest.shipType, shipInfoTest.prodDate,
                 newIsUsed, newSpeed, newCrewSize, 6.67);
 
-        ResultActions resultActions = mockMvc.perform(post("/rest/ships/" + shipInfoTest.id)
+        ResultActions resultActions = perform(post("/rest/ships/" + shipInfoTest.id)
                 .contentType(MediaType.APPLICATION_JSON_UTF8)
                 .accept(MediaType.APPLICATION_JSON_UTF8)
                 .content(String.format(TestsHelper.JSON_SKELETON, newName, String.valueOf(newIsUsed), String.valueOf(newSpeed), String.valueOf(newCrewSize))))
@@ -177,7 +177,7 @@ public class UpdateShipTest extends AbstractTest {
         ShipInfoTest expected = new ShipInfoTest(shipInfoTest.id, shipInfoTest.name, newPlanet, ShipType.MILITARY, 32556844329665L,
                 shipInfoTest.isUsed, shipInfoTest.speed, shipInfoTest.crewSize, 2.48);
 
-        ResultActions resultActions = mockMvc.perform(post("/rest/ships/" + shipInfoTest.id)
+        ResultActions resultActions = perform(post("/rest/ships/" + shipInfoTest.id)
                 .contentType(MediaType.APPLICATION_JSON_UTF8)
                 .accept(MediaType.APPLICATION_JSON_UTF8)
                 .content(String.format(TestsHelper.JSON_SKELETON_2, newPlanet, String.valueOf(newShipType), String.valueOf(newProdDate))))
@@ -0,0 +1,84 @@
+package com.space.model;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Calendar;
+import java.util.Random;
+
+import static org.springframework.test.util.AssertionErrors.assertEquals;
+
+public class ShipDatesTest {
+
+    private Random random = new Random(3019);
+
+    //test1
+    @Test
+    public void yearMatchesCalendar() {
+        Calendar calendar = Calendar.getInstance();
+        for (int year = ShipDates.MIN_YEAR - 10; year <= ShipDates.MAX_YEAR + 10; year++) {
+            calendar.clear();
+            calendar.set(year, Calendar.JANUARY, 1);
+            long start = calendar.getTimeInMillis();
+            calendar.set(year + 1, Calendar.JANUARY, 1);
+            long end = calendar.getTimeInMillis();
+
+            long[] moments = {start - 1, start, start + 1, end - 1, start + (long) (random.nextDouble() * (end - start))};
+            for (long millis : moments)
+                assertEquals("Год не совпадает с Calendar для " + millis + ".", calendarYear(millis), ShipDates.year(millis));
+        }
+    }
+
+    //test2
+    @Test
+    public void yearOutsideTableMatchesCalendar() {
+        for (int i = 0; i < 10000; i++) {
+            long millis = random.nextLong() % 100000000000000L;
+            assertEquals("Год не совпадает с Calendar для " + millis + ".", calendarYear(millis), ShipDates.year(millis));
+        }
+    }
+
+    //test3
+    @Test
+    public void ratingMatchesBigDecimal() {
+        for (int year = ShipDates.MIN_YEAR; year <= ShipDates.MAX_YEAR; year++) {
+            for (boolean used : new boolean[]{false, true}) {
+                for (int i = 1; i <= 99; i++)
+                    assertRating(i / 100d, used, year);
+                for (int i = 0; i < 500; i++)
+                    assertRating(0.01 + random.nextDouble() * 0.98, used, year);
+            }
+        }
+    }
+
+    //test4
+    @Test
+    public void roundHalfUpMatchesBigDecimalAtHalfWayPoints() {
+        for (long n = 0; n <= 20000; n++) {
+            double halfWay = (2 * n + 1) / 200d;
+            for (double value : new double[]{halfWay, Math.nextUp(halfWay), Math.nextDown(halfWay), n / 100d})
+                assertEquals("Округление не совпадает с BigDecimal для " + value + ".", bigDecimalRound(value), ShipDates.roundHalfUp2(value));
+        }
+        for (int i = 0; i < 100000; i++) {
+            double value = random.nextDouble() * 100;
+            assertEquals("Округление не совпадает с BigDecimal для " + value + ".", bigDecimalRound(value), ShipDates.roundHalfUp2(value));
+        }
+    }
+
+    private void assertRating(double speed, boolean used, int year) {
+        double value = (80 * speed * (used ? 0.5 : 1)) / (ShipDates.MAX_YEAR - year + 1);
+        assertEquals("Рейтинг не совпадает с BigDecimal для speed=" + speed + ", isUsed=" + used + ", year=" + year + ".",
+                bigDecimalRound(value), ShipDates.roundHalfUp2(value));
+    }
+
+    private static double bigDecimalRound(double value) {
+        return BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_UP).doubleValue();
+    }
+
+    private static int calendarYear(long millis) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(millis);
+        return calendar.get(Calendar.YEAR);
+    }
+}
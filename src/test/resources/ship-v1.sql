@@ -0,0 +1,15 @@
+-- The ship table of db/migration/V1 without the MySQL table options H2 cannot read. The dev database starts from it
+-- like one created by the old init.sql: Flyway baselines it at V1 and applies the later migrations
+CREATE TABLE ship
+(
+    id       BIGINT(20)  NOT NULL AUTO_INCREMENT,
+    name     VARCHAR(50) NULL,
+    planet   VARCHAR(50) NULL,
+    shipType VARCHAR(9)  NULL,
+    prodDate date        NULL,
+    isUsed   BIT(1)      NULL,
+    speed    DOUBLE      NULL,
+    crewSize INT(4)      NULL,
+    rating   DOUBLE      NULL,
+    PRIMARY KEY (id)
+);
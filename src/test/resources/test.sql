@@ -1,18 +1,7 @@
-DROP TABLE IF EXISTS ship;
-
-CREATE TABLE ship
-(
-    id       BIGINT(20)  NOT NULL AUTO_INCREMENT,
-    name     VARCHAR(50) NULL,
-    planet   VARCHAR(50) NULL,
-    shipType VARCHAR(9)  NULL,
-    prodDate date        NULL,
-    isUsed   BIT(1)      NULL,
-    speed    DOUBLE      NULL,
-    crewSize INT(4)      NULL,
-    rating   DOUBLE      NULL,
-    PRIMARY KEY (id)
-);
+-- Fixture ships over the schema of db/migration; run after the migrations and again before every test
+DELETE FROM ship;
+DELETE FROM rating_job;
+ALTER TABLE ship ALTER COLUMN id RESTART WITH 1;
 
 INSERT INTO ship(name, planet, shipType, prodDate, isUsed, speed, crewSize, rating)
 VALUES ('Orion III', 'Mars', 'MERCHANT', '2995-01-01', true, 0.82, 617, 1.31)